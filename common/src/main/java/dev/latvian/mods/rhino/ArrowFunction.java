@@ -15,8 +15,8 @@ public class ArrowFunction extends BaseFunction {
 		return eq.equalGraphs(cx, f1.boundThis, f2.boundThis) && eq.equalGraphs(cx, f1.targetFunction, f2.targetFunction);
 	}
 
-	private final Callable targetFunction;
-	private final Scriptable boundThis;
+	final Callable targetFunction;
+	final Scriptable boundThis;
 
 	public ArrowFunction(Context cx, Scriptable scope, Callable targetFunction, Scriptable boundThis) {
 		this.targetFunction = targetFunction;
@@ -6,7 +6,7 @@
 
 package dev.latvian.mods.rhino;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
 
 /**
  * <p>This class represents a string composed of two components, each of which
@@ -15,8 +15,10 @@ import java.util.ArrayDeque;
  * <p>This string representation is optimized for concatenation using the "+"
  * operator. Instead of immediately copying both components to a new character
  * array, ConsString keeps references to the original components and only
- * converts them to a String if either toString() is called or a certain depth
- * level is reached.</p>
+ * converts them to a String if toString() is called. {@link #length()},
+ * {@link #charAt(int)} and {@link #subSequence(int, int)} work on the tree
+ * directly, and {@link #concat(CharSequence, CharSequence)} keeps it balanced,
+ * so they stay cheap while a string is being built up.</p>
  *
  * <p>Note that instances of this class are only immutable if both parts are
  * immutable, i.e. either Strings or ConsStrings that are ultimately composed
@@ -25,54 +27,241 @@ import java.util.ArrayDeque;
  * <p>Both the name and the concept are borrowed from V8.</p>
  */
 public class ConsString implements CharSequence {
+	/**
+	 * Concatenations shorter than this are copied into a flat String right away.
+	 */
+	private static final int MIN_CONS_LENGTH = 16;
+
+	/**
+	 * Short strings appended one after another are merged into a single leaf up to this length.
+	 */
+	private static final int MAX_MERGED_LEAF_LENGTH = 64;
+
+	/**
+	 * Trees deeper than this (only possible through unusual concatenation orders) are flattened.
+	 */
+	private static final int MAX_DEPTH = 96;
+
+	/**
+	 * Concatenates two strings, returning either a flat String or a ConsString.
+	 * <p>
+	 * Subtrees of similar depth along the edge of the tree are combined, like the
+	 * carry in a binary counter, so repeated appending or prepending keeps the
+	 * depth logarithmic in the number of parts.
+	 */
+	public static CharSequence concat(CharSequence left, CharSequence right) {
+		int leftLength = left.length();
+		int rightLength = right.length();
+
+		if (leftLength == 0) {
+			return right;
+		} else if (rightLength == 0) {
+			return left;
+		} else if (leftLength + rightLength < MIN_CONS_LENGTH) {
+			return left.toString().concat(right.toString());
+		}
+
+		// merge a short appended string into the previous short leaf
+		if (right instanceof String rightString && rightLength < MAX_MERGED_LEAF_LENGTH && left instanceof ConsString c) {
+			CharSequence cl = c.left;
+			CharSequence cr = c.right;
+
+			if (cl.length() + cr.length() == c.length && cl.length() != c.length && cr instanceof String crString && crString.length() + rightLength <= MAX_MERGED_LEAF_LENGTH) {
+				left = cl;
+				right = crString.concat(rightString);
+			}
+		}
+
+		// appending: fold trailing subtrees of the left side into the right side
+		int rightDepth = depth(right);
+		boolean appended = false;
+
+		while (left instanceof ConsString c) {
+			CharSequence cl = c.left;
+			CharSequence cr = c.right;
+
+			if (cl.length() == c.length || cl.length() + cr.length() != c.length || depth(cr) > rightDepth) {
+				break;
+			}
+
+			ConsString node = new ConsString(cr, right);
+			right = node;
+			rightDepth = node.depth;
+			left = cl;
+			appended = true;
+		}
+
+		// prepending: fold leading subtrees of the right side into the left side,
+		// unless that would just undo the appending above
+		int leftDepth = depth(left);
+
+		while (!appended && right instanceof ConsString c) {
+			CharSequence cl = c.left;
+			CharSequence cr = c.right;
+
+			if (cl.length() == c.length || cl.length() + cr.length() != c.length || depth(cl) > leftDepth) {
+				break;
+			}
+
+			ConsString node = new ConsString(left, cl);
+			left = node;
+			leftDepth = node.depth;
+			right = cr;
+		}
+
+		ConsString result = new ConsString(left, right);
+
+		if (result.depth > 2 * (32 - Integer.numberOfLeadingZeros(result.length))) {
+			// mixed appending and prepending, the folds above only look at the edges
+			result = join(left, right);
+		}
+
+		if (result.depth > MAX_DEPTH) {
+			result.flatten();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Concatenates two trees by descending into the deeper one until the depths are close,
+	 * rotating once if the joined subtree became too deep, like joining AVL trees.
+	 */
+	private static ConsString join(CharSequence left, CharSequence right) {
+		int leftDepth = depth(left);
+		int rightDepth = depth(right);
+
+		if (leftDepth > rightDepth + 1 && left instanceof ConsString c) {
+			CharSequence cl = c.left;
+			CharSequence cr = c.right;
+
+			if (cl.length() + cr.length() == c.length && cl.length() != c.length) {
+				ConsString t = join(cr, right);
+
+				if (t.depth <= depth(cl) + 1) {
+					return new ConsString(cl, t);
+				}
+
+				return new ConsString(new ConsString(cl, t.left), t.right);
+			}
+		} else if (rightDepth > leftDepth + 1 && right instanceof ConsString c) {
+			CharSequence cl = c.left;
+			CharSequence cr = c.right;
+
+			if (cl.length() + cr.length() == c.length && cl.length() != c.length) {
+				ConsString t = join(left, cl);
+
+				if (t.depth <= depth(cr) + 1) {
+					return new ConsString(t, cr);
+				}
+
+				return new ConsString(t.left, new ConsString(t.right, cr));
+			}
+		}
+
+		return new ConsString(left, right);
+	}
+
+	private static int depth(CharSequence s) {
+		return s instanceof ConsString c && !c.isFlat() ? c.depth : 0;
+	}
+
 	private final int length;
+	private final int depth;
+	/*
+	 * Once flattened, 'left' holds the whole String and 'right' is empty. 'right'
+	 * is written last and volatile, so a reader that sees the new 'right' also
+	 * sees the new 'left'. Readers check 'left' first and re-read it when the two
+	 * don't add up to 'length'.
+	 */
 	private CharSequence left;
-	private CharSequence right;
-	private boolean isFlat;
+	private volatile CharSequence right;
 
 	public ConsString(CharSequence str1, CharSequence str2) {
 		left = str1;
 		right = str2;
 		length = left.length() + right.length();
-		isFlat = false;
+		depth = Math.max(depth(str1), depth(str2)) + 1;
+	}
+
+	private boolean isFlat() {
+		CharSequence l = left;
+		return l instanceof String && l.length() == length;
 	}
 
 	@Override
 	public String toString() {
-		return isFlat ? (String) left : flatten();
+		CharSequence l = left;
+		return l instanceof String s && s.length() == length ? s : flatten();
+	}
+
+	private String flatten() {
+		// Racing threads may both get here, they produce equal strings
+		final char[] chars = new char[length];
+		getChars(0, length, chars, 0);
+		String s = new String(chars);
+		left = s;
+		right = "";
+		return s;
 	}
 
-	private synchronized String flatten() {
-		if (!isFlat) {
-			final char[] chars = new char[length];
-			int charPos = length;
+	/**
+	 * Copies characters <code>[srcBegin, srcEnd)</code> into <code>dst</code>, walking
+	 * only the parts of the tree that overlap the range.
+	 */
+	private void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+		CharSequence[] nodes = new CharSequence[Math.min(depth, MAX_DEPTH) + 2];
+		int[] offsets = new int[nodes.length];
+		int size = 1;
+		nodes[0] = this;
+
+		while (size > 0) {
+			size--;
+			CharSequence node = nodes[size];
+			int offset = offsets[size];
+			nodes[size] = null;
+
+			if (offset >= srcEnd || offset + node.length() <= srcBegin) {
+				continue;
+			}
+
+			if (node instanceof ConsString c) {
+				CharSequence l = c.left;
 
-			ArrayDeque<CharSequence> stack = new ArrayDeque<>();
-			stack.addFirst(left);
+				if (l.length() != c.length) {
+					CharSequence r = c.right;
 
-			CharSequence next = right;
-			do {
-				if (next instanceof ConsString casted) {
-					if (casted.isFlat) {
-						next = casted.left;
+					if (l.length() + r.length() == c.length) {
+						if (size + 2 > nodes.length) {
+							nodes = Arrays.copyOf(nodes, nodes.length * 2);
+							offsets = Arrays.copyOf(offsets, offsets.length * 2);
+						}
+
+						nodes[size] = r;
+						offsets[size] = offset + l.length();
+						size++;
 					} else {
-						stack.addFirst(casted.left);
-						next = casted.right;
-						continue;
+						// flattened by another thread in the meantime
+						l = c.left;
 					}
 				}
 
-				final String str = (String) next;
-				charPos -= str.length();
-				str.getChars(0, str.length(), chars, charPos);
-				next = stack.isEmpty() ? null : stack.removeFirst();
-			} while (next != null);
+				nodes[size] = l;
+				offsets[size] = offset;
+				size++;
+			} else {
+				int from = Math.max(srcBegin, offset);
+				int to = Math.min(srcEnd, offset + node.length());
 
-			left = new String(chars);
-			right = "";
-			isFlat = true;
+				if (node instanceof String s) {
+					s.getChars(from - offset, to - offset, dst, dstBegin + from - srcBegin);
+				} else {
+					for (int i = from; i < to; i++) {
+						dst[dstBegin + i - srcBegin] = node.charAt(i - offset);
+					}
+				}
+			}
 		}
-		return (String) left;
 	}
 
 	@Override
@@ -82,13 +271,54 @@ public class ConsString implements CharSequence {
 
 	@Override
 	public char charAt(int index) {
-		String str = isFlat ? (String) left : flatten();
-		return str.charAt(index);
+		CharSequence node = this;
+
+		while (node instanceof ConsString c) {
+			CharSequence l = c.left;
+			int leftLength = l.length();
+
+			if (leftLength == c.length || index < leftLength) {
+				node = l;
+			} else {
+				CharSequence r = c.right;
+
+				if (leftLength + r.length() == c.length) {
+					index -= leftLength;
+					node = r;
+				} else {
+					// flattened by another thread in the meantime
+					node = c.left;
+				}
+			}
+		}
+
+		return node.charAt(index);
 	}
 
 	@Override
 	public CharSequence subSequence(int start, int end) {
-		String str = isFlat ? (String) left : flatten();
-		return str.substring(start, end);
+		CharSequence l = left;
+
+		if (l instanceof String s && s.length() == length) {
+			return s.substring(start, end);
+		} else if (start < 0 || end > length || start > end) {
+			throw new StringIndexOutOfBoundsException("begin " + start + ", end " + end + ", length " + length);
+		}
+
+		char[] chars = new char[end - start];
+		getChars(start, end, chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * Tests if the characters starting at <code>offset</code> match <code>s</code>,
+	 * without flattening this string.
+	 */
+	public boolean regionMatches(int offset, String s) {
+		if (offset < 0 || offset + s.length() > length) {
+			return false;
+		}
+
+		return subSequence(offset, offset + s.length()).equals(s);
 	}
 }
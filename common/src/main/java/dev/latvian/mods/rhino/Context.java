@@ -31,6 +31,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 /**
@@ -349,12 +351,25 @@ public class Context {
 	RegExp regExp;
 	// For the interpreter to store the last frame for error reports etc.
 	Object lastInterpreterFrame;
+	// Copy of lastInterpreterFrame that other threads can read, only updated while sampled by a ScriptProfiler
+	volatile Object sampledInterpreterFrame;
+	final AtomicInteger samplingProfilers = new AtomicInteger();
 	// For the interpreter to store information about previous invocations
 	// interpreter invocations
 	ObjArray previousInterpreterInvocations;
 	// For instruction counting (interpreter only)
 	int instructionCount;
 	int instructionThreshold;
+	ContextMetrics metrics;
+	// Execution limits of top calls, checked by the interpreter when executionLimited is set
+	boolean executionLimited;
+	long executionStart;
+	long executionInstructions;
+	int executionChecks;
+	volatile boolean interruptRequested;
+	private long maximumExecutionNanos;
+	private long maximumExecutionInstructions;
+	private boolean interruptible;
 	// It can be used to return the second uint32 result from function
 	long scratchUint32;
 	// It can be used to return the second Scriptable result from function
@@ -363,6 +378,7 @@ public class Context {
 	private Object sealKey;
 	private ErrorReporter errorReporter;
 	private int maximumInterpreterStackDepth;
+	private boolean javaStackForScriptErrors;
 	private Object propertyListeners;
 	private Map<Object, Object> threadLocalMap;
 	private ClassLoader applicationClassLoader;
@@ -393,6 +409,7 @@ public class Context {
 	 */
 	protected Context() {
 		maximumInterpreterStackDepth = Integer.MAX_VALUE;
+		javaStackForScriptErrors = true;
 	}
 
 	/**
@@ -814,6 +831,23 @@ public class Context {
 		return result;
 	}
 
+	/**
+	 * Create a new JavaScript object with room for the given number of properties.
+	 * <p>
+	 * Behaves like {@link #newObject(Scriptable)}, but avoids rehashing while
+	 * the expected properties are added.
+	 *
+	 * @param scope           the scope to search for the constructor and to evaluate
+	 *                        against
+	 * @param initialCapacity the expected number of properties
+	 * @return the new object
+	 */
+	public Scriptable newObject(Scriptable scope, int initialCapacity) {
+		NativeObject result = new NativeObject(this, initialCapacity);
+		ScriptRuntime.setBuiltinProtoAndParent(this, scope, result, TopLevel.Builtins.Object);
+		return result;
+	}
+
 	/**
 	 * Create a new JavaScript object by executing the named constructor.
 	 * <p>
@@ -928,6 +962,34 @@ public class Context {
 		maximumInterpreterStackDepth = max;
 	}
 
+	/**
+	 * Returns whether errors raised by scripts, either with the 'throw' keyword
+	 * or by the runtime such as TypeError, and any other {@link RhinoException}
+	 * fill in the Java stack trace. Defaults to true.
+	 *
+	 * @return true if script errors fill in the Java stack trace
+	 * @see #setJavaStackForScriptErrors(boolean)
+	 */
+	public final boolean isJavaStackForScriptErrors() {
+		return javaStackForScriptErrors;
+	}
+
+	/**
+	 * Sets whether errors raised by scripts, and any other {@link RhinoException}
+	 * such as {@link EvaluatorException} or {@link ScriptTimeoutException}, fill in
+	 * the Java stack trace.
+	 * Walking the Java stack is most of the cost of creating an exception, and
+	 * the interpreter doesn't need it to report script frames, so turning this
+	 * off makes scripts that use exceptions for control flow much cheaper.
+	 * The script stack, error.stack and printStackTrace() still list all script
+	 * frames, only the Java frames between them are missing.
+	 *
+	 * @param javaStack false to skip filling in the Java stack trace
+	 */
+	public final void setJavaStackForScriptErrors(boolean javaStack) {
+		javaStackForScriptErrors = javaStack;
+	}
+
 	/**
 	 * Get a value corresponding to a key.
 	 * <p>
@@ -1051,6 +1113,158 @@ public class Context {
 	protected void observeInstructionCount(int instructionCount) {
 	}
 
+	/**
+	 * Returns the execution counters of this Context, or null if they are not collected.
+	 *
+	 * @see #setMetrics(ContextMetrics)
+	 */
+	public final ContextMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Starts collecting execution counters of scripts run in this Context,
+	 * such as instructions, function calls and time spent in Java methods.
+	 * Collecting them has a small cost, so they are off by default.
+	 * Only affects scripts entered after this call.
+	 *
+	 * @param metrics where to collect counters, or null to stop collecting them
+	 */
+	public final void setMetrics(ContextMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the maximum time in milliseconds a top call may run for, or 0 if there is no limit.
+	 *
+	 * @see #setMaximumExecutionTime(long)
+	 */
+	public final long getMaximumExecutionTime() {
+		return TimeUnit.NANOSECONDS.toMillis(maximumExecutionNanos);
+	}
+
+	/**
+	 * Sets the maximum time a top call, such as evaluating a script or calling a
+	 * script function from Java, may run for. When it is exceeded the script is
+	 * stopped with a {@link ScriptTimeoutException} that scripts can't catch.
+	 * <p>
+	 * The limit is checked at jumps and function calls in interpreted code, so a
+	 * script stuck in a single Java call isn't stopped until that call returns.
+	 *
+	 * @param millis maximum time in milliseconds, or 0 for no limit
+	 */
+	public final void setMaximumExecutionTime(long millis) {
+		if (millis < 0L) {
+			throw new IllegalArgumentException("Cannot set maximumExecutionTime to less than 0");
+		}
+		if (millis != 0L && executionStart == 0L) {
+			// turned on during a top call that started without limits, the time is counted from now
+			executionStart = System.nanoTime();
+		}
+		maximumExecutionNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+		updateExecutionLimited();
+	}
+
+	/**
+	 * Returns the maximum amount of instructions a top call may execute, or 0 if there is no limit.
+	 *
+	 * @see #setMaximumExecutionInstructions(long)
+	 */
+	public final long getMaximumExecutionInstructions() {
+		return maximumExecutionInstructions;
+	}
+
+	/**
+	 * Sets the maximum amount of script instructions a top call may execute,
+	 * counted the same way as for {@link #setInstructionObserverThreshold(int)}.
+	 * When it is exceeded the script is stopped with a {@link ScriptTimeoutException}.
+	 *
+	 * @param instructions maximum amount of instructions, or 0 for no limit
+	 * @see #setMaximumExecutionTime(long)
+	 */
+	public final void setMaximumExecutionInstructions(long instructions) {
+		if (instructions < 0L) {
+			throw new IllegalArgumentException("Cannot set maximumExecutionInstructions to less than 0");
+		}
+		maximumExecutionInstructions = instructions;
+		updateExecutionLimited();
+	}
+
+	public final boolean isInterruptible() {
+		return interruptible;
+	}
+
+	/**
+	 * Allows scripts running in this Context to be stopped from another thread
+	 * with {@link #interrupt()}. Off by default, since the interpreter then has
+	 * to check for interruption at every jump and function call.
+	 */
+	public final void setInterruptible(boolean interruptible) {
+		this.interruptible = interruptible;
+		if (!interruptible) {
+			interruptRequested = false;
+		}
+		updateExecutionLimited();
+	}
+
+	/**
+	 * Asks the script running in this Context to stop, for example from a watchdog
+	 * thread. Can be called from any thread. The script is stopped with a
+	 * {@link ScriptTimeoutException} at its next jump or function call, and again at every
+	 * one after that, including in finally blocks, until the top call has ended. If no script
+	 * is running, the next top call is stopped instead.
+	 * Ignored unless the Context is {@link #setInterruptible(boolean) interruptible}, and
+	 * forgotten when it stops being interruptible.
+	 */
+	public final void interrupt() {
+		if (interruptible) {
+			interruptRequested = true;
+		}
+	}
+
+	private void updateExecutionLimited() {
+		executionLimited = interruptible || maximumExecutionNanos != 0L || maximumExecutionInstructions != 0L;
+	}
+
+	/**
+	 * Starts the execution limits of a new top call.
+	 */
+	final void startExecution() {
+		executionStart = executionLimited ? System.nanoTime() : 0L;
+		executionInstructions = 0L;
+		executionChecks = 0;
+	}
+
+	/**
+	 * Ends the execution limits of a top call, an interrupt only applies to the call it stopped.
+	 */
+	final void endExecution() {
+		interruptRequested = false;
+	}
+
+	/**
+	 * Called by the interpreter at jumps and calls while {@link #executionLimited} is set.
+	 *
+	 * @param instructions amount of instructions executed since the last check
+	 * @throws ScriptTimeoutException if any limit was exceeded
+	 */
+	final void checkExecution(int instructions) {
+		if (interruptible && interruptRequested) {
+			throw new ScriptTimeoutException(this, "Script was interrupted");
+		}
+
+		executionInstructions += instructions;
+
+		if (maximumExecutionInstructions != 0L && executionInstructions > maximumExecutionInstructions) {
+			throw new ScriptTimeoutException(this, "Script exceeded " + maximumExecutionInstructions + " instructions");
+		}
+
+		// reading the clock costs more than everything else here, so it is only done every 64 checks
+		if (maximumExecutionNanos != 0L && (++executionChecks & 63) == 0 && System.nanoTime() - executionStart > maximumExecutionNanos) {
+			throw new ScriptTimeoutException(this, "Script exceeded " + getMaximumExecutionTime() + " ms");
+		}
+	}
+
 	/********** end of API **********/
 
 	/**
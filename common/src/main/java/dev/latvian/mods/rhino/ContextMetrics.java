@@ -0,0 +1,99 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package dev.latvian.mods.rhino;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Execution counters of a {@link Context}, enabled with {@link Context#setMetrics(ContextMetrics)}.
+ * <p>
+ * Counters are plain fields updated by the thread running scripts in the Context, so
+ * {@link #snapshot()} should be taken from that thread, or between script runs, to be exact.
+ * Instructions are counted the same way as for {@link Context#setInstructionObserverThreshold(int)},
+ * at jumps, calls and exceptions. Time spent in Java members includes any scripts they call back into.
+ */
+public final class ContextMetrics {
+	/**
+	 * Calls and total time spent in one Java method or constructor.
+	 */
+	public record MemberStats(long calls, long nanos) {
+	}
+
+	/**
+	 * Copy of the counters at one point in time.
+	 *
+	 * @param members stats of each Java method and constructor that was called, by signature, most time spent first
+	 */
+	public record Snapshot(long instructions, long functionCalls, long javaCalls, long javaNanos, long wrappers, long coercions, long regExpExecutions, Map<String, MemberStats> members) {
+	}
+
+	private static final class MemberCounter {
+		private long calls;
+		private long nanos;
+	}
+
+	long instructions;
+	long functionCalls;
+	long wrappers;
+	long coercions;
+	long regExpExecutions;
+	private long javaCalls;
+	private long javaNanos;
+	private final Map<MemberBox, MemberCounter> members = new IdentityHashMap<>();
+
+	void javaCall(MemberBox member, long nanos) {
+		javaCalls++;
+		javaNanos += nanos;
+		MemberCounter counter = members.get(member);
+
+		if (counter == null) {
+			counter = new MemberCounter();
+			members.put(member, counter);
+		}
+
+		counter.calls++;
+		counter.nanos += nanos;
+	}
+
+	/**
+	 * Called by the regular expression engine for each match attempt. Only public because
+	 * that engine is in another package, this is not meant to be called by embedders.
+	 */
+	public void regExpExecuted() {
+		regExpExecutions++;
+	}
+
+	public Snapshot snapshot() {
+		List<Map.Entry<MemberBox, MemberCounter>> list = new ArrayList<>(members.entrySet());
+		list.sort((a, b) -> Long.compare(b.getValue().nanos, a.getValue().nanos));
+		Map<String, MemberStats> map = new LinkedHashMap<>(list.size());
+
+		for (Map.Entry<MemberBox, MemberCounter> entry : list) {
+			MemberBox member = entry.getKey();
+			String name = member.executable != null ? member.executable.toString() : member.getName();
+			map.merge(name, new MemberStats(entry.getValue().calls, entry.getValue().nanos), (a, b) -> new MemberStats(a.calls + b.calls, a.nanos + b.nanos));
+		}
+
+		return new Snapshot(instructions, functionCalls, javaCalls, javaNanos, wrappers, coercions, regExpExecutions, map);
+	}
+
+	/**
+	 * Sets all counters back to zero.
+	 */
+	public void reset() {
+		instructions = 0L;
+		functionCalls = 0L;
+		wrappers = 0L;
+		coercions = 0L;
+		regExpExecutions = 0L;
+		javaCalls = 0L;
+		javaNanos = 0L;
+		members.clear();
+	}
+}
@@ -4,12 +4,12 @@ public class CustomFunction extends BaseFunction {
 	public static final Class<?>[] NO_ARGS = new Class<?>[0];
 	private final String functionName;
 	private final Func func;
-	private final Class<?>[] argTypes;
+	private final NativeJavaObject.Converter[] argConverters;
 
 	public CustomFunction(String functionName, Func func, Class<?>[] argTypes) {
 		this.functionName = functionName;
 		this.func = func;
-		this.argTypes = argTypes;
+		this.argConverters = NativeJavaObject.getConverters(argTypes);
 	}
 
 	@Override
@@ -23,7 +23,7 @@ public class CustomFunction extends BaseFunction {
 		Object[] origArgs = args;
 		for (int i = 0; i < args.length; i++) {
 			Object arg = args[i];
-			Object coerced = Context.jsToJava(cx, arg, argTypes[i]);
+			Object coerced = argConverters[i].convert(cx, arg);
 
 			if (coerced != arg) {
 				if (origArgs == args) {
@@ -13,6 +13,7 @@ package dev.latvian.mods.rhino;
  * to have a measurable performance benefit.
  */
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -84,6 +85,20 @@ public class EmbeddedSlotMap implements SlotMap {
 	public EmbeddedSlotMap() {
 	}
 
+	/**
+	 * Creates a map whose table can hold <code>initialCapacity</code> slots without
+	 * having to grow. Useful when the number of properties is known up front.
+	 */
+	public EmbeddedSlotMap(int initialCapacity) {
+		if (initialCapacity > 0) {
+			int size = INITIAL_SLOT_SIZE;
+			while (4 * initialCapacity > 3 * size) {
+				size <<= 1;
+			}
+			slots = new ScriptableObject.Slot[size];
+		}
+	}
+
 	@Override
 	public int size() {
 		return count;
@@ -171,9 +186,11 @@ public class EmbeddedSlotMap implements SlotMap {
 	}
 
 	private ScriptableObject.Slot createSlot(Object key, int indexOrHash, ScriptableObject.SlotAccess accessType, ScriptableObject.Slot existingSlot) {
-		if (count == 0) {
-			// Always throw away old slots if any on empty insert.
+		if (slots == null) {
 			slots = new ScriptableObject.Slot[INITIAL_SLOT_SIZE];
+		} else if (count == 0) {
+			// Reuse a pre-sized or emptied table, dropping any stale chains.
+			Arrays.fill(slots, null);
 		} else if (existingSlot != null) {
 			// Re-search the slot list because it is a singly-linked list to find
 			// where to replace it with a new object if necessary
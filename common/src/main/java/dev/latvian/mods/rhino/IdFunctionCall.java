@@ -17,5 +17,14 @@ public interface IdFunctionCall {
 	 */
 	Object execIdCall(IdFunctionObject f, Context cx, Scriptable scope, Scriptable thisObj, Object[] args);
 
+	/**
+	 * Called when 'thisValue' is a primitive string, number or boolean that the
+	 * caller hasn't wrapped yet. Implementations that can work on the primitive
+	 * directly should override this, the default wraps it first.
+	 */
+	default Object execIdCallWithPrimitiveThis(IdFunctionObject f, Context cx, Scriptable scope, Object thisValue, Object[] args) {
+		return execIdCall(f, cx, scope, ScriptRuntime.toObject(cx, scope, thisValue), args);
+	}
+
 }
 
@@ -103,6 +103,15 @@ public class IdFunctionObject extends BaseFunction {
 		return idcall.execIdCall(this, cx, scope, thisObj, args);
 	}
 
+	/**
+	 * Version of {@link #call(Context, Scriptable, Scriptable, Object[])} for a primitive
+	 * string, number or boolean <code>this</code>, which is only wrapped if the
+	 * function can't use the primitive directly.
+	 */
+	public Object callWithPrimitiveThis(Context cx, Scriptable scope, Object thisValue, Object[] args) {
+		return idcall.execIdCallWithPrimitiveThis(this, cx, scope, thisValue, args);
+	}
+
 	@Override
 	public Scriptable createObject(Context cx, Scriptable scope) {
 		if (useCallAsConstructor) {
@@ -345,6 +345,10 @@ public abstract class IdScriptableObject extends ScriptableObject implements IdF
 	public IdScriptableObject() {
 	}
 
+	protected IdScriptableObject(int initialCapacity) {
+		super(initialCapacity);
+	}
+
 	public IdScriptableObject(Scriptable scope, Scriptable prototype) {
 		super(scope, prototype);
 	}
@@ -79,6 +79,9 @@ public final class Interpreter extends Icode implements Evaluator {
 		/*final*/ CallFrame parentFrame;
 		// amount of stack frames before this one on the interpretation stack
 		/*final*/ int frameIndex;
+		// pcSourceLineStart of the parent frame when this frame was called, which stays
+		// the parent's position for as long as this frame exists
+		final int parentPcSourceLineStart;
 		// If true indicates read-only frame that is a part of continuation
 		boolean frozen;
 		/*final*/ Object[] stack;
@@ -110,6 +113,7 @@ public final class Interpreter extends Icode implements Evaluator {
 			this.thisObj = thisObj;
 
 			this.parentFrame = parentFrame;
+			parentPcSourceLineStart = parentFrame == null ? -1 : parentFrame.pcSourceLineStart;
 			frameIndex = (parentFrame == null) ? 0 : parentFrame.frameIndex + 1;
 			if (frameIndex > cx.getMaximumInterpreterStackDepth()) {
 				throw Context.reportRuntimeError("Exceeded maximum stack depth", cx);
@@ -167,17 +171,17 @@ public final class Interpreter extends Icode implements Evaluator {
 				Kit.codeBug();
 			}
 
-			// Initialize args, vars, locals and stack
+			// Initialize args, vars, locals and stack, reinitialize() keeps the arrays
 
-			stack = new Object[maxFrameArray];
-			stackAttributes = new int[maxFrameArray];
-			sDbl = new double[maxFrameArray];
+			if (stack == null) {
+				stack = new Object[maxFrameArray];
+				stackAttributes = new int[maxFrameArray];
+				sDbl = new double[maxFrameArray];
+			}
 
 			int varCount = idata.getParamAndVarCount();
 			for (int i = 0; i < varCount; i++) {
-				if (idata.getParamOrVarConst(i)) {
-					stackAttributes[i] = ScriptableObject.CONST;
-				}
+				stackAttributes[i] = idata.getParamOrVarConst(i) ? ScriptableObject.CONST : ScriptableObject.EMPTY;
 			}
 			int definedArgs = idata.argCount;
 			if (definedArgs > argCount) {
@@ -195,6 +199,21 @@ public final class Interpreter extends Icode implements Evaluator {
 			}
 		}
 
+		/**
+		 * Resets a frame that its function returned from, to run the function in it again.
+		 */
+		void reinitialize(Context cx, Object[] args, double[] argsDbl, int argCount) {
+			result = Undefined.instance;
+			resultDbl = 0D;
+			pc = 0;
+			pcPrevBranch = 0;
+			pcSourceLineStart = idata.firstLinePC;
+			savedStackTop = emptyStackTop;
+			savedCallOp = 0;
+			throwable = null;
+			initializeArgs(cx, null, args, argsDbl, 0, argCount);
+		}
+
 		CallFrame cloneFrozen() {
 			if (!frozen) {
 				Kit.codeBug();
@@ -423,6 +442,47 @@ public final class Interpreter extends Icode implements Evaluator {
 		return interpretLoop(cx, frame, null);
 	}
 
+	/**
+	 * Creates a frame that {@link #interpretReused} can run the function in any number of times,
+	 * or returns null if the function needs a new frame for every call, because it has an activation
+	 * that could outlive the call.
+	 */
+	static Object initReusableFrame(InterpretedFunction ifun, Context cx, Scriptable thisObj) {
+		InterpreterData idata = ifun.idata;
+		if (idata.itsNeedsActivation || idata.itsFunctionType == 0 || !ScriptRuntime.hasTopCall(cx)) {
+			return null;
+		}
+		return new CallFrame(cx, thisObj, ifun, null);
+	}
+
+	/**
+	 * Calls the function of a frame from {@link #initReusableFrame}, without making a new frame.
+	 * Only the first argCount arguments are read, those set to {@link UniqueTag#DOUBLE_MARK}
+	 * from argsDbl.
+	 */
+	static Object interpretReused(Object reusableFrame, Context cx, Object[] args, double[] argsDbl, int argCount) {
+		CallFrame frame = (CallFrame) reusableFrame;
+		if (frame.frozen) {
+			// captured by a continuation
+			Kit.codeBug();
+		}
+		if (cx.metrics != null) {
+			cx.metrics.functionCalls++;
+		}
+		if (cx.executionLimited) {
+			cx.checkExecution(0);
+		}
+		frame.reinitialize(cx, args, argsDbl, argCount);
+		frame.isContinuationsTopFrame = cx.isContinuationsTopCall;
+		cx.isContinuationsTopCall = false;
+
+		return interpretLoop(cx, frame, null);
+	}
+
+	static boolean isFrameReusable(Object reusableFrame) {
+		return !((CallFrame) reusableFrame).frozen;
+	}
+
 	public static Object resumeGenerator(Context cx, Scriptable scope, int operation, Object savedState, Object value) {
 		CallFrame frame = (CallFrame) savedState;
 		GeneratorState generatorState = new GeneratorState(operation, value);
@@ -476,7 +536,7 @@ public final class Interpreter extends Icode implements Evaluator {
 		final Object DBL_MRK = UniqueTag.DOUBLE_MARK;
 		final Object undefined = Undefined.instance;
 
-		final boolean instructionCounting = (cx.instructionThreshold != 0);
+		final boolean instructionCounting = (cx.instructionThreshold != 0 || cx.metrics != null || cx.executionLimited);
 		// arbitrary number to add to instructionCount when calling
 		// other functions
 		final int INVOCATION_COST = 100;
@@ -555,6 +615,9 @@ public final class Interpreter extends Icode implements Evaluator {
 
 				// Store new frame in cx which is used for error reporting etc.
 				cx.lastInterpreterFrame = frame;
+				if (cx.samplingProfilers.get() != 0) {
+					cx.sampledInterpreterFrame = frame;
+				}
 
 				Loop:
 				for (; ; ) {
@@ -943,6 +1006,14 @@ public final class Interpreter extends Icode implements Evaluator {
 									obj = ScriptRuntime.wrapNumber(sDbl[stackTop]);
 								}
 								// stringReg: property
+								Callable primitiveFun = ScriptRuntime.getPrimitivePropFunction(cx, frame.scope, obj, stringReg);
+								if (primitiveFun != null) {
+									// leave the primitive as thisObj, it's wrapped at the call only if the callee needs an object
+									stack[stackTop] = primitiveFun;
+									++stackTop;
+									stack[stackTop] = obj;
+									continue;
+								}
 								stack[stackTop] = ScriptRuntime.getPropFunctionAndThis(cx, frame.scope, obj, stringReg);
 								++stackTop;
 								stack[stackTop] = ScriptRuntime.lastStoredScriptable(cx);
@@ -988,10 +1059,22 @@ public final class Interpreter extends Icode implements Evaluator {
 								// indexReg: number of arguments
 								stackTop -= 1 + indexReg;
 
-								// CALL generation ensures that fun and funThisObj
-								// are already Scriptable and Callable objects respectively
+								// CALL generation ensures that fun is Callable and funThisObj
+								// is Scriptable, or a primitive left by Icode_PROP_AND_THIS
 								Callable fun = (Callable) stack[stackTop];
-								Scriptable funThisObj = (Scriptable) stack[stackTop + 1];
+								Object thisValue = stack[stackTop + 1];
+								if (!(thisValue instanceof Scriptable)) {
+									if (op != Token.REF_CALL && fun instanceof IdFunctionObject ifun) {
+										cx.lastInterpreterFrame = frame;
+										frame.savedCallOp = op;
+										frame.savedStackTop = stackTop;
+										Scriptable primitiveCalleeScope = frame.useActivation ? ScriptableObject.getTopLevelScope(frame.scope) : frame.scope;
+										stack[stackTop] = ifun.callWithPrimitiveThis(cx, primitiveCalleeScope, thisValue, getArgsArray(stack, sDbl, stackTop + 2, indexReg));
+										continue;
+									}
+									thisValue = ScriptRuntime.toObject(cx, frame.scope, thisValue);
+								}
+								Scriptable funThisObj = (Scriptable) thisValue;
 								if (op == Token.REF_CALL) {
 									Object[] outArgs = getArgsArray(stack, sDbl, stackTop + 2, indexReg);
 									stack[stackTop] = ScriptRuntime.callRef(cx, funThisObj, fun, outArgs);
@@ -1599,6 +1682,10 @@ public final class Interpreter extends Icode implements Evaluator {
 			cx.previousInterpreterInvocations = null;
 		}
 
+		if (cx.samplingProfilers.get() != 0) {
+			cx.sampledInterpreterFrame = cx.lastInterpreterFrame;
+		}
+
 		if (throwable != null) {
 			if (throwable instanceof RuntimeException) {
 				throw (RuntimeException) throwable;
@@ -1790,8 +1877,9 @@ public final class Interpreter extends Icode implements Evaluator {
 			stackTop -= 1 + indexReg;
 
 			// Call code generation ensure that stack here
-			// is ... Callable Scriptable
-			Scriptable functionThis = (Scriptable) stack[stackTop + 1];
+			// is ... Callable Scriptable, or a primitive left by Icode_PROP_AND_THIS
+			Object thisValue = stack[stackTop + 1];
+			Scriptable functionThis = thisValue instanceof Scriptable ? (Scriptable) thisValue : ScriptRuntime.toObject(cx, frame.scope, thisValue);
 			Callable function = (Callable) stack[stackTop];
 			Object[] outArgs = getArgsArray(stack, sDbl, stackTop + 2, indexReg);
 			stack[stackTop] = ScriptRuntime.callSpecial(cx, frame.scope, function, functionThis, outArgs, frame.thisObj, callType, frame.idata.itsSourceFile, sourceLine);
@@ -2145,6 +2233,12 @@ public final class Interpreter extends Icode implements Evaluator {
 	}
 
 	private static CallFrame initFrame(Context cx, Scriptable callerScope, Scriptable thisObj, Object[] args, double[] argsDbl, int argShift, int argCount, InterpretedFunction fnOrScript, CallFrame parentFrame) {
+		if (cx.metrics != null) {
+			cx.metrics.functionCalls++;
+		}
+		if (cx.executionLimited) {
+			cx.checkExecution(0);
+		}
 		CallFrame frame = new CallFrame(cx, thisObj, fnOrScript, parentFrame);
 		frame.initializeArgs(cx, callerScope, args, argsDbl, argShift, argCount);
 		enterFrame(cx, frame, args, false);
@@ -2327,12 +2421,12 @@ public final class Interpreter extends Icode implements Evaluator {
 				// to reduce method calls
 			} else if (lhs instanceof CharSequence) {
 				if (rhs instanceof CharSequence) {
-					stack[stackTop] = new ConsString((CharSequence) lhs, (CharSequence) rhs);
+					stack[stackTop] = ConsString.concat((CharSequence) lhs, (CharSequence) rhs);
 				} else {
-					stack[stackTop] = new ConsString((CharSequence) lhs, ScriptRuntime.toCharSequence(cx, rhs));
+					stack[stackTop] = ConsString.concat((CharSequence) lhs, ScriptRuntime.toCharSequence(cx, rhs));
 				}
 			} else if (rhs instanceof CharSequence) {
-				stack[stackTop] = new ConsString(ScriptRuntime.toCharSequence(cx, lhs), (CharSequence) rhs);
+				stack[stackTop] = ConsString.concat(ScriptRuntime.toCharSequence(cx, lhs), (CharSequence) rhs);
 
 			} else {
 				double lDbl = (lhs instanceof Number) ? ((Number) lhs).doubleValue() : ScriptRuntime.toNumber(cx, lhs);
@@ -2355,9 +2449,9 @@ public final class Interpreter extends Icode implements Evaluator {
 		} else if (lhs instanceof CharSequence) {
 			CharSequence rstr = ScriptRuntime.numberToString(cx, d, 10);
 			if (leftRightOrder) {
-				stack[stackTop] = new ConsString((CharSequence) lhs, rstr);
+				stack[stackTop] = ConsString.concat((CharSequence) lhs, rstr);
 			} else {
-				stack[stackTop] = new ConsString(rstr, (CharSequence) lhs);
+				stack[stackTop] = ConsString.concat(rstr, (CharSequence) lhs);
 			}
 		} else {
 			double lDbl = (lhs instanceof Number) ? ((Number) lhs).doubleValue() : ScriptRuntime.toNumber(cx, lhs);
@@ -2398,7 +2492,19 @@ public final class Interpreter extends Icode implements Evaluator {
 	}
 
 	private static void addInstructionCount(Context cx, CallFrame frame, int extra) {
-		cx.instructionCount += frame.pc - frame.pcPrevBranch + extra;
+		int count = frame.pc - frame.pcPrevBranch + extra;
+		if (cx.metrics != null) {
+			cx.metrics.instructions += count;
+		}
+		if (cx.executionLimited) {
+			cx.checkExecution(count);
+		}
+		if (cx.instructionThreshold == 0) {
+			// only counting for metrics, drop invocation costs added on the way
+			cx.instructionCount = 0;
+			return;
+		}
+		cx.instructionCount += count;
 		if (cx.instructionCount > cx.instructionThreshold) {
 			cx.observeInstructionCount(cx.instructionCount);
 			cx.instructionCount = 0;
@@ -2436,6 +2542,12 @@ public final class Interpreter extends Icode implements Evaluator {
 		return InterpretedFunction.createFunction(cx, scope, itsData, staticSecurityDomain);
 	}
 
+	/**
+	 * Only remembers the innermost frame of each interpreter invocation and where it is.
+	 * Every other frame's position is recorded in the frame called from it, so the
+	 * line of each frame can be worked out later in {@link #getLinePC(RhinoException)},
+	 * for the few exceptions whose stack is ever looked at.
+	 */
 	@Override
 	public void captureStackInfo(Context cx, RhinoException ex) {
 		if (cx == null || cx.lastInterpreterFrame == null) {
@@ -2462,30 +2574,130 @@ public final class Interpreter extends Icode implements Evaluator {
 		}
 		array[array.length - 1] = (CallFrame) cx.lastInterpreterFrame;
 
+		// the innermost frames are the only ones that may move on before the stack is read
+		int[] topPC = new int[array.length];
+		for (int i = 0; i != array.length; ++i) {
+			topPC[i] = array[i].pcSourceLineStart;
+		}
+
+		ex.interpreterStackInfo = array;
+		ex.interpreterLineData = topPC;
+	}
+
+	/**
+	 * @return pc positions from all interpreter frames captured in ex, starting from the outermost frame
+	 */
+	private static int[] getLinePC(RhinoException ex) {
+		CallFrame[] array = (CallFrame[]) ex.interpreterStackInfo;
+		int[] topPC = ex.interpreterLineData;
+
 		int interpreterFrameCount = 0;
 		for (int i = 0; i != array.length; ++i) {
 			interpreterFrameCount += 1 + array[i].frameIndex;
 		}
 
 		int[] linePC = new int[interpreterFrameCount];
-		// Fill linePC with pc positions from all interpreter frames.
 		// Start from the most nested frame
 		int linePCIndex = interpreterFrameCount;
 		for (int i = array.length; i != 0; ) {
 			--i;
 			CallFrame frame = array[i];
+			int pc = topPC[i];
 			while (frame != null) {
 				--linePCIndex;
-				linePC[linePCIndex] = frame.pcSourceLineStart;
+				linePC[linePCIndex] = pc;
+				pc = frame.parentPcSourceLineStart;
 				frame = frame.parentFrame;
 			}
 		}
 		if (linePCIndex != 0) {
 			Kit.codeBug();
 		}
+		return linePC;
+	}
 
-		ex.interpreterStackInfo = array;
-		ex.interpreterLineData = linePC;
+	/**
+	 * Copies the function and current line of each frame on the stack of an interpreter
+	 * invocation, innermost first, for {@link ScriptProfiler}. The stack may be running on
+	 * another thread, so the result is only a best effort snapshot of it.
+	 *
+	 * @param lastInterpreterFrame the value of {@link Context#sampledInterpreterFrame}
+	 * @return number of frames copied, at most the length of the given arrays. Frames that don't
+	 * point at a line, e.g. because they were read while changing, are copied with line -1
+	 */
+	static int sampleFrames(Object lastInterpreterFrame, InterpreterData[] functions, int[] lines) {
+		CallFrame frame = (CallFrame) lastInterpreterFrame;
+		int pc = frame == null ? -1 : frame.pcSourceLineStart;
+		int depth = 0;
+
+		while (frame != null && depth < functions.length) {
+			InterpreterData idata = frame.idata;
+
+			if (idata == null) {
+				break;
+			}
+
+			byte[] iCode = idata.itsICode;
+
+			if (pc >= 1 && pc + 1 < iCode.length && iCode[pc - 1] == Icode_LINE) {
+				// pcSourceLineStart points at the operand of a LINE icode
+				lines[depth] = getIndex(iCode, pc);
+			} else {
+				lines[depth] = -1;
+			}
+
+			functions[depth] = idata;
+			depth++;
+			pc = frame.parentPcSourceLineStart;
+			frame = frame.parentFrame;
+		}
+
+		return depth;
+	}
+
+	/**
+	 * Recognizes compare functions written as {@code (a, b) => a - b} or {@code (a, b) => b - a},
+	 * so {@link NativeArray} can sort unboxed numbers without calling them.
+	 *
+	 * @return 1 if the function returns its first argument minus its second, -1 if it returns
+	 * the second minus the first, otherwise 0
+	 */
+	static int getSubtractionOrder(Object function) {
+		if (function instanceof ArrowFunction arrow) {
+			function = arrow.targetFunction;
+		}
+
+		if (!(function instanceof InterpretedFunction f)) {
+			return 0;
+		}
+
+		InterpreterData idata = f.idata;
+
+		if (idata.argCount != 2 || idata.itsNeedsActivation || idata.isES6Generator) {
+			return 0;
+		}
+
+		byte[] iCode = idata.itsICode;
+		int pc = 0;
+
+		while (pc < iCode.length && iCode[pc] == Icode_LINE) {
+			pc += 3;
+		}
+
+		if (iCode.length - pc != 6 || iCode[pc] != Icode_GETVAR1 || iCode[pc + 2] != Icode_GETVAR1 || iCode[pc + 4] != Token.SUB || iCode[pc + 5] != Token.RETURN) {
+			return 0;
+		}
+
+		int left = iCode[pc + 1];
+		int right = iCode[pc + 3];
+
+		if (left == 0 && right == 1) {
+			return 1;
+		} else if (left == 1 && right == 0) {
+			return -1;
+		}
+
+		return 0;
 	}
 
 	@Override
@@ -2507,19 +2719,21 @@ public final class Interpreter extends Icode implements Evaluator {
 		String lineSeparator = System.lineSeparator();
 
 		CallFrame[] array = (CallFrame[]) ex.interpreterStackInfo;
-		int[] linePC = ex.interpreterLineData;
+		int[] linePC = getLinePC(ex);
 		int arrayIndex = array.length;
 		int linePCIndex = linePC.length;
 		int offset = 0;
+		// without a Java stack there is nothing to interleave with, all script frames go after the first line
+		boolean javaStack = nativeStackTrace.contains(tag);
 		while (arrayIndex != 0) {
 			--arrayIndex;
-			int pos = nativeStackTrace.indexOf(tag, offset);
+			int pos = javaStack ? nativeStackTrace.indexOf(tag, offset) : offset;
 			if (pos < 0) {
 				break;
 			}
 
 			// Skip tag length
-			pos += tag.length();
+			pos += javaStack ? tag.length() : 0;
 			// Skip until the end of line
 			for (; pos != nativeStackTrace.length(); ++pos) {
 				char c = nativeStackTrace.charAt(pos);
@@ -2584,7 +2798,7 @@ public final class Interpreter extends Icode implements Evaluator {
 		List<ScriptStackElement[]> list = new ArrayList<>();
 
 		CallFrame[] array = (CallFrame[]) ex.interpreterStackInfo;
-		int[] linePC = ex.interpreterLineData;
+		int[] linePC = getLinePC(ex);
 		int arrayIndex = array.length;
 		int linePCIndex = linePC.length;
 		while (arrayIndex != 0) {
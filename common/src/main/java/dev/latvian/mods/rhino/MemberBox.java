@@ -8,7 +8,9 @@ package dev.latvian.mods.rhino;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
+import java.lang.reflect.GenericSignatureFormatError;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.MalformedParameterizedTypeException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -62,6 +64,7 @@ public final class MemberBox {
 	}
 
 	transient Class<?>[] argTypes;
+	private transient volatile NativeJavaObject.Converter[] argConverters;
 	transient Object delegateTo;
 	transient boolean vararg;
 	public transient Executable executable;
@@ -86,6 +89,30 @@ public final class MemberBox {
 		}
 	}
 
+	/**
+	 * Converters for {@link #argTypes}, resolved on the first call. Parameterized
+	 * list parameters get converters for their element type.
+	 */
+	NativeJavaObject.Converter[] argConverters() {
+		NativeJavaObject.Converter[] converters = argConverters;
+
+		if (converters == null) {
+			if (executable == null) {
+				converters = NativeJavaObject.getConverters(argTypes);
+			} else {
+				try {
+					converters = NativeJavaObject.getConverters(argTypes, executable.getGenericParameterTypes());
+				} catch (TypeNotPresentException | GenericSignatureFormatError | MalformedParameterizedTypeException ex) {
+					converters = NativeJavaObject.getConverters(argTypes);
+				}
+			}
+
+			argConverters = converters;
+		}
+
+		return converters;
+	}
+
 	Constructor<?> ctor() {
 		return (Constructor<?>) executable;
 	}
@@ -146,6 +173,22 @@ public final class MemberBox {
 	}
 
 	Object invoke(Object target, Object[] args, Context cx, Scriptable scope) {
+		ContextMetrics metrics = cx.metrics;
+
+		if (metrics == null) {
+			return invoke0(target, args, cx, scope);
+		}
+
+		long start = System.nanoTime();
+
+		try {
+			return invoke0(target, args, cx, scope);
+		} finally {
+			metrics.javaCall(this, System.nanoTime() - start);
+		}
+	}
+
+	private Object invoke0(Object target, Object[] args, Context cx, Scriptable scope) {
 		if (wrappedExecutable != null) {
 			try {
 				return wrappedExecutable.invoke(cx, scope, target, args);
@@ -187,6 +230,22 @@ public final class MemberBox {
 	}
 
 	Object newInstance(Object[] args, Context cx, Scriptable scope) {
+		ContextMetrics metrics = cx.metrics;
+
+		if (metrics == null) {
+			return newInstance0(args, cx, scope);
+		}
+
+		long start = System.nanoTime();
+
+		try {
+			return newInstance0(args, cx, scope);
+		} finally {
+			metrics.javaCall(this, System.nanoTime() - start);
+		}
+	}
+
+	private Object newInstance0(Object[] args, Context cx, Scriptable scope) {
 		if (wrappedExecutable != null) {
 			try {
 				return wrappedExecutable.construct(cx, scope, args);
@@ -103,6 +103,12 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 	 * The default capacity for <code>dense</code>.
 	 */
 	private static final int DEFAULT_INITIAL_CAPACITY = 10;
+	/**
+	 * Element kinds, see <code>elementKind</code>.
+	 */
+	private static final int OBJECT_ELEMENTS = 0;
+	private static final int INT_ELEMENTS = 1;
+	private static final int DOUBLE_ELEMENTS = 2;
 	/**
 	 * The factor to grow <code>dense</code> by.
 	 */
@@ -112,6 +118,11 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 	 * The maximum size of <code>dense</code> that will be allocated initially.
 	 */
 	private static int maximumInitialCapacity = 10000;
+	/**
+	 * Arrays at least this long are sorted on the common fork-join pool when sort is called
+	 * without a comparator, once their elements have been converted to strings.
+	 */
+	private static int parallelSortThreshold = 1 << 16;
 
 	public record StringLikeComparator(Context cx) implements Comparator<Object> {
 		@Override
@@ -122,6 +133,20 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		}
 	}
 
+	private record NumberSortKey(String key, double value) implements Comparable<NumberSortKey> {
+		@Override
+		public int compareTo(NumberSortKey o) {
+			return key.compareTo(o.key);
+		}
+	}
+
+	private record SortKey(String key, Object value) implements Comparable<SortKey> {
+		@Override
+		public int compareTo(SortKey o) {
+			return key.compareTo(o.key);
+		}
+	}
+
 	public record ElementComparator(Comparator<Object> child) implements Comparator<Object> {
 		@Override
 		public int compare(final Object x, final Object y) {
@@ -163,6 +188,18 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		NativeArray.maximumInitialCapacity = maximumInitialCapacity;
 	}
 
+	public static int getParallelSortThreshold() {
+		return parallelSortThreshold;
+	}
+
+	/**
+	 * @param parallelSortThreshold minimum length of arrays that are sorted in parallel,
+	 *                              {@link Integer#MAX_VALUE} to always sort on the calling thread
+	 */
+	public static void setParallelSortThreshold(int parallelSortThreshold) {
+		NativeArray.parallelSortThreshold = parallelSortThreshold;
+	}
+
 	private static long toArrayIndex(Context cx, Object id) {
 		if (id instanceof String) {
 			return toArrayIndex(cx, (String) id);
@@ -510,11 +547,9 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 					if (i != 0) {
 						sb.append(separator);
 					}
-					if (i < na.dense.length) {
-						Object temp = na.dense[i];
-						if (temp != null && temp != Undefined.instance && temp != NOT_FOUND) {
-							sb.append(ScriptRuntime.toString(cx, temp));
-						}
+					Object temp = na.getDense(i);
+					if (temp != null && temp != Undefined.instance && temp != NOT_FOUND) {
+						sb.append(ScriptRuntime.toString(cx, temp));
 					}
 				}
 				return sb.toString();
@@ -555,7 +590,23 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		Scriptable o = ScriptRuntime.toObject(cx, scope, thisObj);
 
 		if (o instanceof NativeArray na) {
-			if (na.denseOnly) {
+			if (na.elementKind == INT_ELEMENTS) {
+				int[] values = na.denseInts;
+				for (int i = 0, j = ((int) na.length) - 1; i < j; i++, j--) {
+					int temp = values[i];
+					values[i] = values[j];
+					values[j] = temp;
+				}
+				return o;
+			} else if (na.elementKind == DOUBLE_ELEMENTS) {
+				double[] values = na.denseDoubles;
+				for (int i = 0, j = ((int) na.length) - 1; i < j; i++, j--) {
+					double temp = values[i];
+					values[i] = values[j];
+					values[j] = temp;
+				}
+				return o;
+			} else if (na.denseOnly) {
 				for (int i = 0, j = ((int) na.length) - 1; i < j; i++, j--) {
 					Object temp = na.dense[i];
 					na.dense[i] = na.dense[j];
@@ -585,25 +636,38 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 
 		final Comparator<Object> comparator;
 		if (args.length > 0 && Undefined.instance != args[0]) {
+			// leave calls in place while they are being counted
+			if (o instanceof NativeArray na && na.elementKind != OBJECT_ELEMENTS && cx.metrics == null && cx.instructionThreshold == 0) {
+				int order = Interpreter.getSubtractionOrder(args[0]);
+
+				if (order != 0 && na.sortDenseNumbers(order)) {
+					return o;
+				}
+			}
+
 			final Callable jsCompareFunction = ScriptRuntime.getValueFunctionAndThis(cx, args[0]);
 			final Scriptable funThis = ScriptRuntime.lastStoredScriptable(cx);
-			final Object[] cmpBuf = new Object[2]; // Buffer for cmp arguments
+			final RepeatedCall call = new RepeatedCall(cx, scope, jsCompareFunction, funThis, 2);
+			final Object[] cmpBuf = call.args; // Buffer for cmp arguments
 			comparator = new ElementComparator((x, y) -> {
 				// This comparator is invoked only for non-undefined objects
 				cmpBuf[0] = x;
 				cmpBuf[1] = y;
-				Object ret = jsCompareFunction.call(cx, scope, funThis, cmpBuf);
+				Object ret = call.call(cx);
 				double d = ScriptRuntime.toNumber(cx, ret);
-				int cmp = Double.compare(d, 0);
-				if (cmp < 0) {
+				// -0 and NaN mean equal, keeping the original order
+				if (d < 0) {
 					return -1;
-				} else if (cmp > 0) {
+				} else if (d > 0) {
 					return +1;
 				}
 				return 0;
 			});
+		} else if (o instanceof NativeArray na && na.elementKind != OBJECT_ELEMENTS) {
+			na.sortDenseNumbers(cx);
+			return o;
 		} else {
-			comparator = new ElementComparator(new StringLikeComparator(cx));
+			comparator = null;
 		}
 
 		long llength = getLengthProperty(cx, o, false);
@@ -618,23 +682,160 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			working[i] = getRawElem(o, i, cx);
 		}
 
-		Sorting.get().hybridSort(working, comparator);
+		if (comparator == null) {
+			sortByStrings(cx, working);
+		} else {
+			Sorting.get().timSort(working, comparator);
+		}
 
 		// copy the working array back into thisObj
-		for (int i = 0; i < length; ++i) {
-			setRawElem(cx, o, i, working[i]);
+		if (o instanceof NativeArray na && na.elementKind != OBJECT_ELEMENTS && na.length == length) {
+			// numbers sorted with a comparator go straight back into unboxed storage
+			for (int i = 0; i < length; ++i) {
+				na.setDense(i, working[i]);
+			}
+		} else {
+			for (int i = 0; i < length; ++i) {
+				setRawElem(cx, o, i, working[i]);
+			}
 		}
 
 		return o;
 	}
 
+	/**
+	 * Default sort order, where elements compare as strings. Each element is converted
+	 * once, then the strings are sorted. Undefined goes after them and holes go last.
+	 */
+	private static void sortByStrings(Context cx, Object[] working) {
+		int count = 0;
+		int undefinedCount = 0;
+
+		for (Object value : working) {
+			if (value == Undefined.instance) {
+				undefinedCount++;
+			} else if (value != NOT_FOUND) {
+				count++;
+			}
+		}
+
+		int i = 0;
+
+		// a single element is never compared, so it isn't converted either
+		if (count > 1) {
+			SortKey[] keys = new SortKey[count];
+
+			for (Object value : working) {
+				if (value != Undefined.instance && value != NOT_FOUND) {
+					keys[i++] = new SortKey(ScriptRuntime.toString(cx, value), value);
+				}
+			}
+
+			sortKeys(keys);
+
+			for (i = 0; i < count; i++) {
+				working[i] = keys[i].value;
+			}
+		} else {
+			for (Object value : working) {
+				if (value != Undefined.instance && value != NOT_FOUND) {
+					working[i++] = value;
+				}
+			}
+		}
+
+		Arrays.fill(working, i, i + undefinedCount, Undefined.instance);
+		Arrays.fill(working, i + undefinedCount, working.length, NOT_FOUND);
+	}
+
+	private static <T extends Comparable<? super T>> void sortKeys(T[] keys) {
+		if (keys.length >= parallelSortThreshold) {
+			Arrays.parallelSort(keys);
+		} else {
+			Arrays.sort(keys);
+		}
+	}
+
+	/**
+	 * Default sort of unboxed elements. Each number is converted to a string once
+	 * instead of on every comparison.
+	 */
+	private void sortDenseNumbers(Context cx) {
+		int len = (int) length;
+		NumberSortKey[] keys = new NumberSortKey[len];
+
+		if (elementKind == INT_ELEMENTS) {
+			for (int i = 0; i < len; i++) {
+				keys[i] = new NumberSortKey(Integer.toString(denseInts[i]), denseInts[i]);
+			}
+
+			sortKeys(keys);
+
+			for (int i = 0; i < len; i++) {
+				denseInts[i] = (int) keys[i].value;
+			}
+		} else {
+			for (int i = 0; i < len; i++) {
+				keys[i] = new NumberSortKey(ScriptRuntime.toString(cx, denseDoubles[i]), denseDoubles[i]);
+			}
+
+			sortKeys(keys);
+
+			for (int i = 0; i < len; i++) {
+				denseDoubles[i] = keys[i].value;
+			}
+		}
+	}
+
+	/**
+	 * Sort of unboxed elements with a compare function that subtracts them, in ascending
+	 * order if the given order is positive and descending if it is negative. Returns false
+	 * without sorting if there are NaN or -0 elements, which that function reports as equal
+	 * to others that {@link Arrays#sort(double[])} orders.
+	 */
+	private boolean sortDenseNumbers(int order) {
+		int len = (int) length;
+
+		if (elementKind == INT_ELEMENTS) {
+			Arrays.sort(denseInts, 0, len);
+
+			if (order < 0) {
+				for (int i = 0, j = len - 1; i < j; i++, j--) {
+					int temp = denseInts[i];
+					denseInts[i] = denseInts[j];
+					denseInts[j] = temp;
+				}
+			}
+		} else {
+			for (int i = 0; i < len; i++) {
+				double v = denseDoubles[i];
+
+				if (v != v || (v == 0.0 && 1.0 / v < 0.0)) {
+					return false;
+				}
+			}
+
+			Arrays.sort(denseDoubles, 0, len);
+
+			if (order < 0) {
+				for (int i = 0, j = len - 1; i < j; i++, j--) {
+					double temp = denseDoubles[i];
+					denseDoubles[i] = denseDoubles[j];
+					denseDoubles[j] = temp;
+				}
+			}
+		}
+
+		return true;
+	}
+
 	private static Object js_push(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
 		Scriptable o = ScriptRuntime.toObject(cx, scope, thisObj);
 
 		if (o instanceof NativeArray na) {
 			if (na.denseOnly && na.ensureCapacity((int) na.length + args.length)) {
 				for (Object arg : args) {
-					na.dense[(int) na.length++] = arg;
+					na.setDense((int) na.length++, arg);
 				}
 				return ScriptRuntime.wrapNumber(na.length);
 			}
@@ -655,9 +856,12 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		Object result;
 		if (o instanceof NativeArray na) {
 			if (na.denseOnly && na.length > 0) {
+				// read before shrinking, unboxed kinds have nothing past the length
+				result = na.getDense((int) na.length - 1);
 				na.length--;
-				result = na.dense[(int) na.length];
-				na.dense[(int) na.length] = NOT_FOUND;
+				if (na.elementKind == OBJECT_ELEMENTS) {
+					na.dense[(int) na.length] = NOT_FOUND;
+				}
 				return result;
 			}
 		}
@@ -686,10 +890,12 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 
 		if (o instanceof NativeArray na) {
 			if (na.denseOnly && na.length > 0) {
+				Object result = na.getDense(0);
 				na.length--;
-				Object result = na.dense[0];
-				System.arraycopy(na.dense, 1, na.dense, 0, (int) na.length);
-				na.dense[(int) na.length] = NOT_FOUND;
+				na.moveDense(1, 0, (int) na.length);
+				if (na.elementKind == OBJECT_ELEMENTS) {
+					na.dense[(int) na.length] = NOT_FOUND;
+				}
 				return result == NOT_FOUND ? Undefined.instance : result;
 			}
 		}
@@ -727,9 +933,11 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 
 		if (o instanceof NativeArray na) {
 			if (na.denseOnly && na.ensureCapacity((int) na.length + args.length)) {
-				System.arraycopy(na.dense, 0, na.dense, args.length, (int) na.length);
-				System.arraycopy(args, 0, na.dense, 0, args.length);
+				na.moveDense(0, args.length, (int) na.length);
 				na.length += args.length;
+				for (int i = 0; i < args.length; i++) {
+					na.setDense(i, args[i]);
+				}
 				return ScriptRuntime.wrapNumber(na.length);
 			}
 		}
@@ -801,7 +1009,9 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			if (denseMode) {
 				int intLen = (int) (end - begin);
 				Object[] copy = new Object[intLen];
-				System.arraycopy(na.dense, (int) begin, copy, 0, intLen);
+				for (int i = 0; i < intLen; i++) {
+					copy[i] = na.getDense((int) begin + i);
+				}
 				result = cx.newArray(scope, copy);
 			} else {
 				Scriptable resultArray = cx.newArray(scope, 0);
@@ -822,14 +1032,14 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		/* Find the direction (up or down) to copy and make way for argv. */
 		long delta = argc - count;
 		if (denseMode && length + delta < Integer.MAX_VALUE && na.ensureCapacity((int) (length + delta))) {
-			System.arraycopy(na.dense, (int) end, na.dense, (int) (begin + argc), (int) (length - end));
-			if (argc > 0) {
-				System.arraycopy(args, 2, na.dense, (int) begin, argc);
-			}
-			if (delta < 0) {
+			na.moveDense((int) end, (int) (begin + argc), (int) (length - end));
+			if (delta < 0 && na.elementKind == OBJECT_ELEMENTS) {
 				Arrays.fill(na.dense, (int) (length + delta), (int) length, NOT_FOUND);
 			}
 			na.length = length + delta;
+			for (int i = 0; i < argc; i++) {
+				na.setDense((int) begin + i, args[i + 2]);
+			}
 			return result;
 		}
 
@@ -889,7 +1099,20 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 				if (denseArg.denseOnly) {
 					// Now we can optimize
 					denseResult.ensureCapacity((int) newlen);
-					System.arraycopy(denseArg.dense, 0, denseResult.dense, (int) offset, (int) srclen);
+					if (denseResult.elementKind != OBJECT_ELEMENTS) {
+						if (denseResult.length != offset) {
+							denseResult.toObjectElements();
+						} else {
+							denseResult.length = newlen;
+						}
+					}
+					if (denseArg.elementKind == OBJECT_ELEMENTS && denseResult.elementKind == OBJECT_ELEMENTS) {
+						System.arraycopy(denseArg.dense, 0, denseResult.dense, (int) offset, (int) srclen);
+					} else {
+						for (int i = 0; i < srclen; i++) {
+							denseResult.setDense((int) offset + i, denseArg.getDense(i));
+						}
+					}
 					return newlen;
 				}
 				// We could also optimize here if we are copying to a dense target from a non-dense
@@ -957,6 +1180,19 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			}
 		}
 
+		if (o instanceof NativeArray na && na.elementKind != OBJECT_ELEMENTS && result instanceof NativeArray copy && copy.elementKind == INT_ELEMENTS && begin < end) {
+			// no holes, so the range can be copied unboxed
+			if (na.elementKind == INT_ELEMENTS) {
+				copy.denseInts = Arrays.copyOfRange(na.denseInts, (int) begin, (int) end);
+			} else {
+				copy.elementKind = DOUBLE_ELEMENTS;
+				copy.denseInts = null;
+				copy.denseDoubles = Arrays.copyOfRange(na.denseDoubles, (int) begin, (int) end);
+			}
+			copy.length = end - begin;
+			return result;
+		}
+
 		for (long slot = begin; slot < end; slot++) {
 			Object temp = getRawElem(o, slot, cx);
 			if (temp != NOT_FOUND) {
@@ -1016,10 +1252,29 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			}
 		}
 		if (o instanceof NativeArray na) {
-			if (na.denseOnly) {
+			if (na.elementKind != OBJECT_ELEMENTS && compareTo instanceof Double d) {
+				// unboxed elements are always present, and NaN never matches
+				double value = d;
+				if (na.elementKind == INT_ELEMENTS) {
+					int[] values = na.denseInts;
+					for (int i = (int) start; i < length; i++) {
+						if (values[i] == value) {
+							return (long) i;
+						}
+					}
+				} else {
+					double[] values = na.denseDoubles;
+					for (int i = (int) start; i < length; i++) {
+						if (values[i] == value) {
+							return (long) i;
+						}
+					}
+				}
+				return NEGATIVE_ONE;
+			} else if (na.denseOnly) {
 				Scriptable proto = na.getPrototype(cx);
 				for (int i = (int) start; i < length; i++) {
-					Object val = na.dense[i];
+					Object val = na.getDense(i);
 					if (val == NOT_FOUND && proto != null) {
 						val = getProperty(proto, i, cx);
 					}
@@ -1071,10 +1326,29 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			}
 		}
 		if (o instanceof NativeArray na) {
-			if (na.denseOnly) {
+			if (na.elementKind != OBJECT_ELEMENTS && compareTo instanceof Double d) {
+				// unboxed elements are always present, and NaN never matches
+				double value = d;
+				if (na.elementKind == INT_ELEMENTS) {
+					int[] values = na.denseInts;
+					for (int i = (int) start; i >= 0; i--) {
+						if (values[i] == value) {
+							return (long) i;
+						}
+					}
+				} else {
+					double[] values = na.denseDoubles;
+					for (int i = (int) start; i >= 0; i--) {
+						if (values[i] == value) {
+							return (long) i;
+						}
+					}
+				}
+				return NEGATIVE_ONE;
+			} else if (na.denseOnly) {
 				Scriptable proto = na.getPrototype(cx);
 				for (int i = (int) start; i >= 0; i--) {
-					Object val = na.dense[i];
+					Object val = na.getDense(i);
 					if (val == NOT_FOUND && proto != null) {
 						val = getProperty(proto, i, cx);
 					}
@@ -1125,7 +1399,7 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			if (na.denseOnly) {
 				Scriptable proto = na.getPrototype(cx);
 				for (int i = (int) k; i < len; i++) {
-					Object elementK = na.dense[i];
+					Object elementK = na.getDense(i);
 					if (elementK == NOT_FOUND && proto != null) {
 						elementK = getProperty(proto, i, cx);
 					}
@@ -1231,7 +1505,7 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		if ((o instanceof NativeArray na) && (count <= Integer.MAX_VALUE)) {
 			if (na.denseOnly) {
 				for (; count > 0; count--) {
-					na.dense[(int) to] = na.dense[(int) from];
+					na.setDense((int) to, na.getDense((int) from));
 					from += direction;
 					to += direction;
 				}
@@ -1297,9 +1571,10 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			int resultLength = id == Id_map ? (int) length : 0;
 			array = cx.newArray(scope, resultLength);
 		}
+		RepeatedCall call = new RepeatedCall(cx, parent, f, thisArg, 3);
+		Object[] innerArgs = call.args;
 		long j = 0;
 		for (long i = 0; i < length; i++) {
-			Object[] innerArgs = new Object[3];
 			Object elem = getRawElem(o, i, cx);
 			if (elem == NOT_FOUND) {
 				if (id == Id_find || id == Id_findIndex) {
@@ -1309,9 +1584,11 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 				}
 			}
 			innerArgs[0] = elem;
-			innerArgs[1] = i;
-			innerArgs[2] = o;
-			Object result = f.call(cx, parent, thisArg, innerArgs);
+			if (call.argCount > 1) {
+				call.setNumber(1, i);
+				innerArgs[2] = o;
+			}
+			Object result = call.call(cx);
 			switch (id) {
 				case Id_every:
 					if (!ScriptRuntime.toBoolean(cx, result)) {
@@ -1320,7 +1597,7 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 					break;
 				case Id_filter:
 					if (ScriptRuntime.toBoolean(cx, result)) {
-						defineElem(cx, array, j++, innerArgs[0]);
+						defineElem(cx, array, j++, elem);
 					}
 					break;
 				case Id_forEach:
@@ -1369,6 +1646,8 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		// hack to serve both reduce and reduceRight with the same loop
 		boolean movingLeft = id == Id_reduce;
 		Object value = args.length > 1 ? args[1] : NOT_FOUND;
+		RepeatedCall call = new RepeatedCall(cx, parent, f, parent, 4);
+		Object[] innerArgs = call.args;
 		for (long i = 0; i < length; i++) {
 			long index = movingLeft ? i : (length - 1 - i);
 			Object elem = getRawElem(o, index, cx);
@@ -1379,8 +1658,13 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 				// no initial value passed, use first element found as inital value
 				value = elem;
 			} else {
-				Object[] innerArgs = {value, elem, index, o};
-				value = f.call(cx, parent, parent, innerArgs);
+				innerArgs[0] = value;
+				innerArgs[1] = elem;
+				if (call.argCount > 2) {
+					call.setNumber(2, index);
+					innerArgs[3] = o;
+				}
+				value = call.call(cx);
 			}
 		}
 		if (value == NOT_FOUND) {
@@ -1394,7 +1678,7 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		return o instanceof NativeJavaList || o instanceof List || o instanceof Scriptable s && "Array".equals(s.getClassName());
 	}
 
-	private final Context localContext;
+	final Context localContext;
 
 	/**
 	 * Internal representation of the JavaScript array's length property.
@@ -1410,14 +1694,27 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 	 */
 	private Object[] dense;
 	/**
-	 * True if all numeric properties are stored in <code>dense</code>.
+	 * True if all numeric properties are stored in <code>dense</code>,
+	 * <code>denseInts</code> or <code>denseDoubles</code>.
 	 */
 	private boolean denseOnly;
+	/**
+	 * Which array holds the dense elements. Arrays that only ever held numbers and have no holes
+	 * keep them unboxed in <code>denseInts</code> or <code>denseDoubles</code>, where all elements
+	 * below <code>length</code> are present. Storing anything else, or leaving a hole, moves
+	 * the elements to <code>dense</code> for good.
+	 */
+	private int elementKind;
+	private int[] denseInts;
+	private double[] denseDoubles;
 
 	public NativeArray(Context cx, long lengthArg) {
 		localContext = cx;
 		denseOnly = lengthArg <= maximumInitialCapacity;
-		if (denseOnly) {
+		if (lengthArg == 0) {
+			elementKind = INT_ELEMENTS;
+			denseInts = new int[DEFAULT_INITIAL_CAPACITY];
+		} else if (denseOnly) {
 			int intLength = (int) lengthArg;
 			if (intLength < DEFAULT_INITIAL_CAPACITY) {
 				intLength = DEFAULT_INITIAL_CAPACITY;
@@ -1431,8 +1728,124 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 	public NativeArray(Context cx, Object[] array) {
 		localContext = cx;
 		denseOnly = true;
-		dense = array;
 		length = array.length;
+		elementKind = INT_ELEMENTS;
+
+		for (Object value : array) {
+			if (!(value instanceof Double d)) {
+				elementKind = OBJECT_ELEMENTS;
+				break;
+			} else if (!isIntElement(d)) {
+				elementKind = DOUBLE_ELEMENTS;
+			}
+		}
+
+		if (elementKind == INT_ELEMENTS) {
+			denseInts = new int[array.length];
+			for (int i = 0; i < array.length; i++) {
+				denseInts[i] = (int) (double) (Double) array[i];
+			}
+		} else if (elementKind == DOUBLE_ELEMENTS) {
+			denseDoubles = new double[array.length];
+			for (int i = 0; i < array.length; i++) {
+				denseDoubles[i] = (Double) array[i];
+			}
+		} else {
+			dense = array;
+		}
+	}
+
+	private static boolean isIntElement(double value) {
+		// -0 has to stay a double
+		return (int) value == value && (value != 0D || Double.doubleToRawLongBits(value) == 0L);
+	}
+
+	private int getDenseCapacity() {
+		return switch (elementKind) {
+			case INT_ELEMENTS -> denseInts.length;
+			case DOUBLE_ELEMENTS -> denseDoubles.length;
+			default -> dense.length;
+		};
+	}
+
+	/**
+	 * Reads a dense element, boxing unboxed ones. Returns {@link #NOT_FOUND} for holes and
+	 * indices past the dense storage.
+	 */
+	private Object getDense(int index) {
+		return switch (elementKind) {
+			case INT_ELEMENTS -> index < length ? Double.valueOf(denseInts[index]) : NOT_FOUND;
+			case DOUBLE_ELEMENTS -> index < length ? ScriptRuntime.wrapNumber(denseDoubles[index]) : NOT_FOUND;
+			default -> index < dense.length ? dense[index] : NOT_FOUND;
+		};
+	}
+
+	/**
+	 * Stores a dense element below the dense capacity, moving to a more general element kind
+	 * when the value doesn't fit the current one. Unboxed kinds need the index to be below
+	 * <code>length</code>.
+	 */
+	private void setDense(int index, Object value) {
+		if (elementKind != OBJECT_ELEMENTS && value instanceof Double d) {
+			double v = d;
+
+			if (elementKind == INT_ELEMENTS) {
+				if (isIntElement(v)) {
+					denseInts[index] = (int) v;
+					return;
+				}
+
+				toDoubleElements();
+			}
+
+			denseDoubles[index] = v;
+			return;
+		}
+
+		toObjectElements();
+		dense[index] = value;
+	}
+
+	/**
+	 * Moves dense elements within the dense storage, like {@link System#arraycopy}.
+	 */
+	private void moveDense(int from, int to, int count) {
+		switch (elementKind) {
+			case INT_ELEMENTS -> System.arraycopy(denseInts, from, denseInts, to, count);
+			case DOUBLE_ELEMENTS -> System.arraycopy(denseDoubles, from, denseDoubles, to, count);
+			default -> System.arraycopy(dense, from, dense, to, count);
+		}
+	}
+
+	private void toDoubleElements() {
+		double[] values = new double[denseInts.length];
+
+		for (int i = 0; i < length; i++) {
+			values[i] = denseInts[i];
+		}
+
+		elementKind = DOUBLE_ELEMENTS;
+		denseDoubles = values;
+		denseInts = null;
+	}
+
+	private void toObjectElements() {
+		if (elementKind == OBJECT_ELEMENTS) {
+			return;
+		}
+
+		Object[] values = new Object[Math.max(getDenseCapacity(), DEFAULT_INITIAL_CAPACITY)];
+		int len = (int) length;
+
+		for (int i = 0; i < len; i++) {
+			values[i] = getDense(i);
+		}
+
+		Arrays.fill(values, len, values.length, NOT_FOUND);
+		elementKind = OBJECT_ELEMENTS;
+		dense = values;
+		denseInts = null;
+		denseDoubles = null;
 	}
 
 	@Override
@@ -1817,11 +2230,23 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		}
 	}
 
+	/**
+	 * Reads an element for conversion to Java, straight from the dense storage
+	 * when the array has no sparse elements. Holes read as undefined.
+	 */
+	Object getElement(Context cx, int index) {
+		Object value = denseOnly ? getDense(index) : get(cx, index, this);
+		return value == NOT_FOUND ? Undefined.instance : value;
+	}
+
 	@Override
 	public Object get(Context cx, int index, Scriptable start) {
 		if (!denseOnly && isGetterOrSetter(null, index, false)) {
 			return super.get(cx, index, start);
 		}
+		if (elementKind != OBJECT_ELEMENTS) {
+			return 0 <= index && index < length ? getDense(index) : super.get(cx, index, start);
+		}
 		if (dense != null && 0 <= index && index < dense.length) {
 			return dense[index];
 		}
@@ -1833,6 +2258,9 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 		if (!denseOnly && isGetterOrSetter(null, index, false)) {
 			return super.has(cx, index, start);
 		}
+		if (elementKind != OBJECT_ELEMENTS) {
+			return 0 <= index && index < length || super.has(cx, index, start);
+		}
 		if (dense != null && 0 <= index && index < dense.length) {
 			return dense[index] != NOT_FOUND;
 		}
@@ -1846,6 +2274,7 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			// If the object is sealed, super will throw exception
 			long index = toArrayIndex(cx, id);
 			if (index >= length) {
+				toObjectElements();
 				length = index + 1;
 				denseOnly = false;
 			}
@@ -1853,22 +2282,42 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 	}
 
 	private boolean ensureCapacity(int capacity) {
-		if (capacity > dense.length) {
+		int current = getDenseCapacity();
+		if (capacity > current) {
 			if (capacity > MAX_PRE_GROW_SIZE) {
+				toObjectElements();
 				denseOnly = false;
 				return false;
 			}
-			capacity = Math.max(capacity, (int) (dense.length * GROW_FACTOR));
-			Object[] newDense = new Object[capacity];
-			System.arraycopy(dense, 0, newDense, 0, dense.length);
-			Arrays.fill(newDense, dense.length, newDense.length, NOT_FOUND);
-			dense = newDense;
+			capacity = Math.max(capacity, (int) (current * GROW_FACTOR));
+			if (elementKind == INT_ELEMENTS) {
+				denseInts = Arrays.copyOf(denseInts, capacity);
+			} else if (elementKind == DOUBLE_ELEMENTS) {
+				denseDoubles = Arrays.copyOf(denseDoubles, capacity);
+			} else {
+				Object[] newDense = new Object[capacity];
+				System.arraycopy(dense, 0, newDense, 0, dense.length);
+				Arrays.fill(newDense, dense.length, newDense.length, NOT_FOUND);
+				dense = newDense;
+			}
 		}
 		return true;
 	}
 
 	@Override
 	public void put(Context cx, int index, Scriptable start, Object value) {
+		if (elementKind != OBJECT_ELEMENTS && start == this && !isSealed(cx) && 0 <= index) {
+			if (index < length) {
+				setDense(index, value);
+				return;
+			} else if (index == length && isExtensible() && ensureCapacity(index + 1)) {
+				length = (long) index + 1;
+				setDense(index, value);
+				return;
+			}
+			// holes and non-extensible arrays are handled with boxed elements
+			toObjectElements();
+		}
 		if (start == this && !isSealed(cx) && dense != null && 0 <= index && (denseOnly || !isGetterOrSetter(null, index, true))) {
 			if (!isExtensible() && this.length <= index) {
 				return;
@@ -1898,6 +2347,9 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 
 	@Override
 	public void delete(Context cx, int index) {
+		if (elementKind != OBJECT_ELEMENTS && 0 <= index && index < length && !isSealed(cx)) {
+			toObjectElements();
+		}
 		if (dense != null && 0 <= index && index < dense.length && !isSealed(cx) && (denseOnly || !isGetterOrSetter(null, index, true))) {
 			dense[index] = NOT_FOUND;
 		} else {
@@ -1908,6 +2360,15 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 	@Override
 	public Object[] getIds(Context cx, boolean nonEnumerable, boolean getSymbols) {
 		Object[] superIds = super.getIds(cx, nonEnumerable, getSymbols);
+		if (elementKind != OBJECT_ELEMENTS) {
+			int len = (int) length;
+			Object[] ids = new Object[len + superIds.length];
+			for (int i = 0; i < len; i++) {
+				ids[i] = i;
+			}
+			System.arraycopy(superIds, 0, ids, len, superIds.length);
+			return ids;
+		}
 		if (dense == null) {
 			return superIds;
 		}
@@ -1970,6 +2431,9 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 
 	@Override
 	public int getAttributes(Context cx, int index) {
+		if (elementKind != OBJECT_ELEMENTS && index >= 0 && index < length) {
+			return EMPTY;
+		}
 		if (dense != null && index >= 0 && index < dense.length && dense[index] != NOT_FOUND) {
 			return EMPTY;
 		}
@@ -1978,6 +2442,12 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 
 	@Override
 	protected ScriptableObject getOwnPropertyDescriptor(Context cx, Object id) {
+		if (elementKind != OBJECT_ELEMENTS) {
+			int index = toDenseIndex(cx, id);
+			if (0 <= index && index < length) {
+				return defaultIndexPropertyDescriptor(getDense(index), cx);
+			}
+		}
 		if (dense != null) {
 			int index = toDenseIndex(cx, id);
 			if (0 <= index && index < dense.length && dense[index] != NOT_FOUND) {
@@ -1990,6 +2460,7 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 
 	@Override
 	protected void defineOwnProperty(Context cx, Object id, ScriptableObject desc, boolean checkValid) {
+		toObjectElements();
 		if (dense != null) {
 			Object[] values = dense;
 			dense = null;
@@ -2029,6 +2500,13 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 			throw ScriptRuntime.rangeError(cx, msg);
 		}
 
+		if (elementKind != OBJECT_ELEMENTS) {
+			if (longVal <= length) {
+				length = longVal;
+				return;
+			}
+			toObjectElements();
+		}
 		if (denseOnly) {
 			if (longVal < length) {
 				// downcast okay because denseOnly
@@ -2084,6 +2562,8 @@ public class NativeArray extends IdScriptableObject implements List, DataObject
 	void setDenseOnly(boolean denseOnly) {
 		if (denseOnly && !this.denseOnly) {
 			throw new IllegalArgumentException();
+		} else if (!denseOnly) {
+			toObjectElements();
 		}
 		this.denseOnly = denseOnly;
 	}
@@ -0,0 +1,87 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package dev.latvian.mods.rhino;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A read-only {@link java.util.List} view of a JS array, passed to Java methods
+ * that take a parameterized List, Collection or Iterable.
+ * <p>
+ * Nothing is copied up front. Each element is converted to the element type when
+ * it is first read and the result is kept until the script replaces that element,
+ * so the view always reflects the current contents of the array. Conversion
+ * errors are reported when the offending element is read. Elements are read and
+ * converted with the Context of the array, not the one that created the view,
+ * so a view kept by Java code doesn't hold on to that Context.
+ *
+ * @param <T> element type
+ */
+public final class NativeArrayView<T> extends AbstractList<T> implements RandomAccess {
+	private static final Object[] EMPTY = new Object[0];
+
+	private final NativeArray array;
+	private final NativeJavaObject.Converter elementConverter;
+	private Object[] sources;
+	private Object[] values;
+
+	NativeArrayView(NativeArray array, NativeJavaObject.Converter elementConverter) {
+		this.array = array;
+		this.elementConverter = elementConverter;
+		this.sources = EMPTY;
+		this.values = EMPTY;
+	}
+
+	/**
+	 * @return the JS array this is a view of
+	 */
+	public NativeArray getArray() {
+		return array;
+	}
+
+	@Override
+	public int size() {
+		return array.size();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		int size = array.size();
+
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		Context cx = array.localContext;
+		Object source = array.getElement(cx, index);
+
+		if (source == Undefined.instance || source == null) {
+			return null;
+		} else if (index < sources.length && isSameSource(sources[index], source)) {
+			return (T) values[index];
+		}
+
+		Object value = elementConverter.convert(cx, source);
+
+		if (index >= sources.length) {
+			int capacity = Math.max(size, index + 1);
+			sources = Arrays.copyOf(sources, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		values[index] = value;
+		sources[index] = source;
+		return (T) value;
+	}
+
+	private static boolean isSameSource(Object cached, Object source) {
+		// elements of number arrays are boxed again on every read, so numbers compare by value
+		return cached == source || source instanceof Double d && d.equals(cached);
+	}
+}
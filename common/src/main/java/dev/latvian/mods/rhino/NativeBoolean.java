@@ -88,8 +88,18 @@ final class NativeBoolean extends IdScriptableObject {
 		if (!(thisObj instanceof NativeBoolean)) {
 			throw incompatibleCallError(f, cx);
 		}
-		boolean value = ((NativeBoolean) thisObj).booleanValue;
+		return execPrototypeCall(id, ((NativeBoolean) thisObj).booleanValue);
+	}
+
+	@Override
+	public Object execIdCallWithPrimitiveThis(IdFunctionObject f, Context cx, Scriptable scope, Object thisValue, Object[] args) {
+		if (thisValue instanceof Boolean b && f.hasTag(BOOLEAN_TAG) && f.methodId() > Id_constructor) {
+			return execPrototypeCall(f.methodId(), b);
+		}
+		return execIdCall(f, cx, scope, ScriptRuntime.toObject(cx, scope, thisValue), args);
+	}
 
+	private static Object execPrototypeCall(int id, boolean value) {
 		switch (id) {
 
 			case Id_toString:
@@ -6,10 +6,15 @@
 
 package dev.latvian.mods.rhino;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
 
 /**
  * This class implements the Date native object.
@@ -94,13 +99,57 @@ final class NativeDate extends IdScriptableObject {
 	private static final int MAX_PROTOTYPE_ID = Id_toJSON;
 	private static final int Id_toGMTString = Id_toUTCString; // Alias, see Ecma B.2.6
 	/* cached values */
-	private static final TimeZone thisTimeZone = TimeZone.getDefault();
-	private static final double LocalTZA = thisTimeZone.getRawOffset();
-	//not thread safe
-	private static final DateFormat timeZoneFormatter = new SimpleDateFormat("zzz");
-	private static final DateFormat localeDateTimeFormatter = new SimpleDateFormat("MMMM d, yyyy h:mm:ss a z");
-	private static final DateFormat localeDateFormatter = new SimpleDateFormat("MMMM d, yyyy");
-	private static final DateFormat localeTimeFormatter = new SimpleDateFormat("h:mm:ss a z");
+	private static final ZoneId thisTimeZone = ZoneId.systemDefault();
+	private static final ZoneRules thisTimeZoneRules = thisTimeZone.getRules();
+	private static final double LocalTZA = thisTimeZoneRules.getStandardOffset(Instant.now()).getTotalSeconds() * msPerSecond;
+	// immutable, so they can be shared between threads
+	private static final DateTimeFormatter timeZoneFormatter = DateTimeFormatter.ofPattern("zzz").withZone(thisTimeZone);
+	// the year is appended by hand, "yyyy" would print years past 9999 with a '+' sign
+	private static final DateTimeFormatter localeDateFormatter = new DateTimeFormatterBuilder().appendPattern("MMMM d, ").appendValue(ChronoField.YEAR_OF_ERA, 4, 10, SignStyle.NORMAL).toFormatter().withZone(thisTimeZone);
+	private static final DateTimeFormatter localeTimeFormatter = DateTimeFormatter.ofPattern("h:mm:ss a z").withZone(thisTimeZone);
+	private static final DateTimeFormatter localeDateTimeFormatter = new DateTimeFormatterBuilder().append(localeDateFormatter).appendLiteral(' ').append(localeTimeFormatter).toFormatter().withZone(thisTimeZone);
+	// daylight saving periods of recently used years, indexed by year & DST_CACHE_MASK
+	private static final int DST_CACHE_MASK = 63;
+	private static final DaylightSavingYear[] dstCache = new DaylightSavingYear[DST_CACHE_MASK + 1];
+
+	/**
+	 * The daylight saving time transitions within one UTC year. Instances are
+	 * immutable and may be read racily from the cache.
+	 */
+	private record DaylightSavingYear(int year, double[] transitions, double[] savings) {
+		private static DaylightSavingYear create(int year) {
+			double from = TimeFromYear(year);
+			double to = TimeFromYear(year + 1);
+			Instant instant = Instant.ofEpochMilli((long) from);
+
+			double[] transitions = new double[4];
+			double[] savings = new double[5];
+			savings[0] = thisTimeZoneRules.getDaylightSavings(instant).toMillis();
+			int count = 0;
+
+			for (ZoneOffsetTransition tr = thisTimeZoneRules.nextTransition(instant); tr != null && tr.toEpochSecond() * msPerSecond < to; tr = thisTimeZoneRules.nextTransition(tr.getInstant())) {
+				if (count == transitions.length) {
+					transitions = Arrays.copyOf(transitions, count * 2);
+					savings = Arrays.copyOf(savings, count * 2 + 1);
+				}
+
+				transitions[count] = tr.toEpochSecond() * msPerSecond;
+				savings[++count] = thisTimeZoneRules.getDaylightSavings(tr.getInstant()).toMillis();
+			}
+
+			return new DaylightSavingYear(year, Arrays.copyOf(transitions, count), Arrays.copyOf(savings, count + 1));
+		}
+
+		private double get(double t) {
+			int i = 0;
+
+			while (i < transitions.length && t >= transitions[i]) {
+				i++;
+			}
+
+			return savings[i];
+		}
+	}
 
 	static void init(Scriptable scope, boolean sealed, Context cx) {
 		NativeDate obj = new NativeDate();
@@ -345,11 +394,15 @@ final class NativeDate extends IdScriptableObject {
 			double day = MakeDay(year, MonthFromTime(t), DateFromTime(t));
 			t = MakeDate(day, TimeWithinDay(t));
 		}
-		Date date = new Date((long) t);
-		if (thisTimeZone.inDaylightTime(date)) {
-			return msPerHour;
+		int year = YearFromTime(t);
+		DaylightSavingYear dst = dstCache[year & DST_CACHE_MASK];
+
+		if (dst == null || dst.year != year) {
+			dst = DaylightSavingYear.create(year);
+			dstCache[year & DST_CACHE_MASK] = dst;
 		}
-		return 0;
+
+		return dst.get(t);
 	}
 
 	/*
@@ -942,10 +995,7 @@ final class NativeDate extends IdScriptableObject {
 				t = MakeDate(day, TimeWithinDay(t));
 			}
 			result.append(" (");
-			Date date = new Date((long) t);
-			synchronized (timeZoneFormatter) {
-				result.append(timeZoneFormatter.format(date));
-			}
+			timeZoneFormatter.formatTo(Instant.ofEpochMilli((long) t), result);
 			result.append(')');
 		}
 		return result.toString();
@@ -996,16 +1046,14 @@ final class NativeDate extends IdScriptableObject {
 	}
 
 	private static String toLocale_helper(double t, int methodId) {
-		DateFormat formatter = switch (methodId) {
+		DateTimeFormatter formatter = switch (methodId) {
 			case Id_toLocaleString -> localeDateTimeFormatter;
 			case Id_toLocaleTimeString -> localeTimeFormatter;
 			case Id_toLocaleDateString -> localeDateFormatter;
 			default -> throw new AssertionError(); // unreachable
 		};
 
-		synchronized (formatter) {
-			return formatter.format(new Date((long) t));
-		}
+		return formatter.format(Instant.ofEpochMilli((long) t));
 	}
 
 	private static String js_toUTCString(double date) {
@@ -252,12 +252,7 @@ public class NativeGlobal implements IdFunctionCall {
 		if (exponent != -1 && !exponentValid) {
 			i = exponent;
 		}
-		s = s.substring(start, i);
-		try {
-			return Double.valueOf(s);
-		} catch (NumberFormatException ex) {
-			return ScriptRuntime.NaNobj;
-		}
+		return ScriptRuntime.wrapNumber(ScriptRuntime.decimalToNumber(s, start, i));
 	}
 
 	/**
@@ -6,6 +6,8 @@
 
 package dev.latvian.mods.rhino;
 
+import dev.latvian.mods.rhino.util.wrap.TypeWrappers;
+
 import java.lang.reflect.Array;
 
 /**
@@ -21,9 +23,37 @@ public class NativeJavaArray extends NativeJavaObject implements SymbolScriptabl
 		return new NativeJavaArray(scope, array, cx);
 	}
 
+	private static final int ARRAY_OBJECT = 0;
+	private static final int ARRAY_INT = 1;
+	private static final int ARRAY_DOUBLE = 2;
+	private static final int ARRAY_FLOAT = 3;
+	private static final int ARRAY_LONG = 4;
+	private static final int ARRAY_BYTE = 5;
+	private static final int ARRAY_OTHER = 6;
+
+	private static int getArrayType(Class<?> cls) {
+		if (!cls.isPrimitive()) {
+			return ARRAY_OBJECT;
+		} else if (cls == Integer.TYPE) {
+			return ARRAY_INT;
+		} else if (cls == Double.TYPE) {
+			return ARRAY_DOUBLE;
+		} else if (cls == Float.TYPE) {
+			return ARRAY_FLOAT;
+		} else if (cls == Long.TYPE) {
+			return ARRAY_LONG;
+		} else if (cls == Byte.TYPE) {
+			return ARRAY_BYTE;
+		}
+
+		return ARRAY_OTHER;
+	}
+
 	Object array;
 	int length;
 	Class<?> cls;
+	private final Converter converter;
+	private final int arrayType;
 
 	public NativeJavaArray(Scriptable scope, Object array, Context cx) {
 		super(scope, null, ScriptRuntime.ObjectClass, cx);
@@ -34,6 +64,8 @@ public class NativeJavaArray extends NativeJavaObject implements SymbolScriptabl
 		this.array = array;
 		this.length = Array.getLength(array);
 		this.cls = cl.getComponentType();
+		this.converter = getConverter(cls);
+		this.arrayType = getArrayType(cls);
 	}
 
 	@Override
@@ -76,7 +108,15 @@ public class NativeJavaArray extends NativeJavaObject implements SymbolScriptabl
 	@Override
 	public Object get(Context cx, int index, Scriptable start) {
 		if (0 <= index && index < length) {
-			Object obj = Array.get(array, index);
+			Object obj = switch (arrayType) {
+				case ARRAY_OBJECT -> ((Object[]) array)[index];
+				case ARRAY_INT -> ((int[]) array)[index];
+				case ARRAY_DOUBLE -> ((double[]) array)[index];
+				case ARRAY_FLOAT -> ((float[]) array)[index];
+				case ARRAY_LONG -> ((long[]) array)[index];
+				case ARRAY_BYTE -> ((byte[]) array)[index];
+				default -> Array.get(array, index);
+			};
 			return cx.getWrapFactory().wrap(cx, this, obj, cls);
 		}
 		return Undefined.instance;
@@ -101,7 +141,22 @@ public class NativeJavaArray extends NativeJavaObject implements SymbolScriptabl
 	@Override
 	public void put(Context cx, int index, Scriptable start, Object value) {
 		if (0 <= index && index < length) {
-			Array.set(array, index, Context.jsToJava(cx, value, cls));
+			TypeWrappers typeWrappers = cx.hasTypeWrappers() ? cx.getTypeWrappers() : null;
+			boolean direct = arrayType != ARRAY_OBJECT && !converter.hasTypeWrapper(typeWrappers);
+
+			try {
+				switch (arrayType) {
+					case ARRAY_OBJECT -> ((Object[]) array)[index] = coerceTypeImpl(typeWrappers, converter, value, cx);
+					case ARRAY_INT -> ((int[]) array)[index] = coerceToInt(typeWrappers, converter, direct, value, cx);
+					case ARRAY_DOUBLE -> ((double[]) array)[index] = coerceToDouble(typeWrappers, converter, direct, value, cx);
+					case ARRAY_FLOAT -> ((float[]) array)[index] = coerceToFloat(typeWrappers, converter, direct, value, cx);
+					case ARRAY_LONG -> ((long[]) array)[index] = coerceToLong(typeWrappers, converter, direct, value, cx);
+					case ARRAY_BYTE -> ((byte[]) array)[index] = coerceToByte(typeWrappers, converter, direct, value, cx);
+					default -> Array.set(array, index, coerceTypeImpl(typeWrappers, converter, value, cx));
+				}
+			} catch (ArrayStoreException ex) {
+				reportConversionError(value, cls, cx);
+			}
 		} else {
 			throw Context.reportRuntimeError2("msg.java.array.index.out.of.bounds", String.valueOf(index), String.valueOf(length - 1), cx);
 		}
@@ -39,12 +39,13 @@ public class NativeJavaClass extends NativeJavaObject implements Function {
 
 	static Object constructInternal(Context cx, Scriptable scope, Object[] args, MemberBox ctor) {
 		Class<?>[] argTypes = ctor.argTypes;
+		NativeJavaObject.Converter[] argConverters = ctor.argConverters();
 
 		if (ctor.vararg) {
 			// marshall the explicit parameter
 			Object[] newArgs = new Object[argTypes.length];
 			for (int i = 0; i < argTypes.length - 1; i++) {
-				newArgs[i] = Context.jsToJava(cx, args[i], argTypes[i]);
+				newArgs[i] = argConverters[i].convert(cx, args[i]);
 			}
 
 			Object varArgs;
@@ -53,13 +54,14 @@ public class NativeJavaClass extends NativeJavaObject implements Function {
 			// is given and it is a Java or ECMA array.
 			if (args.length == argTypes.length && (args[args.length - 1] == null || args[args.length - 1] instanceof NativeArray || args[args.length - 1] instanceof NativeJavaArray)) {
 				// convert the ECMA array into a native array
-				varArgs = Context.jsToJava(cx, args[args.length - 1], argTypes[argTypes.length - 1]);
+				varArgs = argConverters[argTypes.length - 1].convert(cx, args[args.length - 1]);
 			} else {
 				// marshall the variable parameter
 				Class<?> componentType = argTypes[argTypes.length - 1].getComponentType();
+				NativeJavaObject.Converter componentConverter = NativeJavaObject.getConverter(componentType);
 				varArgs = Array.newInstance(componentType, args.length - argTypes.length + 1);
 				for (int i = 0; i < Array.getLength(varArgs); i++) {
-					Object value = Context.jsToJava(cx, args[argTypes.length - 1 + i], componentType);
+					Object value = componentConverter.convert(cx, args[argTypes.length - 1 + i]);
 					Array.set(varArgs, i, value);
 				}
 			}
@@ -72,7 +74,7 @@ public class NativeJavaClass extends NativeJavaObject implements Function {
 			Object[] origArgs = args;
 			for (int i = 0; i < args.length; i++) {
 				Object arg = args[i];
-				Object x = Context.jsToJava(cx, arg, argTypes[i]);
+				Object x = argConverters[i].convert(cx, arg);
 				if (x != arg) {
 					if (args == origArgs) {
 						args = origArgs.clone();
@@ -20,13 +20,13 @@ import java.util.function.Predicate;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class NativeJavaList extends NativeJavaObject {
 	private final List list;
-	private final Class<?> listType;
+	private final Converter listConverter;
 	private final ValueUnwrapper valueUnwrapper;
 
 	public NativeJavaList(Context cx, Scriptable scope, Object jo, List list, @Nullable Class<?> listType, ValueUnwrapper valueUnwrapper) {
 		super(scope, jo, jo.getClass(), cx);
 		this.list = list;
-		this.listType = listType;
+		this.listConverter = listType == null ? null : getConverter(listType);
 		this.valueUnwrapper = valueUnwrapper;
 	}
 
@@ -74,7 +74,7 @@ public class NativeJavaList extends NativeJavaObject {
 	@Override
 	public void put(Context cx, int index, Scriptable start, Object value) {
 		if (isWithValidIndex(index)) {
-			list.set(index, Context.jsToJava(cx, value, listType));
+			list.set(index, toJava(cx, value));
 			return;
 		}
 		super.put(cx, index, start, value);
@@ -127,18 +127,22 @@ public class NativeJavaList extends NativeJavaObject {
 		addCustomFunction("findLastIndex", this::findLastIndex, Predicate.class);
 	}
 
+	private Object toJava(Context cx, Object value) {
+		return listConverter == null ? value : listConverter.convert(cx, value);
+	}
+
 	private int getLength(Context cx) {
 		return list.size();
 	}
 
 	private int push(Context cx, Object[] args) {
 		if (args.length == 1) {
-			list.add(Context.jsToJava(cx, args[0], listType));
+			list.add(toJava(cx, args[0]));
 		} else if (args.length > 1) {
 			Object[] args1 = new Object[args.length];
 
 			for (int i = 0; i < args.length; i++) {
-				args1[i] = Context.jsToJava(cx, args[i], listType);
+				args1[i] = toJava(cx, args[i]);
 			}
 
 			list.addAll(Arrays.asList(args1));
@@ -165,7 +169,7 @@ public class NativeJavaList extends NativeJavaObject {
 
 	private int unshift(Context cx, Object[] args) {
 		for (int i = args.length - 1; i >= 0; i--) {
-			list.add(0, Context.jsToJava(cx, args[i], listType));
+			list.add(0, toJava(cx, args[i]));
 		}
 
 		return list.size();
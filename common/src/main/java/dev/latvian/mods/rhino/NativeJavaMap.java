@@ -15,13 +15,13 @@ import java.util.Map;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class NativeJavaMap extends NativeJavaObject {
 	private final Map map;
-	private final Class<?> mapValueType;
+	private final Converter mapValueConverter;
 	private final ValueUnwrapper valueUnwrapper;
 
 	public NativeJavaMap(Context cx, Scriptable scope, Object jo, Map map, Class<?> mapValueType, ValueUnwrapper valueUnwrapper) {
 		super(scope, jo, jo.getClass(), cx);
 		this.map = map;
-		this.mapValueType = mapValueType;
+		this.mapValueConverter = mapValueType == null ? null : getConverter(mapValueType);
 		this.valueUnwrapper = valueUnwrapper;
 	}
 
@@ -66,14 +66,18 @@ public class NativeJavaMap extends NativeJavaObject {
 		return super.get(cx, index, start);
 	}
 
+	private Object toJava(Context cx, Object value) {
+		return mapValueConverter == null ? value : mapValueConverter.convert(cx, value);
+	}
+
 	@Override
 	public void put(Context cx, String name, Scriptable start, Object value) {
-		map.put(name, Context.jsToJava(cx, value, mapValueType));
+		map.put(name, toJava(cx, value));
 	}
 
 	@Override
 	public void put(Context cx, int index, Scriptable start, Object value) {
-		map.put(index, Context.jsToJava(cx, value, mapValueType));
+		map.put(index, toJava(cx, value));
 	}
 
 	@Override
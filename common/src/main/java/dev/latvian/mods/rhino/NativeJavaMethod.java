@@ -381,12 +381,13 @@ public class NativeJavaMethod extends BaseFunction {
 
 		MemberBox meth = methods[index];
 		Class<?>[] argTypes = meth.argTypes;
+		NativeJavaObject.Converter[] argConverters = meth.argConverters();
 
 		if (meth.vararg) {
 			// marshall the explicit parameters
 			Object[] newArgs = new Object[argTypes.length];
 			for (int i = 0; i < argTypes.length - 1; i++) {
-				newArgs[i] = Context.jsToJava(cx, args[i], argTypes[i]);
+				newArgs[i] = argConverters[i].convert(cx, args[i]);
 			}
 
 			Object varArgs;
@@ -395,13 +396,14 @@ public class NativeJavaMethod extends BaseFunction {
 			// is given and it is a Java or ECMA array or is null.
 			if (args.length == argTypes.length && (args[args.length - 1] == null || args[args.length - 1] instanceof NativeArray || args[args.length - 1] instanceof NativeJavaArray)) {
 				// convert the ECMA array into a native array
-				varArgs = Context.jsToJava(cx, args[args.length - 1], argTypes[argTypes.length - 1]);
+				varArgs = argConverters[argTypes.length - 1].convert(cx, args[args.length - 1]);
 			} else {
 				// marshall the variable parameters
 				Class<?> componentType = argTypes[argTypes.length - 1].getComponentType();
+				NativeJavaObject.Converter componentConverter = NativeJavaObject.getConverter(componentType);
 				varArgs = Array.newInstance(componentType, args.length - argTypes.length + 1);
 				for (int i = 0; i < Array.getLength(varArgs); i++) {
-					Object value = Context.jsToJava(cx, args[argTypes.length - 1 + i], componentType);
+					Object value = componentConverter.convert(cx, args[argTypes.length - 1 + i]);
 					Array.set(varArgs, i, value);
 				}
 			}
@@ -427,7 +429,7 @@ public class NativeJavaMethod extends BaseFunction {
 				}
 				 */
 
-				coerced = Context.jsToJava(cx, coerced, argTypes[i]);
+				coerced = argConverters[i].convert(cx, coerced);
 
 				if (coerced != arg) {
 					if (origArgs == args) {
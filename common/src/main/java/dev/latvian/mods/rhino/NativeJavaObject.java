@@ -13,8 +13,13 @@ import dev.latvian.mods.rhino.util.wrap.TypeWrappers;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -252,6 +257,188 @@ public class NativeJavaObject implements Scriptable, SymbolScriptable, Wrapper {
 		}
 	}
 
+	/* Long values cannot be expressed exactly in doubles.
+	 * We thus use the largest and smallest double value that
+	 * has a value expressible as a long value. We build these
+	 * numerical values from their hexidecimal representations
+	 * to avoid any problems caused by attempting to parse a
+	 * decimal representation.
+	 */
+	private static final double MAX_LONG_DOUBLE = Double.longBitsToDouble(0x43dfffffffffffffL);
+	private static final double MIN_LONG_DOUBLE = Double.longBitsToDouble(0xc3e0000000000000L);
+	private static final int NUMBER_NONE = 0;
+	private static final int NUMBER_CHARACTER = 1;
+	private static final int NUMBER_DOUBLE = 2;
+	private static final int NUMBER_FLOAT = 3;
+	private static final int NUMBER_INTEGER = 4;
+	private static final int NUMBER_LONG = 5;
+	private static final int NUMBER_SHORT = 6;
+	private static final int NUMBER_BYTE = 7;
+	private static final int NUMBER_OTHER = 8;
+
+	/**
+	 * A conversion to one Java type. Everything {@link #coerceTypeImpl} needs to
+	 * know about the type is resolved once when the converter is created.
+	 * Converters are cached per class, and callers that convert to the same types
+	 * over and over can keep them, see {@link #getConverters(Class[])}.
+	 */
+	static final class Converter {
+		private static final ClassValue<Converter> CACHE = new ClassValue<>() {
+			@Override
+			protected Converter computeValue(Class<?> type) {
+				return new Converter(type);
+			}
+		};
+
+		final Class<?> type;
+		private final boolean primitive;
+		private final boolean string;
+		private final boolean object;
+		private final boolean acceptsBoolean;
+		private final boolean acceptsNumber;
+		private final boolean character;
+		private final boolean date;
+		private final boolean classType;
+		private final boolean interfaceType;
+		private final int numberType;
+		private final Converter componentConverter;
+		private final Converter elementConverter;
+
+		private Converter(Class<?> type) {
+			this(type, null);
+		}
+
+		private Converter(Class<?> type, @Nullable Converter elementConverter) {
+			this.type = type;
+			primitive = type.isPrimitive();
+			string = type == ScriptRuntime.StringClass;
+			object = type == ScriptRuntime.ObjectClass;
+			acceptsBoolean = type == Boolean.TYPE || type == ScriptRuntime.BooleanClass || object;
+			acceptsNumber = (primitive && type != Boolean.TYPE) || ScriptRuntime.NumberClass.isAssignableFrom(type);
+			character = type == Character.TYPE || type == ScriptRuntime.CharacterClass;
+			date = type == ScriptRuntime.DateClass;
+			classType = type == ScriptRuntime.ClassClass;
+			interfaceType = type.isInterface();
+			numberType = getNumberType(type);
+			componentConverter = type.isArray() ? CACHE.get(type.getComponentType()) : null;
+			this.elementConverter = elementConverter;
+		}
+
+		private static int getNumberType(Class<?> type) {
+			if (type == Character.TYPE || type == ScriptRuntime.CharacterClass) {
+				return NUMBER_CHARACTER;
+			} else if (type == ScriptRuntime.ObjectClass || type == ScriptRuntime.DoubleClass || type == Double.TYPE) {
+				return NUMBER_DOUBLE;
+			} else if (type == ScriptRuntime.FloatClass || type == Float.TYPE) {
+				return NUMBER_FLOAT;
+			} else if (type == ScriptRuntime.IntegerClass || type == Integer.TYPE) {
+				return NUMBER_INTEGER;
+			} else if (type == ScriptRuntime.LongClass || type == Long.TYPE) {
+				return NUMBER_LONG;
+			} else if (type == ScriptRuntime.ShortClass || type == Short.TYPE) {
+				return NUMBER_SHORT;
+			} else if (type == ScriptRuntime.ByteClass || type == Byte.TYPE) {
+				return NUMBER_BYTE;
+			} else if (type == Boolean.TYPE) {
+				return NUMBER_NONE;
+			}
+
+			return NUMBER_OTHER;
+		}
+
+		Object convert(Context cx, Object value) {
+			return coerceTypeImpl(cx.hasTypeWrappers() ? cx.getTypeWrappers() : null, this, value, cx);
+		}
+
+		/**
+		 * @return true if a type wrapper may apply to this type, in which case values can't skip {@link #coerceTypeImpl}
+		 */
+		boolean hasTypeWrapper(@Nullable TypeWrappers typeWrappers) {
+			return typeWrappers != null && typeWrappers.hasWrapper(type);
+		}
+	}
+
+	static Converter getConverter(Class<?> type) {
+		return Converter.CACHE.get(type);
+	}
+
+	/**
+	 * Like {@link #getConverter(Class)}, but a List, Collection or Iterable with a
+	 * known element type gets a converter that passes JS arrays as a {@link NativeArrayView}
+	 * converting to that type. Such converters aren't cached, callers should keep them.
+	 */
+	static Converter getConverter(Type type) {
+		if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw && raw.isAssignableFrom(NativeArrayView.class) && raw != ScriptRuntime.ObjectClass) {
+			Type[] arguments = parameterized.getActualTypeArguments();
+
+			if (arguments.length == 1) {
+				Converter elementConverter = getConverter(arguments[0]);
+
+				if (!elementConverter.object || elementConverter.elementConverter != null) {
+					return new Converter(raw, elementConverter);
+				}
+			}
+
+			return Converter.CACHE.get(raw);
+		}
+
+		return Converter.CACHE.get(getRawClass(type));
+	}
+
+	private static Class<?> getRawClass(Type type) {
+		if (type instanceof Class<?> c) {
+			return c;
+		} else if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw) {
+			return raw;
+		} else if (type instanceof WildcardType wildcard) {
+			return getRawClass(wildcard.getUpperBounds()[0]);
+		} else if (type instanceof TypeVariable<?> variable) {
+			return getRawClass(variable.getBounds()[0]);
+		} else if (type instanceof GenericArrayType array) {
+			return Array.newInstance(getRawClass(array.getGenericComponentType()), 0).getClass();
+		}
+
+		return ScriptRuntime.ObjectClass;
+	}
+
+	/**
+	 * @return converters for each of the types, or null if types is null
+	 */
+	static Converter[] getConverters(Class<?>[] types) {
+		if (types == null) {
+			return null;
+		}
+
+		Converter[] converters = new Converter[types.length];
+
+		for (int i = 0; i < types.length; i++) {
+			converters[i] = Converter.CACHE.get(types[i]);
+		}
+
+		return converters;
+	}
+
+	/**
+	 * Like {@link #getConverters(Class[])}, but uses the generic parameter types
+	 * where they tell more than the classes do.
+	 */
+	static Converter[] getConverters(Class<?>[] types, Type[] genericTypes) {
+		if (types == null) {
+			return null;
+		} else if (genericTypes.length != types.length) {
+			// some constructors don't report synthetic parameters in their generic types
+			return getConverters(types);
+		}
+
+		Converter[] converters = new Converter[types.length];
+
+		for (int i = 0; i < types.length; i++) {
+			converters[i] = genericTypes[i] instanceof ParameterizedType ? getConverter(genericTypes[i]) : Converter.CACHE.get(types[i]);
+		}
+
+		return converters;
+	}
+
 	/**
 	 * Type-munging for field setting and method invocation.
 	 * Conforms to LC3 specification
@@ -261,41 +448,48 @@ public class NativeJavaObject implements Scriptable, SymbolScriptable, Wrapper {
 			return value;
 		}
 
+		return coerceTypeImpl(typeWrappers, Converter.CACHE.get(type), value, cx);
+	}
+
+	static Object coerceTypeImpl(@Nullable TypeWrappers typeWrappers, Converter converter, Object value, Context cx) {
+		Class<?> type = converter.type;
+
+		if (cx != null && cx.metrics != null) {
+			cx.metrics.coercions++;
+		}
+
+		if (value == null || value.getClass() == type) {
+			return value;
+		}
+
 		Object unwrappedValue = Wrapper.unwrapped(value);
-		TypeWrapperFactory<?> typeWrapper = typeWrappers == null ? null : typeWrappers.getWrapperFactory(type, unwrappedValue);
+		TypeWrapperFactory<?> typeWrapper = typeWrappers == null || converter.object ? null : typeWrappers.getWrapperFactory(type, unwrappedValue);
 
 		if (typeWrapper != null) {
 			return typeWrapper.wrap(cx, unwrappedValue);
 		}
 
 		switch (getJSTypeCode(value)) {
-			case JSTYPE_NULL -> {
-				// raise error if type.isPrimitive()
-				if (type.isPrimitive()) {
-					return reportConversionError(value, type, cx);
-				}
-				return null;
-			}
 			case JSTYPE_UNDEFINED -> {
-				if (type == ScriptRuntime.StringClass || type == ScriptRuntime.ObjectClass) {
+				if (converter.string || converter.object) {
 					return "undefined";
 				}
 				return reportConversionError("undefined", type, value, cx);
 			}
 			case JSTYPE_BOOLEAN -> {
 				// Under LC3, only JS Booleans can be coerced into a Boolean value
-				if (type == Boolean.TYPE || type == ScriptRuntime.BooleanClass || type == ScriptRuntime.ObjectClass) {
+				if (converter.acceptsBoolean) {
 					return value;
-				} else if (type == ScriptRuntime.StringClass) {
+				} else if (converter.string) {
 					return value.toString();
 				} else {
 					return reportConversionError(value, type, cx);
 				}
 			}
 			case JSTYPE_NUMBER -> {
-				if (type == ScriptRuntime.StringClass) {
+				if (converter.string) {
 					return ScriptRuntime.toString(cx, value);
-				} else if (type == ScriptRuntime.ObjectClass) {
+				} else if (converter.object) {
 					/*
 					if (cx.hasFeature(Context.FEATURE_INTEGER_WITHOUT_DECIMAL_PLACE)) {
 						//to process numbers like 2.0 as 2 without decimal place
@@ -305,17 +499,17 @@ public class NativeJavaObject implements Scriptable, SymbolScriptable, Wrapper {
 						}
 					}
 					 */
-					return coerceToNumber(Double.TYPE, value, cx);
-				} else if ((type.isPrimitive() && type != Boolean.TYPE) || ScriptRuntime.NumberClass.isAssignableFrom(type)) {
-					return coerceToNumber(type, value, cx);
+					return coerceToNumber(NUMBER_DOUBLE, value, cx);
+				} else if (converter.acceptsNumber) {
+					return coerceToNumber(converter.numberType, value, cx);
 				} else {
 					return reportConversionError(value, type, cx);
 				}
 			}
 			case JSTYPE_STRING -> {
-				if (type == ScriptRuntime.StringClass || type.isInstance(value)) {
+				if (converter.string || type.isInstance(value)) {
 					return value.toString();
-				} else if (type == Character.TYPE || type == ScriptRuntime.CharacterClass) {
+				} else if (converter.character) {
 					// Special case for converting a single char string to a
 					// character
 					// Placed here because it applies *only* to JS strings,
@@ -323,30 +517,30 @@ public class NativeJavaObject implements Scriptable, SymbolScriptable, Wrapper {
 					if (((CharSequence) value).length() == 1) {
 						return ((CharSequence) value).charAt(0);
 					}
-					return coerceToNumber(type, value, cx);
-				} else if ((type.isPrimitive() && type != Boolean.TYPE) || ScriptRuntime.NumberClass.isAssignableFrom(type)) {
-					return coerceToNumber(type, value, cx);
+					return coerceToNumber(NUMBER_CHARACTER, value, cx);
+				} else if (converter.acceptsNumber) {
+					return coerceToNumber(converter.numberType, value, cx);
 				} else {
 					return reportConversionError(value, type, cx);
 				}
 			}
 			case JSTYPE_JAVA_CLASS -> {
-				if (type == ScriptRuntime.ClassClass || type == ScriptRuntime.ObjectClass) {
+				if (converter.classType || converter.object) {
 					return unwrappedValue;
-				} else if (type == ScriptRuntime.StringClass) {
+				} else if (converter.string) {
 					return unwrappedValue.toString();
 				} else {
 					return reportConversionError(unwrappedValue, type, cx);
 				}
 			}
 			case JSTYPE_JAVA_OBJECT, JSTYPE_JAVA_ARRAY -> {
-				if (type.isPrimitive()) {
-					if (type == Boolean.TYPE) {
+				if (converter.primitive) {
+					if (converter.numberType == NUMBER_NONE) {
 						return reportConversionError(unwrappedValue, type, cx);
 					}
-					return coerceToNumber(type, unwrappedValue, cx);
+					return coerceToNumber(converter.numberType, unwrappedValue, cx);
 				}
-				if (type == ScriptRuntime.StringClass) {
+				if (converter.string) {
 					return unwrappedValue.toString();
 				}
 				if (type.isInstance(unwrappedValue)) {
@@ -355,40 +549,33 @@ public class NativeJavaObject implements Scriptable, SymbolScriptable, Wrapper {
 				return reportConversionError(unwrappedValue, type, cx);
 			}
 			case JSTYPE_OBJECT -> {
-				if (type == ScriptRuntime.StringClass) {
+				if (converter.string) {
 					return ScriptRuntime.toString(cx, value);
-				} else if (type.isPrimitive()) {
-					if (type == Boolean.TYPE) {
+				} else if (converter.primitive) {
+					if (converter.numberType == NUMBER_NONE) {
 						return reportConversionError(value, type, cx);
 					}
-					return coerceToNumber(type, value, cx);
+					return coerceToNumber(converter.numberType, value, cx);
+				} else if (converter.elementConverter != null && value instanceof NativeArray array) {
+					return new NativeArrayView<>(array, converter.elementConverter);
 				} else if (type.isInstance(value)) {
 					return value;
-				} else if (type == ScriptRuntime.DateClass && value instanceof NativeDate) {
+				} else if (converter.date && value instanceof NativeDate) {
 					double time = ((NativeDate) value).getJSTimeValue();
 					// XXX: This will replace NaN by 0
 					return new Date((long) time);
-				} else if (type.isArray() && value instanceof NativeArray array) {
-					// Make a new java array, and coerce the JS array components
-					// to the target (component) type.
-					long length = array.getLength();
-					Class<?> arrayType = type.getComponentType();
-					Object Result = Array.newInstance(arrayType, (int) length);
-					for (int i = 0; i < length; ++i) {
-						try {
-							Array.set(Result, i, coerceTypeImpl(typeWrappers, arrayType, array.get(cx, i, array), cx));
-						} catch (EvaluatorException ee) {
-							return reportConversionError(value, type, cx);
-						}
+				} else if (converter.componentConverter != null && value instanceof NativeArray array) {
+					try {
+						return coerceNativeArray(typeWrappers, converter.componentConverter, array, cx);
+					} catch (EvaluatorException ee) {
+						return reportConversionError(value, type, cx);
 					}
-
-					return Result;
 				} else if (value instanceof Wrapper) {
 					if (type.isInstance(unwrappedValue)) {
 						return unwrappedValue;
 					}
 					return reportConversionError(unwrappedValue, type, cx);
-				} else if (type.isInterface() && (value instanceof NativeObject || value instanceof NativeFunction || value instanceof ArrowFunction)) {
+				} else if (converter.interfaceType && (value instanceof NativeObject || value instanceof NativeFunction || value instanceof ArrowFunction)) {
 					// Try to use function/object as implementation of Java interface.
 					return createInterfaceAdapter(cx, type, (ScriptableObject) value);
 				} else {
@@ -401,6 +588,126 @@ public class NativeJavaObject implements Scriptable, SymbolScriptable, Wrapper {
 		return value;
 	}
 
+	/**
+	 * Makes a new Java array and coerces the JS array elements to the component type.
+	 * Primitive, String and other reference arrays are filled directly rather than
+	 * through java.lang.reflect.Array, and numbers skip the generic coercion when
+	 * no type wrapper applies to the component type.
+	 */
+	private static Object coerceNativeArray(@Nullable TypeWrappers typeWrappers, Converter c, NativeArray array, Context cx) {
+		int length = (int) array.getLength();
+		boolean direct = !c.hasTypeWrapper(typeWrappers);
+
+		if (c.primitive) {
+			switch (c.numberType) {
+				case NUMBER_INTEGER -> {
+					int[] result = new int[length];
+					for (int i = 0; i < length; i++) {
+						result[i] = coerceToInt(typeWrappers, c, direct, array.getElement(cx, i), cx);
+					}
+					return result;
+				}
+				case NUMBER_DOUBLE -> {
+					double[] result = new double[length];
+					for (int i = 0; i < length; i++) {
+						result[i] = coerceToDouble(typeWrappers, c, direct, array.getElement(cx, i), cx);
+					}
+					return result;
+				}
+				case NUMBER_FLOAT -> {
+					float[] result = new float[length];
+					for (int i = 0; i < length; i++) {
+						result[i] = coerceToFloat(typeWrappers, c, direct, array.getElement(cx, i), cx);
+					}
+					return result;
+				}
+				case NUMBER_LONG -> {
+					long[] result = new long[length];
+					for (int i = 0; i < length; i++) {
+						result[i] = coerceToLong(typeWrappers, c, direct, array.getElement(cx, i), cx);
+					}
+					return result;
+				}
+				case NUMBER_BYTE -> {
+					byte[] result = new byte[length];
+					for (int i = 0; i < length; i++) {
+						result[i] = coerceToByte(typeWrappers, c, direct, array.getElement(cx, i), cx);
+					}
+					return result;
+				}
+				default -> {
+					// boolean, char and short arrays are rare enough for reflection
+					Object result = Array.newInstance(c.type, length);
+					for (int i = 0; i < length; i++) {
+						Object element = array.getElement(cx, i);
+						if (element == null) {
+							reportConversionError(null, c.type, cx);
+						}
+						Array.set(result, i, coerceTypeImpl(typeWrappers, c, element, cx));
+					}
+					return result;
+				}
+			}
+		}
+
+		Object[] result = (Object[]) Array.newInstance(c.type, length);
+
+		for (int i = 0; i < length; i++) {
+			Object element = array.getElement(cx, i);
+			result[i] = direct && c.string && element instanceof String ? element : coerceTypeImpl(typeWrappers, c, element, cx);
+		}
+
+		return result;
+	}
+
+	/*
+	 * Element conversions for typed Java arrays. With direct set (no type wrapper for
+	 * the component type), JS numbers are converted without boxing; everything else
+	 * goes through coerceTypeImpl() like a single value would.
+	 */
+
+	static int coerceToInt(@Nullable TypeWrappers typeWrappers, Converter c, boolean direct, Object value, Context cx) {
+		if (direct && value instanceof Number) {
+			return value instanceof Integer i ? i : (int) toInteger(value, ScriptRuntime.IntegerClass, Integer.MIN_VALUE, Integer.MAX_VALUE, cx);
+		}
+		return ((Number) coercePrimitive(typeWrappers, c, value, cx)).intValue();
+	}
+
+	static double coerceToDouble(@Nullable TypeWrappers typeWrappers, Converter c, boolean direct, Object value, Context cx) {
+		if (direct && value instanceof Number n) {
+			return n.doubleValue();
+		}
+		return ((Number) coercePrimitive(typeWrappers, c, value, cx)).doubleValue();
+	}
+
+	static float coerceToFloat(@Nullable TypeWrappers typeWrappers, Converter c, boolean direct, Object value, Context cx) {
+		if (direct && value instanceof Number n) {
+			return value instanceof Float f ? f : toFloat(n.doubleValue());
+		}
+		return ((Number) coercePrimitive(typeWrappers, c, value, cx)).floatValue();
+	}
+
+	static long coerceToLong(@Nullable TypeWrappers typeWrappers, Converter c, boolean direct, Object value, Context cx) {
+		if (direct && value instanceof Number) {
+			return value instanceof Long l ? l : toInteger(value, ScriptRuntime.LongClass, MIN_LONG_DOUBLE, MAX_LONG_DOUBLE, cx);
+		}
+		return ((Number) coercePrimitive(typeWrappers, c, value, cx)).longValue();
+	}
+
+	static byte coerceToByte(@Nullable TypeWrappers typeWrappers, Converter c, boolean direct, Object value, Context cx) {
+		if (direct && value instanceof Number) {
+			return value instanceof Byte b ? b : (byte) toInteger(value, ScriptRuntime.ByteClass, Byte.MIN_VALUE, Byte.MAX_VALUE, cx);
+		}
+		return ((Number) coercePrimitive(typeWrappers, c, value, cx)).byteValue();
+	}
+
+	private static Object coercePrimitive(@Nullable TypeWrappers typeWrappers, Converter c, Object value, Context cx) {
+		if (value == null) {
+			return reportConversionError(null, c.type, cx);
+		}
+		return coerceTypeImpl(typeWrappers, c, value, cx);
+	}
+
 	public static Object createInterfaceAdapter(Context cx, Class<?> type, ScriptableObject so) {
 		// XXX: Currently only instances of ScriptableObject are
 		// supported since the resulting interface proxies should
@@ -420,80 +727,67 @@ public class NativeJavaObject implements Scriptable, SymbolScriptable, Wrapper {
 		return glue;
 	}
 
-	private static Object coerceToNumber(Class<?> type, Object value, Context cx) {
+	private static Object coerceToNumber(int numberType, Object value, Context cx) {
 		Class<?> valueClass = value.getClass();
 
-		// Character
-		if (type == Character.TYPE || type == ScriptRuntime.CharacterClass) {
-			if (valueClass == ScriptRuntime.CharacterClass) {
-				return value;
+		switch (numberType) {
+			case NUMBER_CHARACTER -> {
+				if (valueClass == ScriptRuntime.CharacterClass) {
+					return value;
+				}
+				return (char) toInteger(value, ScriptRuntime.CharacterClass, Character.MIN_VALUE, Character.MAX_VALUE, cx);
 			}
-			return (char) toInteger(value, ScriptRuntime.CharacterClass, Character.MIN_VALUE, Character.MAX_VALUE, cx);
-		}
-
-		// Double, Float
-		if (type == ScriptRuntime.ObjectClass || type == ScriptRuntime.DoubleClass || type == Double.TYPE) {
-			return valueClass == ScriptRuntime.DoubleClass ? value : Double.valueOf(toDouble(value, cx));
-		}
-
-		if (type == ScriptRuntime.FloatClass || type == Float.TYPE) {
-			if (valueClass == ScriptRuntime.FloatClass) {
-				return value;
+			case NUMBER_DOUBLE -> {
+				return valueClass == ScriptRuntime.DoubleClass ? value : Double.valueOf(toDouble(value, cx));
 			}
-			double number = toDouble(value, cx);
-			if (Double.isInfinite(number) || Double.isNaN(number) || number == 0.0) {
-				return (float) number;
+			case NUMBER_FLOAT -> {
+				if (valueClass == ScriptRuntime.FloatClass) {
+					return value;
+				}
+				return toFloat(toDouble(value, cx));
 			}
-
-			double absNumber = Math.abs(number);
-			if (absNumber < Float.MIN_VALUE) {
-				return (number > 0.0) ? +0.0f : -0.0f;
-			} else if (absNumber > Float.MAX_VALUE) {
-				return (number > 0.0) ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
-			} else {
-				return (float) number;
+			case NUMBER_INTEGER -> {
+				if (valueClass == ScriptRuntime.IntegerClass) {
+					return value;
+				}
+				return (int) toInteger(value, ScriptRuntime.IntegerClass, Integer.MIN_VALUE, Integer.MAX_VALUE, cx);
 			}
-		}
-
-		// Integer, Long, Short, Byte
-		if (type == ScriptRuntime.IntegerClass || type == Integer.TYPE) {
-			if (valueClass == ScriptRuntime.IntegerClass) {
-				return value;
+			case NUMBER_LONG -> {
+				if (valueClass == ScriptRuntime.LongClass) {
+					return value;
+				}
+				return toInteger(value, ScriptRuntime.LongClass, MIN_LONG_DOUBLE, MAX_LONG_DOUBLE, cx);
 			}
-			return (int) toInteger(value, ScriptRuntime.IntegerClass, Integer.MIN_VALUE, Integer.MAX_VALUE, cx);
-		}
-
-		if (type == ScriptRuntime.LongClass || type == Long.TYPE) {
-			if (valueClass == ScriptRuntime.LongClass) {
-				return value;
+			case NUMBER_SHORT -> {
+				if (valueClass == ScriptRuntime.ShortClass) {
+					return value;
+				}
+				return (short) toInteger(value, ScriptRuntime.ShortClass, Short.MIN_VALUE, Short.MAX_VALUE, cx);
 			}
-			/* Long values cannot be expressed exactly in doubles.
-			 * We thus use the largest and smallest double value that
-			 * has a value expressible as a long value. We build these
-			 * numerical values from their hexidecimal representations
-			 * to avoid any problems caused by attempting to parse a
-			 * decimal representation.
-			 */
-			final double max = Double.longBitsToDouble(0x43dfffffffffffffL);
-			final double min = Double.longBitsToDouble(0xc3e0000000000000L);
-			return toInteger(value, ScriptRuntime.LongClass, min, max, cx);
-		}
-
-		if (type == ScriptRuntime.ShortClass || type == Short.TYPE) {
-			if (valueClass == ScriptRuntime.ShortClass) {
-				return value;
+			case NUMBER_BYTE -> {
+				if (valueClass == ScriptRuntime.ByteClass) {
+					return value;
+				}
+				return (byte) toInteger(value, ScriptRuntime.ByteClass, Byte.MIN_VALUE, Byte.MAX_VALUE, cx);
 			}
-			return (short) toInteger(value, ScriptRuntime.ShortClass, Short.MIN_VALUE, Short.MAX_VALUE, cx);
 		}
 
-		if (type == ScriptRuntime.ByteClass || type == Byte.TYPE) {
-			if (valueClass == ScriptRuntime.ByteClass) {
-				return value;
-			}
-			return (byte) toInteger(value, ScriptRuntime.ByteClass, Byte.MIN_VALUE, Byte.MAX_VALUE, cx);
+		return toDouble(value, cx);
+	}
+
+	private static float toFloat(double number) {
+		if (Double.isInfinite(number) || Double.isNaN(number) || number == 0.0) {
+			return (float) number;
 		}
 
-		return toDouble(value, cx);
+		double absNumber = Math.abs(number);
+		if (absNumber < Float.MIN_VALUE) {
+			return (number > 0.0) ? +0.0f : -0.0f;
+		} else if (absNumber > Float.MAX_VALUE) {
+			return (number > 0.0) ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+		} else {
+			return (float) number;
+		}
 	}
 
 	private static double toDouble(Object value, Context cx) {
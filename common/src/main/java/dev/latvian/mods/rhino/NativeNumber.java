@@ -260,8 +260,18 @@ final class NativeNumber extends IdScriptableObject {
 		if (!(thisObj instanceof NativeNumber)) {
 			throw incompatibleCallError(f, cx);
 		}
-		double value = ((NativeNumber) thisObj).doubleValue;
+		return execPrototypeCall(cx, id, ((NativeNumber) thisObj).doubleValue, args);
+	}
+
+	@Override
+	public Object execIdCallWithPrimitiveThis(IdFunctionObject f, Context cx, Scriptable scope, Object thisValue, Object[] args) {
+		if (thisValue instanceof Number n && f.hasTag(NUMBER_TAG) && f.methodId() > Id_constructor) {
+			return execPrototypeCall(cx, f.methodId(), n.doubleValue(), args);
+		}
+		return execIdCall(f, cx, scope, ScriptRuntime.toObject(cx, scope, thisValue), args);
+	}
 
+	private static Object execPrototypeCall(Context cx, int id, double value, Object[] args) {
 		switch (id) {
 
 			case Id_toString:
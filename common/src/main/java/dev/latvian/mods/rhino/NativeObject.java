@@ -90,6 +90,11 @@ public class NativeObject extends IdScriptableObject implements Map, DataObject
 		localContext = cx;
 	}
 
+	public NativeObject(Context cx, int initialCapacity) {
+		super(initialCapacity);
+		localContext = cx;
+	}
+
 	@Override
 	public String getClassName() {
 		return "Object";
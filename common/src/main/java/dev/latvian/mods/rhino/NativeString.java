@@ -111,7 +111,7 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 		obj.exportAsJSClass(MAX_PROTOTYPE_ID, scope, sealed, cx);
 	}
 
-	private static NativeString realThis(Scriptable thisObj, IdFunctionObject f, Context cx) {
+	private static NativeString realThis(Object thisObj, IdFunctionObject f, Context cx) {
 		if (!(thisObj instanceof NativeString)) {
 			throw incompatibleCallError(f, cx);
 		}
@@ -121,7 +121,7 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 	/*
 	 * HTML composition aids.
 	 */
-	private static String tagify(Scriptable thisObj, String tag, String attribute, Object[] args, Context cx) {
+	private static String tagify(Object thisObj, String tag, String attribute, Object[] args, Context cx) {
 		String str = ScriptRuntime.toString(cx, thisObj);
 		StringBuilder result = new StringBuilder();
 		result.append('<').append(tag);
@@ -137,7 +137,11 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 	 * See ECMA 15.5.4.6.  Uses Java String.indexOf()
 	 * OPT to add - BMH searching from jsstr.c.
 	 */
-	private static int js_indexOf(int methodId, String target, Object[] args, Context cx) {
+	/*
+	 * startsWith and endsWith only look at the matched region, so ropes aren't
+	 * flattened for them. indexOf and includes scan the whole string anyway.
+	 */
+	private static int js_indexOf(int methodId, CharSequence target, Object[] args, Context cx) {
 		String searchStr = ScriptRuntime.toString(cx, args, 0);
 		double position = ScriptRuntime.toInteger(cx, args, 1);
 
@@ -161,9 +165,16 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 			if (args.length == 0 || args.length == 1 || (args.length == 2 && args[1] == Undefined.instance)) {
 				position = target.length();
 			}
-			return target.substring(0, (int) position).endsWith(searchStr) ? 0 : -1;
+			return regionMatches(target, (int) position - searchStr.length(), searchStr) ? 0 : -1;
 		}
-		return methodId == Id_startsWith ? target.startsWith(searchStr, (int) position) ? 0 : -1 : target.indexOf(searchStr, (int) position);
+		return methodId == Id_startsWith ? regionMatches(target, (int) position, searchStr) ? 0 : -1 : target.toString().indexOf(searchStr, (int) position);
+	}
+
+	private static boolean regionMatches(CharSequence target, int offset, String s) {
+		if (target instanceof ConsString cs) {
+			return cs.regionMatches(offset, s);
+		}
+		return target.toString().startsWith(s, offset);
 	}
 
 	/*
@@ -320,7 +331,7 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 		return target.subSequence((int) begin, (int) end);
 	}
 
-	private static String js_repeat(Context cx, Scriptable thisObj, IdFunctionObject f, Object[] args) {
+	private static String js_repeat(Context cx, Object thisObj, IdFunctionObject f, Object[] args) {
 		String str = ScriptRuntime.toString(cx, ScriptRuntimeES6.requireObjectCoercible(cx, thisObj, f));
 		double cnt = ScriptRuntime.toInteger(cx, args, 0);
 
@@ -358,7 +369,7 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 	 * @see <a href='https://www.ecma-international.org/ecma-262/8.0/#sec-string.prototype.padstart'>padstart</a>
 	 * @see <a href='https://www.ecma-international.org/ecma-262/8.0/#sec-string.prototype.padend'>padend</a>
 	 */
-	private static String js_pad(Context cx, Scriptable thisObj, IdFunctionObject f, Object[] args, boolean atStart) {
+	private static String js_pad(Context cx, Object thisObj, IdFunctionObject f, Object[] args, boolean atStart) {
 		String pad = ScriptRuntime.toString(cx, ScriptRuntimeES6.requireObjectCoercible(cx, thisObj, f));
 		long intMaxLength = ScriptRuntime.toLength(cx, args, 0);
 		if (intMaxLength <= pad.length()) {
@@ -493,21 +504,40 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 		switch (id) {
 			case Id_length:
 				return string.length();
-			case Id_namespace: {
-				String str = ScriptRuntime.toString(cx, string);
-				int colon = str.indexOf(':');
-				return colon == -1 ? "minecraft" : str.substring(0, colon);
-			}
-			case Id_path: {
-				String str = ScriptRuntime.toString(cx, string);
-				int colon = str.indexOf(':');
-				return colon == -1 ? str : str.substring(colon + 1);
-			}
+			case Id_namespace:
+				return namespace(cx, string);
+			case Id_path:
+				return path(cx, string);
 			default:
 				return super.getInstanceIdValue(id, cx);
 		}
 	}
 
+	private static String namespace(Context cx, CharSequence string) {
+		String str = ScriptRuntime.toString(cx, string);
+		int colon = str.indexOf(':');
+		return colon == -1 ? "minecraft" : str.substring(0, colon);
+	}
+
+	private static String path(Context cx, CharSequence string) {
+		String str = ScriptRuntime.toString(cx, string);
+		int colon = str.indexOf(':');
+		return colon == -1 ? str : str.substring(colon + 1);
+	}
+
+	/**
+	 * Returns the value of an own property of String objects for a primitive
+	 * string, or {@link Scriptable#NOT_FOUND} if <code>name</code> isn't one.
+	 */
+	static Object getPrimitiveInstanceValue(Context cx, CharSequence string, String name) {
+		return switch (name) {
+			case "length" -> string.length();
+			case "namespace" -> namespace(cx, string);
+			case "path" -> path(cx, string);
+			default -> NOT_FOUND;
+		};
+	}
+
 	@Override
 	protected void fillConstructorProperties(IdFunctionObject ctor, Context cx) {
 		addIdFunctionProperty(ctor, STRING_TAG, ConstructorId_fromCharCode, "fromCharCode", 1, cx);
@@ -749,6 +779,22 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 		if (!f.hasTag(STRING_TAG)) {
 			return super.execIdCall(f, cx, scope, thisObj, args);
 		}
+		return execStringCall(f, cx, scope, thisObj, args);
+	}
+
+	@Override
+	public Object execIdCallWithPrimitiveThis(IdFunctionObject f, Context cx, Scriptable scope, Object thisValue, Object[] args) {
+		if (thisValue instanceof CharSequence && f.hasTag(STRING_TAG)) {
+			return execStringCall(f, cx, scope, thisValue, args);
+		}
+		return execIdCall(f, cx, scope, ScriptRuntime.toObject(cx, scope, thisValue), args);
+	}
+
+	/**
+	 * 'thisObj' is either a String object or, when called through
+	 * {@link #execIdCallWithPrimitiveThis}, the primitive string itself.
+	 */
+	private Object execStringCall(IdFunctionObject f, Context cx, Scriptable scope, Object thisObj, Object[] args) {
 		int id = f.methodId();
 		again:
 		for (; ; ) {
@@ -771,12 +817,12 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 				case ConstructorId_localeCompare:
 				case ConstructorId_toLocaleLowerCase: {
 					if (args.length > 0) {
-						thisObj = ScriptRuntime.toObject(cx, scope, ScriptRuntime.toCharSequence(cx, args[0]));
+						thisObj = ScriptRuntime.toCharSequence(cx, args[0]);
 						Object[] newArgs = new Object[args.length - 1];
 						System.arraycopy(args, 1, newArgs, 0, newArgs.length);
 						args = newArgs;
 					} else {
-						thisObj = ScriptRuntime.toObject(cx, scope, ScriptRuntime.toCharSequence(cx, thisObj));
+						thisObj = ScriptRuntime.toCharSequence(cx, thisObj);
 					}
 					id = -id;
 					continue again;
@@ -836,7 +882,7 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 				case Id_toString:
 				case Id_valueOf:
 					// ECMA 15.5.4.2: 'the toString function is not generic.
-					CharSequence cs = realThis(thisObj, f, cx).string;
+					CharSequence cs = thisObj instanceof CharSequence primitive ? primitive : realThis(thisObj, f, cx).string;
 					return cs instanceof String ? cs : cs.toString();
 
 				case Id_toSource: {
@@ -869,7 +915,7 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 				case Id_includes:
 				case Id_startsWith:
 				case Id_endsWith:
-					String thisString = ScriptRuntime.toString(cx, ScriptRuntimeES6.requireObjectCoercible(cx, thisObj, f));
+					CharSequence thisString = ScriptRuntime.toCharSequence(cx, ScriptRuntimeES6.requireObjectCoercible(cx, thisObj, f));
 					if (args.length > 0 && args[0] instanceof NativeRegExp) {
 						throw ScriptRuntime.typeError2(cx, "msg.first.arg.not.regexp", String.class.getSimpleName(), f.getFunctionName());
 					}
@@ -990,7 +1036,7 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 					}
 
 					ScriptRuntimeES6.requireObjectCoercible(cx, thisObj, f);
-					return cx.getRegExp().action(cx, scope, thisObj, args, actionType);
+					return cx.getRegExp().action(cx, scope, ScriptRuntime.toObject(cx, scope, thisObj), args, actionType);
 				}
 				// ECMA-262 1 5.5.4.9
 				case Id_localeCompare: {
@@ -1081,10 +1127,10 @@ final class NativeString extends IdScriptableObject implements Wrapper {
 					return js_repeat(cx, thisObj, f, args);
 				}
 				case Id_codePointAt: {
-					String str = ScriptRuntime.toString(cx, ScriptRuntimeES6.requireObjectCoercible(cx, thisObj, f));
+					CharSequence str = ScriptRuntime.toCharSequence(cx, ScriptRuntimeES6.requireObjectCoercible(cx, thisObj, f));
 					double cnt = ScriptRuntime.toInteger(cx, args, 0);
 
-					return (cnt < 0 || cnt >= str.length()) ? Undefined.instance : Integer.valueOf(str.codePointAt((int) cnt));
+					return (cnt < 0 || cnt >= str.length()) ? Undefined.instance : Integer.valueOf(Character.codePointAt(str, (int) cnt));
 				}
 
 				case SymbolId_iterator:
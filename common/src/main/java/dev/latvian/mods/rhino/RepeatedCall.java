@@ -0,0 +1,81 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package dev.latvian.mods.rhino;
+
+/**
+ * Calls a callback many times with the same this object, like the Array iteration methods do.
+ * <p>
+ * Interpreted functions without an activation run in the same interpreter frame every time,
+ * with arguments copied from {@link #args}, so a call allocates nothing. Those functions only
+ * get the arguments they declare, {@link #argCount} tells how many of them need to be set.
+ * Numbers passed through {@link #setNumber(int, double)} aren't boxed for them either.
+ * Any other callable gets a copy of all arguments on each call, as it may keep them.
+ */
+final class RepeatedCall {
+	/**
+	 * Argument buffer, to be filled before each {@link #call(Context)}.
+	 */
+	final Object[] args;
+	/**
+	 * Number of leading arguments that are read, the rest can be left unset.
+	 */
+	final int argCount;
+	private final double[] argsDbl;
+	private final Callable function;
+	private final Scriptable scope;
+	private final Scriptable thisObj;
+	private final InterpretedFunction interpreted;
+	private final Scriptable interpretedThis;
+	private Object frame;
+
+	RepeatedCall(Context cx, Scriptable scope, Callable function, Scriptable thisObj, int maxArgs) {
+		this.args = new Object[maxArgs];
+		this.argsDbl = new double[maxArgs];
+		this.function = function;
+		this.scope = scope;
+		this.thisObj = thisObj;
+
+		Callable target = function;
+		Scriptable targetThis = thisObj;
+
+		if (function instanceof ArrowFunction arrow && ScriptRuntime.hasTopCall(cx)) {
+			target = arrow.targetFunction;
+			targetThis = arrow.boundThis != null ? arrow.boundThis : ScriptRuntime.getTopCallScope(cx);
+		}
+
+		this.interpreted = target instanceof InterpretedFunction f ? f : null;
+		this.interpretedThis = targetThis;
+		this.frame = interpreted == null ? null : Interpreter.initReusableFrame(interpreted, cx, targetThis);
+		this.argCount = frame == null ? maxArgs : Math.min(maxArgs, interpreted.idata.argCount);
+	}
+
+	/**
+	 * Sets a number argument. It stays unboxed when the function runs in the reused frame,
+	 * otherwise it is boxed once here.
+	 */
+	void setNumber(int index, double value) {
+		if (frame == null) {
+			args[index] = value;
+		} else {
+			args[index] = UniqueTag.DOUBLE_MARK;
+			argsDbl[index] = value;
+		}
+	}
+
+	Object call(Context cx) {
+		if (frame == null) {
+			return function.call(cx, scope, thisObj, args.clone());
+		}
+
+		Object result = Interpreter.interpretReused(frame, cx, args, argsDbl, argCount);
+
+		if (!Interpreter.isFrameReusable(frame)) {
+			frame = Interpreter.initReusableFrame(interpreted, cx, interpretedThis);
+		}
+
+		return result;
+	}
+}
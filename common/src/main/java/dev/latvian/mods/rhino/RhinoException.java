@@ -42,7 +42,19 @@ public abstract class RhinoException extends RuntimeException {
 	private String lineSource;
 	private int columnNumber;
 
+	/**
+	 * Whether to fill in the Java stack trace. Without it only the script frames are
+	 * reported, but the exception is much cheaper to create, which matters for scripts
+	 * that throw as control flow.
+	 *
+	 * @see Context#setJavaStackForScriptErrors(boolean)
+	 */
+	private static boolean isJavaStack(Context cx) {
+		return cx == null || cx.isJavaStackForScriptErrors();
+	}
+
 	RhinoException(Context cx) {
+		super(null, null, true, isJavaStack(cx));
 		Evaluator e = Context.createInterpreter();
 		if (e != null) {
 			e.captureStackInfo(cx, this);
@@ -50,7 +62,7 @@ public abstract class RhinoException extends RuntimeException {
 	}
 
 	RhinoException(Context cx, String details) {
-		super(details);
+		super(details, null, true, isJavaStack(cx));
 		Evaluator e = Context.createInterpreter();
 		if (e != null) {
 			e.captureStackInfo(cx, this);
@@ -312,6 +324,21 @@ public abstract class RhinoException extends RuntimeException {
 				}
 			}
 		}
+
+		if (stack.length == 0 && interpreterStack != null) {
+			// Java stack was not filled in, so there is nothing to interleave script frames with
+			for (ScriptStackElement[] group : interpreterStack) {
+				for (ScriptStackElement elem : group) {
+					if (!printStarted && hideFunction.equals(elem.functionName)) {
+						printStarted = true;
+					} else if (printStarted && ((limit < 0) || (count < limit))) {
+						list.add(elem);
+						count++;
+					}
+				}
+			}
+		}
+
 		return list.toArray(new ScriptStackElement[list.size()]);
 	}
 
@@ -0,0 +1,243 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package dev.latvian.mods.rhino;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sampling profiler for interpreted scripts.
+ * <p>
+ * While running, a background thread periodically looks at the script stack of every
+ * attached {@link Context} and counts how often each stack of script functions was seen,
+ * which shows the time spent per source file, function and line that Java profilers
+ * only see as {@link Interpreter} frames. Contexts that are not running a script are
+ * not counted.
+ * <p>
+ * Stacks are reported in the collapsed format used by flame graph tools, one stack per
+ * line, from the outermost frame to the innermost one, followed by the number of samples:
+ * <code>&lt;script&gt; (main.js:12);tick (main.js:4) 35</code>
+ * <p>
+ * Only the innermost interpreter invocation of a Context is sampled, script frames that
+ * called into Java which called back into scripts are not included. An attached Context
+ * publishes its current frame for the sampler on every script call and return, a script
+ * that is already running when it is attached is sampled from its next call or return on.
+ * Contexts are held weakly, a Context that is no longer used doesn't need to be detached.
+ */
+public final class ScriptProfiler {
+	private static final int MAX_DEPTH = 128;
+
+	private final long intervalNanos;
+	// guarded by itself
+	private final Set<Context> contexts;
+	private final Map<String, long[]> stacks;
+	// only used by the sampler thread, weak so that profiling doesn't keep old scripts loaded
+	private final Map<InterpreterData, String> frameNames;
+	private volatile Thread thread;
+	private long sampleCount;
+
+	/**
+	 * @param interval how often to sample, in microseconds
+	 */
+	public ScriptProfiler(long interval) {
+		if (interval <= 0L) {
+			throw new IllegalArgumentException("Sampling interval must be positive");
+		}
+
+		this.intervalNanos = TimeUnit.MICROSECONDS.toNanos(interval);
+		this.contexts = Collections.newSetFromMap(new WeakHashMap<>());
+		this.stacks = new HashMap<>();
+		this.frameNames = new WeakHashMap<>();
+	}
+
+	/**
+	 * Starts sampling the given Context. Can be called while the profiler is running.
+	 */
+	public void attach(Context cx) {
+		synchronized (contexts) {
+			if (contexts.add(cx)) {
+				cx.samplingProfilers.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Stops sampling the given Context. Samples already taken are kept.
+	 */
+	public void detach(Context cx) {
+		synchronized (contexts) {
+			if (contexts.remove(cx) && cx.samplingProfilers.decrementAndGet() == 0) {
+				cx.sampledInterpreterFrame = null;
+			}
+		}
+	}
+
+	/**
+	 * Starts the sampler thread, if it isn't running already.
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+
+		Thread t = new Thread(this::run, "Rhino Script Profiler");
+		t.setDaemon(true);
+		thread = t;
+		t.start();
+	}
+
+	/**
+	 * Stops the sampler thread and waits for it to finish. Samples are kept until {@link #reset()}.
+	 */
+	public synchronized void stop() {
+		Thread t = thread;
+
+		if (t == null) {
+			return;
+		}
+
+		thread = null;
+		LockSupport.unpark(t);
+
+		boolean interrupted = false;
+
+		while (t.isAlive()) {
+			try {
+				t.join();
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public boolean isRunning() {
+		return thread != null;
+	}
+
+	/**
+	 * Discards all samples taken so far.
+	 */
+	public void reset() {
+		synchronized (stacks) {
+			stacks.clear();
+			sampleCount = 0L;
+		}
+	}
+
+	/**
+	 * @return number of samples that found a script running
+	 */
+	public long getSampleCount() {
+		synchronized (stacks) {
+			return sampleCount;
+		}
+	}
+
+	/**
+	 * @return copy of the sample count of each stack, keyed by stack in collapsed format
+	 */
+	public Map<String, Long> getStacks() {
+		synchronized (stacks) {
+			Map<String, Long> map = new HashMap<>(stacks.size());
+
+			for (Map.Entry<String, long[]> entry : stacks.entrySet()) {
+				map.put(entry.getKey(), entry.getValue()[0]);
+			}
+
+			return map;
+		}
+	}
+
+	/**
+	 * Writes all stacks in collapsed format, most sampled first.
+	 */
+	public void dump(Appendable out) throws IOException {
+		List<Map.Entry<String, Long>> list = new ArrayList<>(getStacks().entrySet());
+		list.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+		for (Map.Entry<String, Long> entry : list) {
+			out.append(entry.getKey()).append(' ').append(Long.toString(entry.getValue())).append('\n');
+		}
+	}
+
+	private void run() {
+		InterpreterData[] functions = new InterpreterData[MAX_DEPTH];
+		int[] lines = new int[MAX_DEPTH];
+		StringBuilder sb = new StringBuilder();
+		List<Context> sampled = new ArrayList<>();
+
+		while (thread == Thread.currentThread()) {
+			LockSupport.parkNanos(this, intervalNanos);
+
+			synchronized (contexts) {
+				sampled.addAll(contexts);
+			}
+
+			for (Context cx : sampled) {
+				int depth = Interpreter.sampleFrames(cx.sampledInterpreterFrame, functions, lines);
+
+				if (depth > 0) {
+					sb.setLength(0);
+
+					for (int i = depth - 1; i >= 0; i--) {
+						sb.append(getFrameName(functions[i]));
+
+						if (lines[i] >= 0) {
+							sb.append(':').append(lines[i]);
+						}
+
+						sb.append(i == 0 ? ")" : ");");
+					}
+
+					record(sb.toString());
+				}
+			}
+
+			sampled.clear();
+		}
+	}
+
+	private void record(String stack) {
+		synchronized (stacks) {
+			stacks.computeIfAbsent(stack, k -> new long[1])[0]++;
+			sampleCount++;
+		}
+	}
+
+	/**
+	 * @return frame name without the closing parenthesis, so the line can be appended to it
+	 */
+	private String getFrameName(InterpreterData idata) {
+		String name = frameNames.get(idata);
+
+		if (name == null) {
+			String function = idata.itsName == null || idata.itsName.isEmpty() ? "<script>" : idata.itsName;
+			name = sanitize(function) + " (" + sanitize(idata.itsSourceFile);
+			frameNames.put(idata, name);
+		}
+
+		return name;
+	}
+
+	private static String sanitize(String s) {
+		if (s == null) {
+			return "unknown";
+		}
+
+		return s.replace(';', ':').replace('\n', ' ').replace('\r', ' ');
+	}
+}
@@ -10,7 +10,6 @@ import dev.latvian.mods.rhino.ast.FunctionNode;
 import dev.latvian.mods.rhino.regexp.RegExp;
 import dev.latvian.mods.rhino.util.SpecialEquality;
 import dev.latvian.mods.rhino.v8dtoa.DoubleConversion;
-import dev.latvian.mods.rhino.v8dtoa.FastDtoa;
 
 import java.text.MessageFormat;
 import java.util.Arrays;
@@ -340,11 +339,8 @@ public class ScriptRuntime {
 		if (val == Undefined.instance) {
 			return NaN;
 		}
-		if (val instanceof String) {
-			return toNumber(cx, (String) val);
-		}
 		if (val instanceof CharSequence) {
-			return toNumber(cx, val.toString());
+			return toNumber(cx, (CharSequence) val);
 		}
 		if (val instanceof Boolean) {
 			return (Boolean) val ? 1 : +0.0;
@@ -367,18 +363,18 @@ public class ScriptRuntime {
 		return (index < args.length) ? toNumber(cx, args[index]) : NaN;
 	}
 
-	static double stringPrefixToNumber(String s, int start, int radix) {
+	static double stringPrefixToNumber(CharSequence s, int start, int radix) {
 		return stringToNumber(s, start, s.length() - 1, radix, true);
 	}
 
-	static double stringToNumber(String s, int start, int end, int radix) {
+	static double stringToNumber(CharSequence s, int start, int end, int radix) {
 		return stringToNumber(s, start, end, radix, false);
 	}
 
 	/*
 	 * Helper function for toNumber, parseInt, and TokenStream.getToken.
 	 */
-	private static double stringToNumber(String source, int sourceStart, int sourceEnd, int radix, boolean isPrefix) {
+	private static double stringToNumber(CharSequence source, int sourceStart, int sourceEnd, int radix, boolean isPrefix) {
 		char digitMax = '9';
 		char lowerCaseBound = 'a';
 		char upperCaseBound = 'A';
@@ -414,14 +410,10 @@ public class ScriptRuntime {
 			if (radix == 10) {
 				/* If we're accumulating a decimal number and the number
 				 * is >= 2^53, then the result from the repeated multiply-add
-				 * above may be inaccurate.  Call Java to get the correct
+				 * above may be inaccurate.  Parse it again to get the correct
 				 * answer.
 				 */
-				try {
-					return Double.parseDouble(source.substring(sourceStart, end));
-				} catch (NumberFormatException nfe) {
-					return NaN;
-				}
+				return decimalToNumber(source, sourceStart, end);
 			} else if (radix == 2 || radix == 4 || radix == 8 || radix == 16 || radix == 32) {
 				/* The number may also be inaccurate for one of these bases.
 				 * This happens if the addition in value*radix + digit causes
@@ -538,7 +530,7 @@ public class ScriptRuntime {
 	 * <p>
 	 * See the #sec-tonumber-applied-to-the-string-type section of ECMA
 	 */
-	public static double toNumber(Context cx, String s) {
+	public static double toNumber(Context cx, CharSequence s) {
 		final int len = s.length();
 
 		// Skip whitespace at the start
@@ -610,28 +602,112 @@ public class ScriptRuntime {
 			if (startChar == '+' || startChar == '-') {
 				start++;
 			}
-			if (start + 7 == end && s.regionMatches(start, "Infinity", 0, 8)) {
+			if (start + 7 == end && "Infinity".contentEquals(s.subSequence(start, end + 1))) {
 				return startChar == '-' ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
 			}
 			return NaN;
 		}
-		// A base10, non-infinity number:
-		// just try a normal floating point conversion
-		String sub = s.substring(start, end + 1);
-		// Quick test to check string contains only valid characters because
-		// Double.parseDouble() can be slow and accept input we want to reject
-		for (int i = sub.length() - 1; i >= 0; i--) {
-			char c = sub.charAt(i);
-			if (('0' <= c && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
-				continue;
+		// A base10, non-infinity number
+		return decimalToNumber(s, start, end + 1);
+	}
+
+	private static final double[] EXACT_POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	/**
+	 * Parses a decimal number (optional sign, digits with an optional fraction
+	 * and exponent) from <code>s[start, end)</code>, or returns NaN if the whole
+	 * range isn't one.
+	 * <p>
+	 * Works on the range directly. When the significant digits fit in 2^53 and the
+	 * power of ten is exact, a single multiplication or division gives the correctly
+	 * rounded result; only the remaining inputs are copied for Double.parseDouble().
+	 */
+	public static double decimalToNumber(CharSequence s, int start, int end) {
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0L;
+		int significantDigits = 0;
+		int scale = 0;
+		boolean anyDigits = false;
+		boolean fraction = false;
+
+		for (; i < end; i++) {
+			char c = s.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				anyDigits = true;
+
+				if (mantissa != 0L || c != '0') {
+					// 18 digits always fit in a long, 19 may not
+					if (significantDigits < 18) {
+						mantissa = mantissa * 10L + (c - '0');
+						significantDigits++;
+					} else {
+						// too many digits for the fast path, keep validating
+						significantDigits = Integer.MAX_VALUE;
+						continue;
+					}
+				}
+
+				if (fraction) {
+					scale--;
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
 			}
+		}
+
+		if (!anyDigits) {
 			return NaN;
 		}
-		try {
-			return Double.parseDouble(sub);
-		} catch (NumberFormatException ex) {
+
+		if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+
+			if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+				negativeExponent = s.charAt(i) == '-';
+				i++;
+			}
+
+			int exponentStart = i;
+			int exponent = 0;
+
+			for (; i < end; i++) {
+				char c = s.charAt(i);
+
+				if (c < '0' || c > '9') {
+					break;
+				} else if (exponent < 100000) {
+					exponent = exponent * 10 + (c - '0');
+				}
+			}
+
+			if (i == exponentStart) {
+				return NaN;
+			}
+
+			scale += negativeExponent ? -exponent : exponent;
+		}
+
+		if (i != end) {
 			return NaN;
+		} else if (mantissa == 0L) {
+			return negative ? -0.0 : 0.0;
+		} else if (significantDigits != Integer.MAX_VALUE && mantissa <= 1L << 53 && scale >= -22 && scale <= 22) {
+			double value = scale < 0 ? mantissa / EXACT_POWERS_OF_TEN[-scale] : mantissa * EXACT_POWERS_OF_TEN[scale];
+			return negative ? -value : value;
 		}
+
+		return Double.parseDouble(s.subSequence(start, end).toString());
 	}
 
 	/**
@@ -822,18 +898,16 @@ public class ScriptRuntime {
 			return "0";
 		}
 
-		if (base != 10) {
+		int i = (int) d;
+
+		if (i == d) {
+			// most numbers in scripts are small integers
+			return Integer.toString(i, base);
+		} else if (base != 10) {
 			return DToA.JS_dtobasestr(base, d);
 		}
-		// V8 FastDtoa can't convert all numbers, so try it first but
-		// fall back to old DToA in case it fails
-		String result = FastDtoa.numberToString(d);
-		if (result != null) {
-			return result;
-		}
-		StringBuilder buffer = new StringBuilder();
-		DToA.JS_dtostr(buffer, DToA.DTOSTR_STANDARD, 0, d);
-		return buffer.toString();
+
+		return ShortestDToA.toString(d);
 	}
 
 	static String uneval(Context cx, Scriptable scope, Object value) {
@@ -926,7 +1000,7 @@ public class ScriptRuntime {
 			return (Scriptable) val;
 		}
 		if (val instanceof CharSequence) {
-			// FIXME we want to avoid toString() here, especially for concat()
+			// keeps ropes as they are, String methods only flatten them when they need to
 			NativeString result = new NativeString((CharSequence) val);
 			setBuiltinProtoAndParent(cx, scope, result, TopLevel.Builtins.String);
 			return result;
@@ -950,6 +1024,62 @@ public class ScriptRuntime {
 		throw errorWithClassName("msg.invalid.type", val, cx);
 	}
 
+	/**
+	 * Reads a property of a primitive string, number or boolean straight from the
+	 * builtin prototype, without creating a wrapper object for it.
+	 *
+	 * @return the value, or {@link Scriptable#NOT_FOUND} if <code>obj</code> isn't such a
+	 * primitive or the lookup needs a wrapper, e.g. because it ends up in a getter
+	 */
+	static Object getPrimitiveProperty(Context cx, Scriptable scope, Object obj, String property) {
+		TopLevel.Builtins type;
+
+		if (obj instanceof CharSequence cs) {
+			Object value = NativeString.getPrimitiveInstanceValue(cx, cs, property);
+			if (value != Scriptable.NOT_FOUND) {
+				return value;
+			}
+			type = TopLevel.Builtins.String;
+		} else if (obj instanceof Number) {
+			type = TopLevel.Builtins.Number;
+		} else if (obj instanceof Boolean) {
+			type = TopLevel.Builtins.Boolean;
+		} else {
+			return Scriptable.NOT_FOUND;
+		}
+
+		Scriptable proto = TopLevel.getBuiltinPrototype(ScriptableObject.getTopLevelScope(scope), type, cx);
+
+		for (Scriptable o = proto; o != null; o = o.getPrototype(cx)) {
+			// accessors would see the prototype instead of the wrapper as this
+			if (!(o instanceof ScriptableObject so) || so.isGetterOrSetter(property, 0, false)) {
+				return Scriptable.NOT_FOUND;
+			}
+
+			Object value = o.get(cx, property, o);
+			if (value != Scriptable.NOT_FOUND) {
+				return value;
+			}
+		}
+
+		return Scriptable.NOT_FOUND;
+	}
+
+	/**
+	 * Prepare for calling primitive.property(...) without wrapping the primitive:
+	 * returns the function found on the builtin prototype, or null if the call has
+	 * to go through {@link #getPropFunctionAndThis(Context, Scriptable, Object, String)}.
+	 * The caller keeps the primitive itself as thisObj.
+	 */
+	public static Callable getPrimitivePropFunction(Context cx, Scriptable scope, Object obj, String property) {
+		if (obj instanceof Scriptable) {
+			return null;
+		}
+
+		Object value = getPrimitiveProperty(cx, scope, obj, property);
+		return value instanceof Callable ? (Callable) value : null;
+	}
+
 	public static Scriptable newObject(Context cx, Scriptable scope, String constructorName, Object[] args) {
 		scope = ScriptableObject.getTopLevelScope(scope);
 		Function ctor = getExistingCtor(cx, scope, constructorName);
@@ -1247,6 +1377,13 @@ public class ScriptRuntime {
 	 * @param scope the scope that should be used to resolve primitive prototype
 	 */
 	public static Object getObjectProp(Context cx, Scriptable scope, Object obj, String property) {
+		if (!(obj instanceof Scriptable)) {
+			Object result = getPrimitiveProperty(cx, scope, obj, property);
+			if (result != Scriptable.NOT_FOUND) {
+				return result;
+			}
+		}
+
 		Scriptable sobj = toObjectOrNull(cx, obj, scope);
 		if (sobj == null) {
 			throw undefReadError(cx, obj, property);
@@ -1265,6 +1402,13 @@ public class ScriptRuntime {
 	}
 
 	public static Object getObjectPropNoWarn(Context cx, Scriptable scope, Object obj, String property) {
+		if (!(obj instanceof Scriptable)) {
+			Object result = getPrimitiveProperty(cx, scope, obj, property);
+			if (result != Scriptable.NOT_FOUND) {
+				return result;
+			}
+		}
+
 		Scriptable sobj = toObjectOrNull(cx, obj, scope);
 		if (sobj == null) {
 			throw undefReadError(cx, obj, property);
@@ -1277,6 +1421,13 @@ public class ScriptRuntime {
 	}
 
 	public static Object getObjectPropOptional(Context cx, Scriptable scope, Object obj, String property) {
+		if (!(obj instanceof Scriptable)) {
+			Object result = getPrimitiveProperty(cx, scope, obj, property);
+			if (result != Scriptable.NOT_FOUND) {
+				return result;
+			}
+		}
+
 		Scriptable sobj = toObjectOrNull(cx, obj, scope);
 		if (sobj == null) {
 			return Undefined.instance;
@@ -2097,15 +2248,15 @@ public class ScriptRuntime {
 			}
 			return wrapNumber(toNumber(cx, val1) + toNumber(cx, val2));
 		}
-		return new ConsString(toCharSequence(cx, val1), toCharSequence(cx, val2));
+		return ConsString.concat(toCharSequence(cx, val1), toCharSequence(cx, val2));
 	}
 
 	public static CharSequence add(Context cx, CharSequence val1, Object val2) {
-		return new ConsString(val1, toCharSequence(cx, val2));
+		return ConsString.concat(val1, toCharSequence(cx, val2));
 	}
 
 	public static CharSequence add(Context cx, Object val1, CharSequence val2) {
-		return new ConsString(toCharSequence(cx, val1), val2);
+		return ConsString.concat(toCharSequence(cx, val1), val2);
 	}
 
 	public static Object nameIncrDecr(Context cx, Scriptable scopeChain, String id, int incrDecrMask) {
@@ -2421,9 +2572,9 @@ public class ScriptRuntime {
 		} else if (y instanceof CharSequence c) {
 			return x.length() == c.length() && x.toString().equals(c.toString());
 		} else if (y instanceof Number) {
-			return toNumber(cx, x.toString()) == ((Number) y).doubleValue();
+			return toNumber(cx, x) == ((Number) y).doubleValue();
 		} else if (y instanceof Boolean) {
-			return toNumber(cx, x.toString()) == ((Boolean) y ? 1.0 : 0.0);
+			return toNumber(cx, x) == ((Boolean) y ? 1.0 : 0.0);
 		} else if (isSymbol(y)) {
 			return false;
 		} else if (y instanceof Scriptable) {
@@ -2615,10 +2766,12 @@ public class ScriptRuntime {
 		cx.topCallScope = ScriptableObject.getTopLevelScope(scope);
 		boolean previousTopLevelStrict = cx.isTopLevelStrict;
 		cx.isTopLevelStrict = isTopLevelStrict;
+		cx.startExecution();
 		try {
 			result = cx.doTopCall(callable, scope, thisObj, args);
 		} finally {
 			cx.topCallScope = null;
+			cx.endExecution();
 			// Cleanup cached references
 			cx.isTopLevelStrict = previousTopLevelStrict;
 
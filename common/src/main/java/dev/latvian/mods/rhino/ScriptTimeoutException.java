@@ -0,0 +1,28 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package dev.latvian.mods.rhino;
+
+import java.io.Serial;
+
+/**
+ * Thrown when a script exceeds the execution limits of its {@link Context} or is
+ * interrupted. Scripts can't catch it, it always reaches the Java code that
+ * called the script.
+ *
+ * @see Context#setMaximumExecutionTime(long)
+ * @see Context#setMaximumExecutionInstructions(long)
+ * @see Context#interrupt()
+ */
+public class ScriptTimeoutException extends RhinoException {
+	@Serial
+	private static final long serialVersionUID = 3459385236493485637L;
+
+	public ScriptTimeoutException(Context cx, String detail) {
+		super(cx, detail);
+		int[] linep = new int[1];
+		String sourceName = Context.getSourcePositionFromStack(cx, linep);
+		recordErrorOrigin(sourceName, linep[0], null, 0);
+	}
+}
@@ -1326,6 +1326,13 @@ public abstract class ScriptableObject implements Scriptable, SymbolScriptable,
 		slotMap = createSlotMap(0);
 	}
 
+	/**
+	 * Creates an object whose slot map is pre-sized for <code>initialCapacity</code> properties.
+	 */
+	protected ScriptableObject(int initialCapacity) {
+		slotMap = createSlotMap(initialCapacity);
+	}
+
 	public ScriptableObject(Scriptable scope, Scriptable prototype) {
 		if (scope == null) {
 			throw new IllegalArgumentException();
@@ -0,0 +1,246 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package dev.latvian.mods.rhino;
+
+import java.math.BigInteger;
+
+/**
+ * Shortest round-trip conversion of doubles to decimal strings, formatted the
+ * way Number.prototype.toString() does for radix 10.
+ * <p>
+ * This is Raffaello Giulietti's Schubfach algorithm: the decimal is picked from
+ * the rounding interval of the double using a single 128-bit multiplication by
+ * a cached power of ten, without any BigInteger arithmetic or shared state, so
+ * it never fails and is safe to call from any thread.
+ */
+final class ShortestDToA {
+	private static final int Q_MIN = -1074;
+	private static final long C_MIN = 1L << 52;
+	private static final int P = 53;
+	private static final long T_MASK = (1L << 52) - 1L;
+	private static final int BQ_MASK = 0x7FF;
+	private static final long MASK_63 = (1L << 63) - 1L;
+
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+
+	/**
+	 * For each k, the 126-bit value g = floor(10^-k / 2^r) + 1 with r chosen so
+	 * that 2^125 &lt;= g &lt; 2^126, split into its high and low 63 bits.
+	 */
+	private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+	static {
+		BigInteger mask63 = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			int r = flog2pow10(-k) - 125;
+			BigInteger g;
+
+			if (k <= 0) {
+				BigInteger p = BigInteger.TEN.pow(-k);
+				g = r >= 0 ? p.shiftRight(r) : p.shiftLeft(-r);
+			} else {
+				g = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+			}
+
+			g = g.add(BigInteger.ONE);
+			G[(k - K_MIN) << 1] = g.shiftRight(63).longValue();
+			G[((k - K_MIN) << 1) + 1] = g.and(mask63).longValue();
+		}
+	}
+
+	private ShortestDToA() {
+	}
+
+	/**
+	 * Converts a finite, non-zero double.
+	 */
+	static String toString(double v) {
+		long bits = Double.doubleToRawLongBits(v);
+		long t = bits & T_MASK;
+		int bq = (int) (bits >>> P - 1) & BQ_MASK;
+		boolean negative = bits < 0L;
+
+		if (bq == 0) {
+			// subnormal
+			return toDecimal(negative, Q_MIN, t);
+		}
+
+		int mq = -Q_MIN + 1 - bq;
+		long c = C_MIN | t;
+
+		if (0 < mq && mq < P) {
+			long f = c >> mq;
+
+			if (f << mq == c) {
+				// integral value below 2^53, its digits are already the shortest
+				return format(negative, f, 0);
+			}
+		}
+
+		return toDecimal(negative, -mq, c);
+	}
+
+	private static String toDecimal(boolean negative, int q, long c) {
+		int out = (int) c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2L;
+		long cbl;
+		int k;
+
+		if (c != C_MIN || q == Q_MIN) {
+			cbl = cb - 2L;
+			k = flog10pow2(q);
+		} else {
+			// the interval below a power of two is half as wide
+			cbl = cb - 1L;
+			k = flog10threeQuartersPow2(q);
+		}
+
+		int h = q + flog2pow10(-k) + 2;
+		long g1 = G[(k - K_MIN) << 1];
+		long g0 = G[((k - K_MIN) << 1) + 1];
+
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+
+		if (s >= 10L) {
+			// try one digit less first, the interval is too narrow to hold two multiples of 10
+			long sp10 = 10L * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+			long tp10 = sp10 + 10L;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+
+			if (upin != wpin) {
+				return format(negative, upin ? sp10 : tp10, k);
+			}
+		}
+
+		long t = s + 1L;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+
+		if (uin != win) {
+			return format(negative, uin ? s : t, k);
+		}
+
+		// both are in the interval, pick the closer one, or the even one on a tie
+		long cmp = vb - (s + t << 1);
+		return format(negative, cmp < 0L || cmp == 0L && (s & 1L) == 0L ? s : t, k);
+	}
+
+	/**
+	 * Rounds (g1 * 2^63 + g0) * cp / 2^127 to odd.
+	 */
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = Math.multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = Math.multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	// floor(q * log10(2))
+	private static int flog10pow2(int q) {
+		return (int) (q * 661_971_961_083L >> 41);
+	}
+
+	// floor(q * log10(2) + log10(3/4))
+	private static int flog10threeQuartersPow2(int q) {
+		return (int) (q * 661_971_961_083L + -274_743_187_321L >> 41);
+	}
+
+	// floor(e * log2(10))
+	private static int flog2pow10(int e) {
+		return (int) (e * 913_124_641_741L >> 38);
+	}
+
+	/**
+	 * Formats f * 10^e following the Number::toString rules of ECMA 262.
+	 */
+	private static String format(boolean negative, long f, int e) {
+		while (f % 10L == 0L) {
+			f /= 10L;
+			e++;
+		}
+
+		char[] digits = new char[20];
+		int k = 0;
+
+		for (long x = f; x != 0L; x /= 10L) {
+			digits[digits.length - ++k] = (char) ('0' + x % 10L);
+		}
+
+		int d = digits.length - k;
+		int n = k + e;
+		char[] buf = new char[k + 28];
+		int i = 0;
+
+		if (negative) {
+			buf[i++] = '-';
+		}
+
+		if (k <= n && n <= 21) {
+			System.arraycopy(digits, d, buf, i, k);
+			i += k;
+
+			for (int z = k; z < n; z++) {
+				buf[i++] = '0';
+			}
+		} else if (0 < n && n <= 21) {
+			System.arraycopy(digits, d, buf, i, n);
+			i += n;
+			buf[i++] = '.';
+			System.arraycopy(digits, d + n, buf, i, k - n);
+			i += k - n;
+		} else if (-6 < n && n <= 0) {
+			buf[i++] = '0';
+			buf[i++] = '.';
+
+			for (int z = n; z < 0; z++) {
+				buf[i++] = '0';
+			}
+
+			System.arraycopy(digits, d, buf, i, k);
+			i += k;
+		} else {
+			buf[i++] = digits[d];
+
+			if (k > 1) {
+				buf[i++] = '.';
+				System.arraycopy(digits, d + 1, buf, i, k - 1);
+				i += k - 1;
+			}
+
+			buf[i++] = 'e';
+			int exp = n - 1;
+
+			if (exp < 0) {
+				buf[i++] = '-';
+				exp = -exp;
+			} else {
+				buf[i++] = '+';
+			}
+
+			if (exp >= 100) {
+				buf[i++] = (char) ('0' + exp / 100);
+				buf[i++] = (char) ('0' + exp / 10 % 10);
+			} else if (exp >= 10) {
+				buf[i++] = (char) ('0' + exp / 10);
+			}
+
+			buf[i++] = (char) ('0' + exp % 10);
+		}
+
+		return new String(buf, 0, i);
+	}
+}
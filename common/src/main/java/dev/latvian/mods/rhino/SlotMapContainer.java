@@ -30,7 +30,7 @@ class SlotMapContainer implements SlotMap {
 		if (initialSize > LARGE_HASH_SIZE) {
 			map = new HashSlotMap();
 		} else {
-			map = new EmbeddedSlotMap();
+			map = new EmbeddedSlotMap(initialSize);
 		}
 	}
 
@@ -8,6 +8,14 @@ import java.util.Comparator;
 
 public final class Sorting {
 	private static final int SMALLSORT = 16;
+	/**
+	 * Arrays shorter than this are sorted with binary insertion sort alone.
+	 */
+	private static final int MIN_MERGE = 32;
+	/**
+	 * Enough pending runs for any int length, as run lengths grow at least as fast as Fibonacci numbers.
+	 */
+	private static final int MAX_RUNS = 49;
 
 	private static final Sorting sorting = new Sorting();
 
@@ -35,6 +43,87 @@ public final class Sorting {
 		a[h] = tmp;
 	}
 
+	/**
+	 * Returns the length of the run at the start of the range, reversing it if it is strictly descending.
+	 */
+	private static int countRunAndMakeAscending(Object[] a, int lo, int hi, Comparator<Object> cmp) {
+		int runHi = lo + 1;
+		if (runHi == hi) {
+			return 1;
+		}
+
+		if (cmp.compare(a[runHi++], a[lo]) < 0) {
+			while (runHi < hi && cmp.compare(a[runHi], a[runHi - 1]) < 0) {
+				runHi++;
+			}
+
+			for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+				swap(a, i, j);
+			}
+		} else {
+			while (runHi < hi && cmp.compare(a[runHi], a[runHi - 1]) >= 0) {
+				runHi++;
+			}
+		}
+
+		return runHi - lo;
+	}
+
+	/**
+	 * Sorts a[lo, hi) where a[lo, start) is already sorted, placing each element after any equal ones.
+	 */
+	private static void binaryInsertionSort(Object[] a, int lo, int hi, int start, Comparator<Object> cmp) {
+		if (start == lo) {
+			start++;
+		}
+
+		for (; start < hi; start++) {
+			Object pivot = a[start];
+			int left = upperBound(a, lo, start, pivot, cmp);
+			System.arraycopy(a, left, a, left + 1, start - left);
+			a[left] = pivot;
+		}
+	}
+
+	/**
+	 * @return index of the first element in a[lo, hi) that is greater than key, or hi
+	 */
+	private static int upperBound(Object[] a, int lo, int hi, Object key, Comparator<Object> cmp) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (cmp.compare(key, a[mid]) < 0) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return index of the first element in a[lo, hi) that is not less than key, or hi
+	 */
+	private static int lowerBound(Object[] a, int lo, int hi, Object key, Comparator<Object> cmp) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (cmp.compare(a[mid], key) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static int minRunLength(int n) {
+		int r = 0;
+		while (n >= MIN_MERGE) {
+			r |= n & 1;
+			n >>= 1;
+		}
+		return n + r;
+	}
+
 	private static int log2(int n) {
 		return (int) (Math.log10(n) / Math.log10(2.0));
 	}
@@ -46,6 +135,173 @@ public final class Sorting {
 		insertionSort(a, 0, a.length - 1, cmp);
 	}
 
+	/*
+	Stable sort after Tim Peters' TimSort, as used by Array.prototype.sort. Ascending runs are found
+	(strictly descending ones are reversed), short runs are extended with binary insertion sort, and
+	runs are merged while they are pushed on a stack, keeping their lengths balanced. Merges copy
+	the shorter run aside and skip the elements that are already in place, but don't gallop.
+	Unlike java.util.Arrays.sort, a comparator that isn't consistent only leaves the array in some
+	order, it is never reported. If the comparator throws, elements may be lost from the array.
+	*/
+	public void timSort(Object[] a, Comparator<Object> cmp) {
+		int n = a.length;
+		if (n < 2) {
+			return;
+		} else if (n < MIN_MERGE) {
+			binaryInsertionSort(a, 0, n, countRunAndMakeAscending(a, 0, n, cmp), cmp);
+			return;
+		}
+
+		TimSort sort = new TimSort(a, cmp);
+		int minRun = minRunLength(n);
+		int lo = 0;
+
+		do {
+			int run = countRunAndMakeAscending(a, lo, n, cmp);
+			if (run < minRun) {
+				int force = Math.min(n - lo, minRun);
+				binaryInsertionSort(a, lo, lo + force, lo + run, cmp);
+				run = force;
+			}
+
+			sort.pushRun(lo, run);
+			sort.mergeCollapse();
+			lo += run;
+		}
+		while (lo < n);
+
+		sort.mergeForceCollapse();
+	}
+
+	private static final class TimSort {
+		private final Object[] a;
+		private final Comparator<Object> cmp;
+		private final int[] runBase = new int[MAX_RUNS];
+		private final int[] runLen = new int[MAX_RUNS];
+		private int stackSize;
+		private Object[] tmp;
+
+		private TimSort(Object[] a, Comparator<Object> cmp) {
+			this.a = a;
+			this.cmp = cmp;
+			this.tmp = new Object[Math.min(256, a.length >>> 1)];
+		}
+
+		private void pushRun(int base, int len) {
+			runBase[stackSize] = base;
+			runLen[stackSize] = len;
+			stackSize++;
+		}
+
+		/**
+		 * Merges runs until each is longer than the two above it together, and each is longer than the one above it.
+		 */
+		private void mergeCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1] || n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1]) {
+					if (runLen[n - 1] < runLen[n + 1]) {
+						n--;
+					}
+				} else if (runLen[n] > runLen[n + 1]) {
+					break;
+				}
+				mergeAt(n);
+			}
+		}
+
+		private void mergeForceCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+					n--;
+				}
+				mergeAt(n);
+			}
+		}
+
+		/**
+		 * Merges the runs at stack index i and i + 1.
+		 */
+		private void mergeAt(int i) {
+			int base1 = runBase[i];
+			int len1 = runLen[i];
+			int base2 = runBase[i + 1];
+			int len2 = runLen[i + 1];
+
+			runLen[i] = len1 + len2;
+			if (i == stackSize - 3) {
+				runBase[i + 1] = runBase[i + 2];
+				runLen[i + 1] = runLen[i + 2];
+			}
+			stackSize--;
+
+			// elements of run 1 up to the first element of run 2, and elements of run 2 from the last element of run 1, are in place
+			int start1 = upperBound(a, base1, base2, a[base2], cmp);
+			len1 -= start1 - base1;
+			if (len1 == 0) {
+				return;
+			}
+
+			len2 = lowerBound(a, base2, base2 + len2, a[base2 - 1], cmp) - base2;
+			if (len2 == 0) {
+				return;
+			}
+
+			if (len1 <= len2) {
+				mergeLo(start1, len1, base2, len2);
+			} else {
+				mergeHi(start1, len1, base2, len2);
+			}
+		}
+
+		private Object[] ensureCapacity(int capacity) {
+			if (tmp.length < capacity) {
+				tmp = new Object[Math.max(capacity, Math.min(tmp.length * 2, a.length >>> 1))];
+			}
+			return tmp;
+		}
+
+		private void mergeLo(int base1, int len1, int base2, int len2) {
+			Object[] t = ensureCapacity(len1);
+			System.arraycopy(a, base1, t, 0, len1);
+			int c1 = 0;
+			int c2 = base2;
+			int end2 = base2 + len2;
+			int dest = base1;
+
+			while (c1 < len1 && c2 < end2) {
+				if (cmp.compare(a[c2], t[c1]) < 0) {
+					a[dest++] = a[c2++];
+				} else {
+					a[dest++] = t[c1++];
+				}
+			}
+
+			// the rest of run 2 is already in place
+			System.arraycopy(t, c1, a, dest, len1 - c1);
+		}
+
+		private void mergeHi(int base1, int len1, int base2, int len2) {
+			Object[] t = ensureCapacity(len2);
+			System.arraycopy(a, base2, t, 0, len2);
+			int c1 = base1 + len1 - 1;
+			int c2 = len2 - 1;
+			int dest = base2 + len2 - 1;
+
+			while (c1 >= base1 && c2 >= 0) {
+				if (cmp.compare(t[c2], a[c1]) < 0) {
+					a[dest--] = a[c1--];
+				} else {
+					a[dest--] = t[c2--];
+				}
+			}
+
+			// the rest of run 1 is already in place
+			System.arraycopy(t, 0, a, dest - c2, c2 + 1);
+		}
+	}
+
 	/*
 	Hybrid sorting mechanism similar to Introsort by David Musser. Uses quicksort's
 	partitioning mechanism recursively until the resulting array is small or the
@@ -433,10 +433,8 @@ class TokenStream {
 
 				double dval;
 				if (base == 10 && !isInteger) {
-					try {
-						// Use Java conversion to number from string...
-						dval = Double.parseDouble(numString);
-					} catch (NumberFormatException ex) {
+					dval = ScriptRuntime.decimalToNumber(numString, 0, numString.length());
+					if (Double.isNaN(dval)) {
 						parser.addError("msg.caught.nfe");
 						return Token.ERROR;
 					}
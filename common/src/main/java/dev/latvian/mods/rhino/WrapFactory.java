@@ -69,6 +69,10 @@ public class WrapFactory {
 			}
 		}
 
+		if (cx.metrics != null) {
+			cx.metrics.wrappers++;
+		}
+
 		Class<?> cls = obj.getClass();
 
 		if (cls.isArray()) {
@@ -90,6 +94,9 @@ public class WrapFactory {
 		if (obj instanceof Scriptable) {
 			return (Scriptable) obj;
 		}
+		if (cx.metrics != null) {
+			cx.metrics.wrappers++;
+		}
 		Class<?> cls = obj.getClass();
 		if (cls.isArray()) {
 			return NativeJavaArray.wrap(scope, obj, cx);
@@ -10,14 +10,26 @@ import dev.latvian.mods.rhino.Context;
 import dev.latvian.mods.rhino.ScriptRuntime;
 import dev.latvian.mods.rhino.Scriptable;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.Serial;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * This class converts a stream of JSON tokens into a JSON value.
  * <p>
  * See ECMA 15.12.
+ * <p>
+ * Input is read through a small sliding buffer, so a {@link Reader} or a
+ * UTF-8 encoded {@link ByteBuffer} can be parsed without first being turned
+ * into one big string. Those usually come from files, so a leading byte order
+ * mark is skipped, unlike in strings, which follow JSON.parse. Parsers keep
+ * their state in fields and are not thread-safe; use one instance per thread.
  *
  * @author Raphael Speyer
  * @author Hannes Wallnoefer
@@ -38,45 +50,190 @@ public class JsonParser {
 		}
 	}
 
+	private static final int BUFFER_SIZE = 8192;
+
+	// must be a power of 2
+	private static final int KEY_CACHE_SIZE = 256;
+
+	private static final int MAX_CACHED_KEY_LENGTH = 64;
+
+	// integers with at most this many digits are exactly representable as doubles
+	private static final int MAX_FAST_INTEGER_DIGITS = 15;
+
 	private static int fromHex(char c) {
 		return c >= '0' && c <= '9' ? c - '0' : c >= 'A' && c <= 'F' ? c - 'A' + 10 : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
 	}
 
 	private final Scriptable scope;
+	private final String[] keyCache = new String[KEY_CACHE_SIZE];
+
+	// sliding window over the input; buf[0] is at input offset 'offset'
+	private char[] buf;
 	private int pos;
-	private int length;
-	private String src;
+	private int limit;
+	private int offset;
+	// start of the token being read, kept in the buffer across refills, or -1
+	private int mark;
+
+	private String srcString;
+	private int srcStringPos;
+	private Reader srcReader;
+	private ByteBuffer srcBytes;
+	private CharsetDecoder decoder;
+
+	// pending array elements and object key/value pairs of all open literals
+	private Object[] stack = new Object[32];
+	private int stackSize;
 
 	public JsonParser(Scriptable scope) {
 		this.scope = scope;
 	}
 
-	public synchronized Object parseValue(Context cx, String json) throws ParseException {
+	public Object parseValue(Context cx, String json) throws ParseException {
 		if (json == null) {
 			throw new ParseException("Input string may not be null");
 		}
+		srcString = json;
+		srcStringPos = 0;
+		return parse(cx, Math.min(json.length(), BUFFER_SIZE), false);
+	}
+
+	public Object parseValue(Context cx, Reader json) throws ParseException {
+		if (json == null) {
+			throw new ParseException("Input reader may not be null");
+		}
+		srcReader = json;
+		return parse(cx, BUFFER_SIZE, true);
+	}
+
+	/**
+	 * Parses UTF-8 encoded JSON from the remaining bytes of the buffer.
+	 */
+	public Object parseValue(Context cx, ByteBuffer json) throws ParseException {
+		if (json == null) {
+			throw new ParseException("Input buffer may not be null");
+		}
+		srcBytes = json;
+		decoder = StandardCharsets.UTF_8.newDecoder();
+		return parse(cx, BUFFER_SIZE, true);
+	}
+
+	private Object parse(Context cx, int bufferSize, boolean skipBom) throws ParseException {
+		buf = new char[Math.max(bufferSize, 16)];
 		pos = 0;
-		length = json.length();
-		src = json;
-		Object value = readValue(cx);
-		consumeWhitespace();
-		if (pos < length) {
-			throw new ParseException("Expected end of stream at char " + pos);
+		limit = 0;
+		offset = 0;
+		mark = -1;
+		stackSize = 0;
+
+		try {
+			if (skipBom && (pos < limit || fill()) && buf[pos] == '\uFEFF') {
+				pos++;
+			}
+
+			Object value = readValue(cx);
+			consumeWhitespace();
+			if (pos < limit || fill()) {
+				throw new ParseException("Expected end of stream at char " + (offset + pos));
+			}
+			return value;
+		} finally {
+			buf = null;
+			srcString = null;
+			srcReader = null;
+			srcBytes = null;
+			decoder = null;
+			Arrays.fill(stack, 0, stackSize, null);
+			stackSize = 0;
 		}
-		return value;
+	}
+
+	/**
+	 * Makes more input available after <code>pos</code> has reached <code>limit</code>.
+	 * Everything before the current token is discarded, growing the buffer only
+	 * when a single token doesn't fit.
+	 *
+	 * @return false at the end of input
+	 */
+	private boolean fill() throws ParseException {
+		int keep = mark >= 0 ? mark : pos;
+
+		if (keep > 0) {
+			System.arraycopy(buf, keep, buf, 0, limit - keep);
+			offset += keep;
+			limit -= keep;
+			pos -= keep;
+
+			if (mark >= 0) {
+				mark = 0;
+			}
+		}
+
+		if (buf.length - limit < 2) {
+			buf = Arrays.copyOf(buf, buf.length * 2);
+		}
+
+		int n;
+
+		do {
+			n = read(limit, buf.length - limit);
+		}
+		while (n == 0);
+
+		if (n < 0) {
+			return false;
+		}
+
+		limit += n;
+		return true;
+	}
+
+	private int read(int off, int len) throws ParseException {
+		if (srcString != null) {
+			int n = Math.min(len, srcString.length() - srcStringPos);
+
+			if (n <= 0) {
+				return -1;
+			}
+
+			srcString.getChars(srcStringPos, srcStringPos + n, buf, off);
+			srcStringPos += n;
+			return n;
+		} else if (srcReader != null) {
+			try {
+				return srcReader.read(buf, off, len);
+			} catch (IOException ex) {
+				throw new ParseException(ex);
+			}
+		} else if (decoder != null) {
+			CharBuffer out = CharBuffer.wrap(buf, off, len);
+			CoderResult result = decoder.decode(srcBytes, out, true);
+
+			if (result.isError()) {
+				throw new ParseException("Malformed UTF-8 input at byte " + srcBytes.position());
+			} else if (result.isUnderflow()) {
+				decoder.flush(out);
+				decoder = null;
+			}
+
+			int n = out.position() - off;
+			return n == 0 && decoder == null ? -1 : n;
+		}
+
+		return -1;
 	}
 
 	private Object readValue(Context cx) throws ParseException {
 		consumeWhitespace();
-		while (pos < length) {
-			char c = src.charAt(pos++);
+		if (pos < limit || fill()) {
+			char c = buf[pos++];
 			return switch (c) {
 				case '{' -> readObject(cx);
 				case '[' -> readArray(cx);
-				case 't' -> readTrue();
-				case 'f' -> readFalse();
-				case '"' -> readString();
-				case 'n' -> readNull();
+				case 't' -> readLiteral("rue", Boolean.TRUE, c);
+				case 'f' -> readLiteral("alse", Boolean.FALSE, c);
+				case '"' -> readString(false);
+				case 'n' -> readLiteral("ull", null, c);
 				case '1', '2', '3', '4', '5', '6', '7', '8', '9', '0', '-' -> readNumber(c);
 				default -> throw new ParseException("Unexpected token: " + c);
 			};
@@ -86,23 +243,21 @@ public class JsonParser {
 
 	private Object readObject(Context cx) throws ParseException {
 		consumeWhitespace();
-		Scriptable object = cx.newObject(scope);
+		int base = stackSize;
 		// handle empty object literal case early
-		if (pos < length && src.charAt(pos) == '}') {
+		if ((pos < limit || fill()) && buf[pos] == '}') {
 			pos += 1;
-			return object;
+			return cx.newObject(scope);
 		}
-		String id;
-		Object value;
 		boolean needsComma = false;
-		while (pos < length) {
-			char c = src.charAt(pos++);
+		while (pos < limit || fill()) {
+			char c = buf[pos++];
 			switch (c) {
 				case '}' -> {
 					if (!needsComma) {
 						throw new ParseException("Unexpected comma in object literal");
 					}
-					return object;
+					return popObject(cx, base);
 				}
 				case ',' -> {
 					if (!needsComma) {
@@ -114,15 +269,9 @@ public class JsonParser {
 					if (needsComma) {
 						throw new ParseException("Missing comma in object literal");
 					}
-					id = readString();
+					push(readString(true));
 					consume(':');
-					value = readValue(cx);
-					long index = ScriptRuntime.indexFromString(id);
-					if (index < 0) {
-						object.put(cx, id, object, value);
-					} else {
-						object.put(cx, (int) index, object, value);
-					}
+					push(readValue(cx));
 					needsComma = true;
 				}
 				default -> throw new ParseException("Unexpected token in object literal");
@@ -132,24 +281,47 @@ public class JsonParser {
 		throw new ParseException("Unterminated object literal");
 	}
 
+	private Scriptable popObject(Context cx, int base) {
+		Scriptable object = cx.newObject(scope, (stackSize - base) >> 1);
+
+		for (int i = base; i < stackSize; i += 2) {
+			String id = (String) stack[i];
+			Object value = stack[i + 1];
+			long index = ScriptRuntime.indexFromString(id);
+			if (index < 0) {
+				object.put(cx, id, object, value);
+			} else {
+				object.put(cx, (int) index, object, value);
+			}
+		}
+
+		Arrays.fill(stack, base, stackSize, null);
+		stackSize = base;
+		return object;
+	}
+
 	private Object readArray(Context cx) throws ParseException {
 		consumeWhitespace();
+		int base = stackSize;
 		// handle empty array literal case early
-		if (pos < length && src.charAt(pos) == ']') {
+		if ((pos < limit || fill()) && buf[pos] == ']') {
 			pos += 1;
 			return cx.newArray(scope, 0);
 		}
-		List<Object> list = new ArrayList<>();
 		boolean needsComma = false;
-		while (pos < length) {
-			char c = src.charAt(pos);
+		while (pos < limit || fill()) {
+			char c = buf[pos];
 			switch (c) {
 				case ']' -> {
 					if (!needsComma) {
 						throw new ParseException("Unexpected comma in array literal");
 					}
 					pos += 1;
-					return cx.newArray(scope, list.toArray());
+					// the copy becomes the dense storage of the array
+					Object[] elements = Arrays.copyOfRange(stack, base, stackSize);
+					Arrays.fill(stack, base, stackSize, null);
+					stackSize = base;
+					return cx.newArray(scope, elements);
 				}
 				case ',' -> {
 					if (!needsComma) {
@@ -162,7 +334,7 @@ public class JsonParser {
 					if (needsComma) {
 						throw new ParseException("Missing comma in array literal");
 					}
-					list.add(readValue(cx));
+					push(readValue(cx));
 					needsComma = true;
 				}
 			}
@@ -171,185 +343,229 @@ public class JsonParser {
 		throw new ParseException("Unterminated array literal");
 	}
 
-	private String readString() throws ParseException {
+	private void push(Object value) {
+		if (stackSize == stack.length) {
+			stack = Arrays.copyOf(stack, stackSize * 2);
+		}
+
+		stack[stackSize++] = value;
+	}
+
+	private String readString(boolean key) throws ParseException {
 		/*
 		 * Optimization: if the source contains no escaped characters, create the
-		 * string directly from the source text.
+		 * string directly from the buffer. Object keys are also looked up in a
+		 * small cache, so repeated keys share one String instance.
 		 */
-		int stringStart = pos;
-		while (pos < length) {
-			char c = src.charAt(pos++);
-			if (c <= '\u001F') {
-				throw new ParseException("String contains control character");
+		mark = pos;
+		int hash = 0;
+		StringBuilder b = null;
+
+		while (pos < limit || fill()) {
+			char c = buf[pos++];
+			if (c == '"') {
+				int length = pos - 1 - mark;
+				String s;
+				if (b != null) {
+					s = b.append(buf, mark, length).toString();
+				} else if (key && length <= MAX_CACHED_KEY_LENGTH) {
+					s = cachedKey(mark, length, hash);
+				} else {
+					s = new String(buf, mark, length);
+				}
+				mark = -1;
+				return s;
 			} else if (c == '\\') {
-				break;
-			} else if (c == '"') {
-				return src.substring(stringStart, pos - 1);
+				/*
+				 * Slow case: string contains escaped characters. Copy the run of
+				 * unescaped characters into a temporary buffer, then the escaped
+				 * character, and repeat until the entire string is consumed.
+				 */
+				if (b == null) {
+					b = new StringBuilder();
+				}
+				b.append(buf, mark, pos - 1 - mark);
+				mark = -1;
+				b.append(readEscape());
+				mark = pos;
+			} else if (c <= '\u001F') {
+				throw new ParseException("String contains control character");
+			} else {
+				hash = 31 * hash + c;
 			}
 		}
+		throw new ParseException("Unterminated string literal");
+	}
 
-		/*
-		 * Slow case: string contains escaped characters.  Copy a maximal sequence
-		 * of unescaped characters into a temporary buffer, then an escaped
-		 * character, and repeat until the entire string is consumed.
-		 */
-		StringBuilder b = new StringBuilder();
-		while (pos < length) {
-			assert src.charAt(pos - 1) == '\\';
-			b.append(src, stringStart, pos - 1);
-			if (pos >= length) {
-				throw new ParseException("Unterminated string");
+	private String cachedKey(int start, int length, int hash) {
+		int index = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+		String cached = keyCache[index];
+
+		if (cached != null && cached.length() == length && cached.hashCode() == hash) {
+			boolean equal = true;
+
+			for (int i = 0; i < length; i++) {
+				if (cached.charAt(i) != buf[start + i]) {
+					equal = false;
+					break;
+				}
 			}
-			char c = src.charAt(pos++);
-			switch (c) {
-				case '"' -> b.append('"');
-				case '\\' -> b.append('\\');
-				case '/' -> b.append('/');
-				case 'b' -> b.append('\b');
-				case 'f' -> b.append('\f');
-				case 'n' -> b.append('\n');
-				case 'r' -> b.append('\r');
-				case 't' -> b.append('\t');
-				case 'u' -> {
-					if (length - pos < 5) {
-						throw new ParseException("Invalid character code: \\u" + src.substring(pos));
-					}
-					int code = fromHex(src.charAt(pos)) << 12 | fromHex(src.charAt(pos + 1)) << 8 | fromHex(src.charAt(pos + 2)) << 4 | fromHex(src.charAt(pos + 3));
-					if (code < 0) {
-						throw new ParseException("Invalid character code: " + src.substring(pos, pos + 4));
+
+			if (equal) {
+				return cached;
+			}
+		}
+
+		String s = new String(buf, start, length);
+		keyCache[index] = s;
+		return s;
+	}
+
+	private char readEscape() throws ParseException {
+		if (pos >= limit && !fill()) {
+			throw new ParseException("Unterminated string");
+		}
+		char c = buf[pos++];
+		return switch (c) {
+			case '"' -> '"';
+			case '\\' -> '\\';
+			case '/' -> '/';
+			case 'b' -> '\b';
+			case 'f' -> '\f';
+			case 'n' -> '\n';
+			case 'r' -> '\r';
+			case 't' -> '\t';
+			case 'u' -> {
+				mark = pos;
+				for (int i = 0; i < 4; i++) {
+					if (pos >= limit && !fill()) {
+						throw new ParseException("Invalid character code: \\u" + new String(buf, mark, pos - mark));
 					}
-					pos += 4;
-					b.append((char) code);
+					pos++;
 				}
-				default -> throw new ParseException("Unexpected character in string: '\\" + c + "'");
-			}
-			stringStart = pos;
-			while (pos < length) {
-				c = src.charAt(pos++);
-				if (c <= '\u001F') {
-					throw new ParseException("String contains control character");
-				} else if (c == '\\') {
-					break;
-				} else if (c == '"') {
-					b.append(src, stringStart, pos - 1);
-					return b.toString();
+				int code = fromHex(buf[mark]) << 12 | fromHex(buf[mark + 1]) << 8 | fromHex(buf[mark + 2]) << 4 | fromHex(buf[mark + 3]);
+				if (code < 0) {
+					throw new ParseException("Invalid character code: " + new String(buf, mark, 4));
 				}
+				yield (char) code;
 			}
-		}
-		throw new ParseException("Unterminated string literal");
+			default -> throw new ParseException("Unexpected character in string: '\\" + c + "'");
+		};
 	}
 
 	private Number readNumber(char c) throws ParseException {
 		assert c == '-' || (c >= '0' && c <= '9');
-		final int numberStart = pos - 1;
-		if (c == '-') {
-			c = nextOrNumberError(numberStart);
+		mark = pos - 1;
+		final boolean negative = c == '-';
+		if (negative) {
+			c = nextOrNumberError();
 			if (!(c >= '0' && c <= '9')) {
-				throw numberError(numberStart, pos);
+				throw numberError();
 			}
 		}
+		// accumulate the integer part directly, so plain integers skip the general number parser
+		long value = c - '0';
+		int digits = 1;
 		if (c != '0') {
-			readDigits();
-		}
-		// read optional fraction part
-		if (pos < length) {
-			c = src.charAt(pos);
-			if (c == '.') {
-				pos += 1;
-				c = nextOrNumberError(numberStart);
+			while (pos < limit || fill()) {
+				c = buf[pos];
 				if (!(c >= '0' && c <= '9')) {
-					throw numberError(numberStart, pos);
+					break;
+				}
+				value = value * 10L + (c - '0');
+				digits++;
+				pos++;
+				if (digits > MAX_FAST_INTEGER_DIGITS) {
+					readDigits();
+					break;
 				}
-				readDigits();
 			}
 		}
+		boolean integer = true;
+		// read optional fraction part
+		if ((pos < limit || fill()) && buf[pos] == '.') {
+			integer = false;
+			pos += 1;
+			c = nextOrNumberError();
+			if (!(c >= '0' && c <= '9')) {
+				throw numberError();
+			}
+			readDigits();
+		}
 		// read optional exponent part
-		if (pos < length) {
-			c = src.charAt(pos);
+		if (pos < limit || fill()) {
+			c = buf[pos];
 			if (c == 'e' || c == 'E') {
+				integer = false;
 				pos += 1;
-				c = nextOrNumberError(numberStart);
+				c = nextOrNumberError();
 				if (c == '-' || c == '+') {
-					c = nextOrNumberError(numberStart);
+					c = nextOrNumberError();
 				}
 				if (!(c >= '0' && c <= '9')) {
-					throw numberError(numberStart, pos);
+					throw numberError();
 				}
 				readDigits();
 			}
 		}
-		String num = src.substring(numberStart, pos);
-		final double dval = Double.parseDouble(num);
-		final int ival = (int) dval;
+		final double dval;
+		if (integer && digits <= MAX_FAST_INTEGER_DIGITS) {
+			dval = negative ? -(double) value : (double) value;
+		} else {
+			dval = ScriptRuntime.decimalToNumber(CharBuffer.wrap(buf, mark, pos - mark), 0, pos - mark);
+		}
+		mark = -1;
 		return dval;
 	}
 
-	private ParseException numberError(int start, int end) {
-		return new ParseException("Unsupported number format: " + src.substring(start, end));
+	private ParseException numberError() {
+		return new ParseException("Unsupported number format: " + new String(buf, mark, pos - mark));
 	}
 
-	private char nextOrNumberError(int numberStart) throws ParseException {
-		if (pos >= length) {
-			throw numberError(numberStart, length);
+	private char nextOrNumberError() throws ParseException {
+		if (pos >= limit && !fill()) {
+			throw numberError();
 		}
-		return src.charAt(pos++);
+		return buf[pos++];
 	}
 
-	private void readDigits() {
-		for (; pos < length; ++pos) {
-			char c = src.charAt(pos);
+	private void readDigits() throws ParseException {
+		while (pos < limit || fill()) {
+			char c = buf[pos];
 			if (!(c >= '0' && c <= '9')) {
 				break;
 			}
+			pos++;
 		}
 	}
 
-	private Boolean readTrue() throws ParseException {
-		if (length - pos < 3 || src.charAt(pos) != 'r' || src.charAt(pos + 1) != 'u' || src.charAt(pos + 2) != 'e') {
-			throw new ParseException("Unexpected token: t");
-		}
-		pos += 3;
-		return Boolean.TRUE;
-	}
-
-	private Boolean readFalse() throws ParseException {
-		if (length - pos < 4 || src.charAt(pos) != 'a' || src.charAt(pos + 1) != 'l' || src.charAt(pos + 2) != 's' || src.charAt(pos + 3) != 'e') {
-			throw new ParseException("Unexpected token: f");
-		}
-		pos += 4;
-		return Boolean.FALSE;
-	}
-
-	private Object readNull() throws ParseException {
-		if (length - pos < 3 || src.charAt(pos) != 'u' || src.charAt(pos + 1) != 'l' || src.charAt(pos + 2) != 'l') {
-			throw new ParseException("Unexpected token: n");
+	private Object readLiteral(String rest, Object value, char token) throws ParseException {
+		for (int i = 0; i < rest.length(); i++) {
+			if ((pos >= limit && !fill()) || buf[pos] != rest.charAt(i)) {
+				throw new ParseException("Unexpected token: " + token);
+			}
+			pos++;
 		}
-		pos += 3;
-		return null;
+		return value;
 	}
 
-	private void consumeWhitespace() {
-		while (pos < length) {
-			char c = src.charAt(pos);
-			switch (c) {
-				case ' ':
-				case '\t':
-				case '\r':
-				case '\n':
-					pos += 1;
-					break;
-				default:
+	private void consumeWhitespace() throws ParseException {
+		while (pos < limit || fill()) {
+			switch (buf[pos]) {
+				case ' ', '\t', '\r', '\n' -> pos += 1;
+				default -> {
 					return;
+				}
 			}
 		}
 	}
 
 	private void consume(char token) throws ParseException {
 		consumeWhitespace();
-		if (pos >= length) {
+		if (pos >= limit && !fill()) {
 			throw new ParseException("Expected " + token + " but reached end of stream");
 		}
-		char c = src.charAt(pos++);
+		char c = buf[pos++];
 		if (c == token) {
 			return;
 		}
@@ -7,6 +7,8 @@ import java.io.InputStream;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -17,18 +19,16 @@ public class MinecraftRemapper implements Remapper {
 		private final String realName;
 		private final String remappedName;
 		private final boolean remapped;
-		private Map<String, String> fields;
-		private Map<String, String> emptyMethods;
-		private Map<String, String> methods;
 		private String descriptorString;
+		private int membersOffset;
+		private volatile Members members;
 
 		private RemappedClass(String realName, String remappedName, boolean remapped) {
 			this.realName = realName;
 			this.remappedName = remappedName;
 			this.remapped = remapped;
-			this.fields = null;
-			this.emptyMethods = null;
-			this.methods = null;
+			this.membersOffset = -1;
+			this.members = null;
 		}
 
 		@Override
@@ -60,6 +60,37 @@ public class MinecraftRemapper implements Remapper {
 		}
 	}
 
+	/**
+	 * Field and method mappings of one class, decoded from the mappings buffer the first time the class is looked up.
+	 * Methods with parameters are grouped by name and matched by their parameter descriptors.
+	 */
+	private record Members(Map<String, String> fields, Map<String, String> emptyMethods, Map<String, MethodMapping[]> methods) {
+		private static final Members NONE = new Members(Map.of(), Map.of(), Map.of());
+	}
+
+	private record MethodMapping(String[] parameters, String remappedName) {
+		private boolean matches(Class<?>[] types) {
+			if (types.length != parameters.length) {
+				return false;
+			}
+
+			for (int i = 0; i < types.length; i++) {
+				if (!parameters[i].equals(DESCRIPTORS.get(types[i]))) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	private static final ClassValue<String> DESCRIPTORS = new ClassValue<>() {
+		@Override
+		protected String computeValue(Class<?> type) {
+			return type.descriptorString();
+		}
+	};
+
 	@SuppressWarnings({"OptionalAssignedToNull", "OptionalUsedAsFieldOrParameterType"})
 	private static final class RemappedType {
 		private final RemappedClass parent;
@@ -132,31 +163,39 @@ public class MinecraftRemapper implements Remapper {
 		}
 	}
 
-	private static int readVarInt(InputStream stream) throws Exception {
-		return RemappingHelper.readVarInt(stream);
+	public static MinecraftRemapper load(InputStream stream, boolean debug) throws Exception {
+		return load(ByteBuffer.wrap(stream.readAllBytes()), debug);
 	}
 
-	private static String readUtf(InputStream stream) throws Exception {
-		return RemappingHelper.readUtf(stream);
+	/**
+	 * Loads uncompressed mappings. Only the class index is decoded here, the buffer is kept
+	 * and each class decodes its members on first access, so the buffer may be memory-mapped.
+	 */
+	public static MinecraftRemapper load(ByteBuffer buffer, boolean debug) throws Exception {
+		var m = new MinecraftRemapper(buffer, new HashMap<>(), new HashMap<>());
+		m.load0(debug);
+		return m;
 	}
 
-	public static MinecraftRemapper load(InputStream stream, boolean debug) throws Exception {
-		var m = new MinecraftRemapper(new HashMap<>(), new HashMap<>());
-		m.load0(stream, debug);
-		return m;
+	static MinecraftRemapper empty() {
+		return new MinecraftRemapper(ByteBuffer.allocate(0), Map.of(), Map.of());
 	}
 
+	private final ByteBuffer buffer;
 	private final Map<String, RemappedClass> classMap;
-	private final Map<String, String> unmapClassMap;
+	private final Map<String, RemappedClass> unmapClassMap;
+	private String[][] signatures;
+
+	private void load0(boolean debug) throws Exception {
+		var stream = buffer.duplicate();
 
-	private void load0(InputStream stream, boolean debug) throws Exception {
-		if (stream.read() != 0) {
+		if (stream.get() != 0) {
 			throw new RemapperException("Invalid Minecraft Remapper file!");
 		}
 
-		int version = stream.read();
+		int version = stream.get();
 
-		if (version > 1) {
+		if (version < 1 || version > 2) {
 			throw new RemapperException("Invalid Minecraft Remapper file version!");
 		}
 
@@ -188,6 +227,7 @@ public class MinecraftRemapper implements Remapper {
 			types[index] = new RemappedType(new RemappedClass(realName.isEmpty() ? remappedName : realName, remappedName, true), 0);
 			mappedTypes[i] = types[index];
 			classMap.put(types[index].parent.realName, types[index].parent);
+			unmapClassMap.put(remappedName, types[index].parent);
 		}
 
 		for (int i = 0; i < arrayTypes; i++) {
@@ -202,93 +242,165 @@ public class MinecraftRemapper implements Remapper {
 			types[index] = new RemappedType(types[type].parent, array);
 		}
 
-		var sig = new String[readVarInt(stream)];
+		signatures = new String[readVarInt(stream)][];
 
-		for (int i = 0; i < sig.length; i++) {
-			int params = readVarInt(stream);
-			var sb = new StringBuilder();
-			sb.append('(');
+		for (int i = 0; i < signatures.length; i++) {
+			var sig = new String[readVarInt(stream)];
 
-			for (int j = 0; j < params; j++) {
-				sb.append(types[readVarInt(stream)].descriptorString());
+			for (int j = 0; j < sig.length; j++) {
+				// descriptors are cached per type, so equal parameter types share one string
+				sig[j] = types[readVarInt(stream)].descriptorString();
 			}
 
-			sig[i] = sb.toString();
+			signatures[i] = sig;
 		}
 
-		for (var c : mappedTypes) {
-			if (debug) {
+		if (version >= 2) {
+			// class index: one fixed size offset per mapped class, relative to the end of the index
+			int indexEnd = stream.position() + mappedTypes.length * 4;
+
+			for (int i = 0; i < mappedTypes.length; i++) {
+				mappedTypes[i].parent.membersOffset = indexEnd + stream.getInt();
+			}
+		} else {
+			for (var c : mappedTypes) {
+				c.parent.membersOffset = stream.position();
+				skipMembers(stream);
+			}
+		}
+
+		if (debug) {
+			for (var c : mappedTypes) {
 				RemappingHelper.LOGGER.info(String.format("- %s -> %s", c.parent.realName, c.parent.remappedName));
+				var members = getMembers(c.parent);
+				members.fields.forEach((k, v) -> RemappingHelper.LOGGER.info(String.format("  %s -> %s", k, v)));
+				members.emptyMethods.forEach((k, v) -> RemappingHelper.LOGGER.info(String.format("  %s() -> %s", k, v)));
+				members.methods.forEach((k, v) -> {
+					for (var m : v) {
+						RemappingHelper.LOGGER.info(String.format("  %s(%s -> %s", k, String.join("", m.parameters), m.remappedName));
+					}
+				});
 			}
+		}
+	}
 
-			int fields = readVarInt(stream);
-			int arg0 = readVarInt(stream);
-			int argN = readVarInt(stream);
+	private static void skipMembers(ByteBuffer stream) throws Exception {
+		int fields = readVarInt(stream);
+		int arg0 = readVarInt(stream);
+		int argN = readVarInt(stream);
 
-			for (int i = 0; i < fields; i++) {
-				var unmappedName = readUtf(stream);
-				var mmName = readUtf(stream);
+		for (int i = 0; i < (fields + arg0) * 2; i++) {
+			skipUtf(stream);
+		}
 
-				if (unmappedName.isEmpty() || mmName.isEmpty() || unmappedName.equals(mmName)) {
-					continue;
-				}
+		for (int i = 0; i < argN; i++) {
+			skipUtf(stream);
+			skipUtf(stream);
+			readVarInt(stream);
+		}
+	}
 
-				if (c.parent.fields == null) {
-					c.parent.fields = new HashMap<>(arg0 + argN);
-				}
+	private Members getMembers(RemappedClass c) {
+		var members = c.members;
 
-				c.parent.fields.put(unmappedName, mmName);
+		if (members == null) {
+			try {
+				members = readMembers(buffer.duplicate().position(c.membersOffset));
+			} catch (Exception ex) {
+				RemappingHelper.LOGGER.error("Failed to read mappings of " + c.realName, ex);
+				members = Members.NONE;
+			}
 
-				if (debug) {
-					RemappingHelper.LOGGER.info(String.format("  %s -> %s", unmappedName, mmName));
-				}
+			c.members = members;
+		}
+
+		return members;
+	}
+
+	private Members readMembers(ByteBuffer stream) throws Exception {
+		int fields = readVarInt(stream);
+		int arg0 = readVarInt(stream);
+		int argN = readVarInt(stream);
+		Map<String, String> fieldMap = Map.of();
+		Map<String, String> emptyMethodMap = Map.of();
+		Map<String, MethodMapping[]> methodMap = Map.of();
+
+		for (int i = 0; i < fields; i++) {
+			var unmappedName = readUtf(stream);
+			var mmName = readUtf(stream);
+
+			if (unmappedName.isEmpty() || mmName.isEmpty() || unmappedName.equals(mmName)) {
+				continue;
 			}
 
-			for (int i = 0; i < arg0; i++) {
-				var realName = readUtf(stream);
-				var remappedName = readUtf(stream);
+			if (fieldMap.isEmpty()) {
+				fieldMap = new HashMap<>(fields);
+			}
 
-				if (realName.isEmpty() || remappedName.isEmpty() || realName.equals(remappedName)) {
-					continue;
-				}
+			fieldMap.put(unmappedName, mmName);
+		}
 
-				if (c.parent.emptyMethods == null) {
-					c.parent.emptyMethods = new HashMap<>(arg0);
-				}
+		for (int i = 0; i < arg0; i++) {
+			var realName = readUtf(stream);
+			var remappedName = readUtf(stream);
 
-				c.parent.emptyMethods.put(realName, remappedName);
+			if (realName.isEmpty() || remappedName.isEmpty() || realName.equals(remappedName)) {
+				continue;
+			}
 
-				if (debug) {
-					RemappingHelper.LOGGER.info(String.format("  %s() -> %s", realName, remappedName));
-				}
+			if (emptyMethodMap.isEmpty()) {
+				emptyMethodMap = new HashMap<>(arg0);
 			}
 
-			for (int i = 0; i < argN; i++) {
-				var realName = readUtf(stream);
-				var remappedName = readUtf(stream);
+			emptyMethodMap.put(realName, remappedName);
+		}
 
-				if (realName.isEmpty() || remappedName.isEmpty() || realName.equals(remappedName)) {
-					continue;
-				}
+		for (int i = 0; i < argN; i++) {
+			var realName = readUtf(stream);
+			var remappedName = readUtf(stream);
+			int index = readVarInt(stream);
 
-				if (c.parent.methods == null) {
-					c.parent.methods = new HashMap<>(argN);
-				}
+			if (realName.isEmpty() || remappedName.isEmpty() || realName.equals(remappedName)) {
+				continue;
+			}
 
-				int index = readVarInt(stream);
-				var key = realName + sig[index];
-				c.parent.methods.put(key, remappedName);
+			if (methodMap.isEmpty()) {
+				methodMap = new HashMap<>(argN);
+			}
 
-				if (debug) {
-					RemappingHelper.LOGGER.info(String.format("  %s -> %s", key, remappedName));
-				}
+			var mapping = new MethodMapping(signatures[index], remappedName);
+			var overloads = methodMap.get(realName);
+
+			if (overloads == null) {
+				methodMap.put(realName, new MethodMapping[]{mapping});
+			} else {
+				overloads = Arrays.copyOf(overloads, overloads.length + 1);
+				overloads[overloads.length - 1] = mapping;
+				methodMap.put(realName, overloads);
 			}
 		}
+
+		return new Members(fieldMap, emptyMethodMap, methodMap);
 	}
 
-	MinecraftRemapper(Map<String, RemappedClass> m1, Map<String, String> m2) {
+	private static int readVarInt(ByteBuffer stream) throws Exception {
+		return RemappingHelper.readVarInt(stream);
+	}
+
+	private static String readUtf(ByteBuffer stream) throws Exception {
+		return RemappingHelper.readUtf(stream);
+	}
+
+	private static void skipUtf(ByteBuffer stream) throws Exception {
+		int length = readVarInt(stream);
+		stream.position(stream.position() + length);
+	}
+
+	private MinecraftRemapper(ByteBuffer buffer, Map<String, RemappedClass> m1, Map<String, RemappedClass> m2) {
+		this.buffer = buffer;
 		classMap = m1;
 		unmapClassMap = m2;
+		signatures = new String[0][];
 	}
 
 	@Override
@@ -299,25 +411,8 @@ public class MinecraftRemapper implements Remapper {
 
 	@Override
 	public String getUnmappedClass(String mmName) {
-		if (classMap.isEmpty()) {
-			return "";
-		}
-
-		var s = unmapClassMap.get(mmName);
-
-		if (s == null) {
-			s = "";
-
-			for (var c : classMap.values()) {
-				if (c.remappedName.equals(mmName)) {
-					s = c.realName;
-				}
-			}
-
-			unmapClassMap.put(mmName, s);
-		}
-
-		return s;
+		var c = unmapClassMap.get(mmName);
+		return c == null ? "" : c.realName;
 	}
 
 	@Override
@@ -327,7 +422,7 @@ public class MinecraftRemapper implements Remapper {
 		}
 
 		var c = classMap.get(from.getName());
-		return c == null || c.fields == null ? "" : c.fields.getOrDefault(field.getName(), "");
+		return c == null ? "" : getMembers(c).fields.getOrDefault(field.getName(), "");
 	}
 
 	@Override
@@ -340,20 +435,26 @@ public class MinecraftRemapper implements Remapper {
 
 		if (c == null) {
 			return "";
-		} else if (method.getParameterCount() == 0) {
-			return c.emptyMethods == null ? "" : c.emptyMethods.getOrDefault(method.getName(), "");
-		} else if (c.methods == null) {
-			return "";
 		}
 
-		var sb = new StringBuilder();
-		sb.append(method.getName());
-		sb.append('(');
+		var members = getMembers(c);
+
+		if (method.getParameterCount() == 0) {
+			return members.emptyMethods.getOrDefault(method.getName(), "");
+		}
+
+		var overloads = members.methods.get(method.getName());
+
+		if (overloads != null) {
+			var types = method.getParameterTypes();
 
-		for (var t : method.getParameterTypes()) {
-			sb.append(t.descriptorString());
+			for (var m : overloads) {
+				if (m.matches(types)) {
+					return m.remappedName;
+				}
+			}
 		}
 
-		return c.methods.getOrDefault(sb.toString(), "");
+		return "";
 	}
 }
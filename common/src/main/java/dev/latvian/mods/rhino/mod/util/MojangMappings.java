@@ -3,8 +3,11 @@ package dev.latvian.mods.rhino.mod.util;
 import org.apache.commons.lang3.mutable.MutableObject;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -181,75 +184,142 @@ public class MojangMappings {
 		return c.array(array);
 	}
 
-	private static boolean invalidLine(String s) {
-		return s.isBlank() || s.startsWith("#") || s.endsWith("init>") || s.contains(".package-info ");
+	/**
+	 * A member line, kept until all class lines have been read, since members may refer to classes declared further down.
+	 */
+	private record PendingMember(ClassDef parent, String name, String rawName, String type, @Nullable String[] parameters) {
 	}
 
-	private void parse0(List<String> lines) {
-		lines.removeIf(MojangMappings::invalidLine);
+	private ClassDef currentClassDef;
+	private List<PendingMember> pendingMembers;
 
-		for (var line : lines) {
-			if (line.charAt(line.length() - 1) == ':') {
-				var s = line.split(" -> ", 2); // replace with faster, last index of space check
-				var c = new ClassDef(this, s[1].substring(0, s[1].length() - 1), s[0], new HashMap<>(0), new HashSet<>(0));
-				c.mapped = true;
-				classes.put(c.rawName, c);
-				classesMM.put(c.mmName, c);
-				allTypes.put(c.noArrayType, c.noArrayType);
+	/**
+	 * Reads one line of a ProGuard mapping file. Lines are tokenized by index, members are resolved in {@link #resolveMembers()}.
+	 */
+	private void parseLine(String line) {
+		int length = line.length();
+		int start = 0;
+
+		while (start < length && line.charAt(start) <= ' ') {
+			start++;
+		}
+
+		if (start == length || line.charAt(start) == '#') {
+			return;
+		}
+
+		int arrow = line.indexOf(" -> ", start);
+
+		if (arrow == -1) {
+			throw new RemapperException("Invalid line: " + line);
+		}
+
+		if (start == 0) {
+			// class: mmName -> rawName:
+			currentClassDef = null;
+
+			if (line.charAt(length - 1) != ':' || line.contains(".package-info ")) {
+				return;
 			}
+
+			var c = new ClassDef(this, line.substring(arrow + 4, length - 1), line.substring(0, arrow), new HashMap<>(0), new HashSet<>(0));
+			c.mapped = true;
+			classes.put(c.rawName, c);
+			classesMM.put(c.mmName, c);
+			allTypes.put(c.noArrayType, c.noArrayType);
+			currentClassDef = c;
+			return;
+		} else if (currentClassDef == null || line.endsWith("init>")) {
+			return;
 		}
 
-		ClassDef currentClassDef = null;
+		// member: [from:to:]type name[(params)[:from:to]] -> rawName
+		int i = start;
 
-		for (var line : lines) {
-			if (line.charAt(0) == ' ') {
-				if (currentClassDef == null) {
-					throw new RemapperException("Field or method without class! " + line);
-				}
+		while (i < arrow && (Character.isDigit(line.charAt(i)) || line.charAt(i) == ':')) {
+			i++;
+		}
 
-				line = line.substring(Math.max(4, line.lastIndexOf(':') + 1));
-				int typeSpace = line.indexOf(' ');
-				var type = getType(line.substring(0, typeSpace));
-				line = line.substring(typeSpace + 1);
-				var rawName = line.substring(line.lastIndexOf(' ') + 1);
-				line = line.substring(0, line.indexOf(' '));
-				String name;
-				MethodDefSignature sig;
-
-				if (line.charAt(line.length() - 1) == ')') {
-					int lp = line.indexOf('(');
-					name = line.substring(0, lp);
-					line = line.substring(lp + 1, line.length() - 1);
-
-					if (line.isEmpty()) {
-						sig = SIG_EMPTY;
-					} else {
-						var sclasses = line.split(",");
-						var types = new TypeDef[sclasses.length];
-						for (int i = 0; i < sclasses.length; i++) {
-							types[i] = getType(sclasses[i]);
-						}
+		if (i > start && line.charAt(i - 1) == ':') {
+			start = i;
+		}
+
+		int typeEnd = line.indexOf(' ', start);
+
+		if (typeEnd == -1 || typeEnd >= arrow) {
+			throw new RemapperException("Invalid member: " + line);
+		}
 
-						sig = getSignature(types);
+		var type = line.substring(start, typeEnd);
+		var rawName = line.substring(arrow + 4);
+		int lp = line.indexOf('(', typeEnd);
+		String name;
+		String[] parameters;
+
+		if (lp != -1 && lp < arrow) {
+			int rp = line.indexOf(')', lp);
+			name = line.substring(typeEnd + 1, lp);
+
+			if (rp == lp + 1) {
+				parameters = new String[0];
+			} else {
+				int count = 1;
+
+				for (int j = lp + 1; j < rp; j++) {
+					if (line.charAt(j) == ',') {
+						count++;
 					}
-				} else {
-					name = line;
-					sig = null;
 				}
 
-				var rawNameSig = new NamedSignature(rawName, sig);
+				parameters = new String[count];
+				int from = lp + 1;
 
-				if (name.startsWith("lambda$") || name.startsWith("access$") || line.startsWith("val$") || line.startsWith("this$")) {
-					currentClassDef.ignoredMembers.add(rawNameSig);
-					continue;
+				for (int j = 0; j < count; j++) {
+					int to = j == count - 1 ? rp : line.indexOf(',', from);
+					parameters[j] = line.substring(from, to);
+					from = to + 1;
 				}
+			}
+		} else {
+			name = line.substring(typeEnd + 1, arrow);
+			parameters = null;
+		}
+
+		pendingMembers.add(new PendingMember(currentClassDef, name, rawName, type, parameters));
+	}
+
+	private void resolveMembers() {
+		var types = new HashMap<String, TypeDef>();
+
+		for (var m : pendingMembers) {
+			MethodDefSignature sig;
 
-				var m = new MemberDef(currentClassDef, rawNameSig, name, type, new MutableObject<>(""));
-				currentClassDef.members.put(rawNameSig, m);
-			} else if (line.charAt(line.length() - 1) == ':') {
-				currentClassDef = classes.get(line.substring(line.lastIndexOf(' ') + 1, line.length() - 1));
+			if (m.parameters == null) {
+				sig = null;
+			} else if (m.parameters.length == 0) {
+				sig = SIG_EMPTY;
+			} else {
+				var paramTypes = new TypeDef[m.parameters.length];
+
+				for (int i = 0; i < paramTypes.length; i++) {
+					paramTypes[i] = types.computeIfAbsent(m.parameters[i], this::getType);
+				}
+
+				sig = getSignature(paramTypes);
+			}
+
+			var rawNameSig = new NamedSignature(m.rawName, sig);
+
+			if (m.name.startsWith("lambda$") || m.name.startsWith("access$") || m.name.startsWith("val$") || m.name.startsWith("this$")) {
+				m.parent.ignoredMembers.add(rawNameSig);
+				continue;
 			}
+
+			m.parent.members.put(rawNameSig, new MemberDef(m.parent, rawNameSig, m.name, types.computeIfAbsent(m.type, this::getType), new MutableObject<>("")));
 		}
+
+		pendingMembers = null;
+		currentClassDef = null;
 	}
 
 	public void cleanup() {
@@ -278,12 +348,79 @@ public class MojangMappings {
 		}
 	}
 
-	private static void writeVarInt(OutputStream stream, int value) throws Exception {
-		RemappingHelper.writeVarInt(stream, value);
-	}
+	/**
+	 * Growable byte buffer for the mappings file. Unlike writing through a stream, nothing here is
+	 * synchronized or copied per byte, and the finished blocks go to the stream in one write each.
+	 */
+	private static final class ByteWriter {
+		private byte[] bytes;
+		private int size;
+
+		private ByteWriter(int capacity) {
+			bytes = new byte[capacity];
+			size = 0;
+		}
+
+		private void ensureCapacity(int extra) {
+			if (size + extra > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+			}
+		}
+
+		private void writeByte(int value) {
+			ensureCapacity(1);
+			bytes[size++] = (byte) value;
+		}
+
+		private void writeInt(int value) {
+			ensureCapacity(4);
+			bytes[size++] = (byte) (value >>> 24);
+			bytes[size++] = (byte) (value >>> 16);
+			bytes[size++] = (byte) (value >>> 8);
+			bytes[size++] = (byte) value;
+		}
+
+		private void writeVarInt(int value) {
+			ensureCapacity(5);
+
+			while ((value & -128) != 0) {
+				bytes[size++] = (byte) (value & 127 | 128);
+				value >>>= 7;
+			}
+
+			bytes[size++] = (byte) value;
+		}
+
+		private void writeUtf(String value) {
+			int length = value.length();
+			boolean ascii = true;
+
+			for (int i = 0; i < length; i++) {
+				if (value.charAt(i) >= 0x80) {
+					ascii = false;
+					break;
+				}
+			}
+
+			if (ascii) {
+				writeVarInt(length);
+				ensureCapacity(length);
+
+				for (int i = 0; i < length; i++) {
+					bytes[size++] = (byte) value.charAt(i);
+				}
+			} else {
+				var utf = value.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(utf.length);
+				ensureCapacity(utf.length);
+				System.arraycopy(utf, 0, bytes, size, utf.length);
+				size += utf.length;
+			}
+		}
 
-	private static void writeUtf(OutputStream stream, String value) throws Exception {
-		RemappingHelper.writeUtf(stream, value);
+		private void writeTo(OutputStream stream) throws Exception {
+			stream.write(bytes, 0, size);
+		}
 	}
 
 	public void write(OutputStream stream) throws Exception {
@@ -323,42 +460,49 @@ public class MojangMappings {
 		RemappingHelper.LOGGER.info("Mapped Types: " + mappedTypes.size());
 		RemappingHelper.LOGGER.info("Array Types: " + arrayTypes.size());
 
-		stream.write(0); // Binary indicator
-		stream.write(1); // Version
-		writeUtf(stream, mcVersion);
+		var out = new ByteWriter(1 << 16);
+		out.writeByte(0); // Binary indicator
+		out.writeByte(2); // Version
+		out.writeUtf(mcVersion);
 
-		writeVarInt(stream, unmappedTypes.size());
-		writeVarInt(stream, mappedTypes.size());
-		writeVarInt(stream, arrayTypes.size());
+		out.writeVarInt(unmappedTypes.size());
+		out.writeVarInt(mappedTypes.size());
+		out.writeVarInt(arrayTypes.size());
 
 		for (var c : unmappedTypes) {
-			writeVarInt(stream, c.index);
-			writeUtf(stream, c.parent.rawName);
+			out.writeVarInt(c.index);
+			out.writeUtf(c.parent.rawName);
 		}
 
 		for (var c : mappedTypes) {
-			writeVarInt(stream, c.index);
-			writeUtf(stream, c.parent.unmappedName.getValue());
-			writeUtf(stream, c.parent.mmName);
+			out.writeVarInt(c.index);
+			out.writeUtf(c.parent.unmappedName.getValue());
+			out.writeUtf(c.parent.mmName);
 		}
 
 		for (var c : arrayTypes) {
-			writeVarInt(stream, c.index);
-			writeVarInt(stream, c.parent.noArrayType.index);
-			writeVarInt(stream, c.array);
+			out.writeVarInt(c.index);
+			out.writeVarInt(c.parent.noArrayType.index);
+			out.writeVarInt(c.array);
 		}
 
-		writeVarInt(stream, sigList.size());
+		out.writeVarInt(sigList.size());
 
 		for (var s : sigList) {
-			writeVarInt(stream, s.types.length);
+			out.writeVarInt(s.types.length);
 
 			for (var c : s.types) {
-				writeVarInt(stream, c.index);
+				out.writeVarInt(c.index);
 			}
 		}
 
-		for (var c : mappedTypes) {
+		// Members are written into separate blocks first, so the class index can point at each of them
+		var members = new ByteWriter(1 << 20);
+		var offsets = new int[mappedTypes.size()];
+
+		for (int i = 0; i < mappedTypes.size(); i++) {
+			var c = mappedTypes.get(i);
+			offsets[i] = members.size;
 			var fields = new ArrayList<MemberDef>();
 			var arg0methods = new ArrayList<MemberDef>();
 			var argNmethods = new ArrayList<MemberDef>();
@@ -373,31 +517,61 @@ public class MojangMappings {
 				}
 			}
 
-			writeVarInt(stream, fields.size());
-			writeVarInt(stream, arg0methods.size());
-			writeVarInt(stream, argNmethods.size());
+			members.writeVarInt(fields.size());
+			members.writeVarInt(arg0methods.size());
+			members.writeVarInt(argNmethods.size());
 
 			for (var m : fields) {
-				writeUtf(stream, m.unmappedName.getValue());
-				writeUtf(stream, m.mmName);
+				members.writeUtf(m.unmappedName.getValue());
+				members.writeUtf(m.mmName);
 			}
 
 			for (var m : arg0methods) {
-				writeUtf(stream, m.unmappedName.getValue());
-				writeUtf(stream, m.mmName);
+				members.writeUtf(m.unmappedName.getValue());
+				members.writeUtf(m.mmName);
 			}
 
 			for (var m : argNmethods) {
-				writeUtf(stream, m.unmappedName.getValue());
-				writeUtf(stream, m.mmName);
-				writeVarInt(stream, m.rawName.signature.index);
+				members.writeUtf(m.unmappedName.getValue());
+				members.writeUtf(m.mmName);
+				members.writeVarInt(m.rawName.signature.index);
 			}
 		}
+
+		for (int offset : offsets) {
+			out.writeInt(offset);
+		}
+
+		out.writeTo(stream);
+		members.writeTo(stream);
 	}
 
 	public static MojangMappings parse(String mcVersion, List<String> lines) throws Exception {
 		var mappings = new MojangMappings(mcVersion);
-		mappings.parse0(lines);
+		mappings.pendingMembers = new ArrayList<>();
+
+		for (var line : lines) {
+			mappings.parseLine(line);
+		}
+
+		mappings.resolveMembers();
+		return mappings;
+	}
+
+	/**
+	 * Parses a ProGuard mapping file in a single pass over the reader, without holding on to its lines.
+	 */
+	public static MojangMappings parse(String mcVersion, Reader reader) throws Exception {
+		var mappings = new MojangMappings(mcVersion);
+		mappings.pendingMembers = new ArrayList<>();
+		var in = reader instanceof BufferedReader r ? r : new BufferedReader(reader, 1 << 16);
+		String line;
+
+		while ((line = in.readLine()) != null) {
+			mappings.parseLine(line);
+		}
+
+		mappings.resolveMembers();
 		return mappings;
 	}
 
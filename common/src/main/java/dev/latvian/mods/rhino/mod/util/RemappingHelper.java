@@ -3,32 +3,41 @@ package dev.latvian.mods.rhino.mod.util;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 public class RemappingHelper {
 	public static final boolean GENERATE = System.getProperty("generaterhinomappings", "0").equals("1");
+	/**
+	 * Logs every class and member while generating mappings, otherwise only totals are logged.
+	 */
+	public static final boolean VERBOSE = System.getProperty("generaterhinomappings.verbose", "0").equals("1");
 	private static final Gson GSON = new GsonBuilder().setLenient().setPrettyPrinting().disableHtmlEscaping().create();
 	public static final Logger LOGGER = LoggerFactory.getLogger("Rhino Script Remapper");
-	private static final Map<String, Optional<Class<?>>> CLASS_CACHE = new HashMap<>();
+	/**
+	 * Only filled with class names from the mappings, so it can't grow past the number of mapped types.
+	 */
+	private static final Map<String, Optional<Class<?>>> CLASS_CACHE = new ConcurrentHashMap<>();
 
 	private static Optional<Class<?>> loadClass(String name) {
 		return switch (name) {
@@ -52,7 +61,16 @@ public class RemappingHelper {
 	}
 
 	public static Optional<Class<?>> getClass(String name) {
-		return CLASS_CACHE.computeIfAbsent(name, RemappingHelper::loadClass);
+		var c = CLASS_CACHE.get(name);
+
+		if (c == null) {
+			// Loaded outside of computeIfAbsent, class initializers may look up other classes. Racing threads find the same class
+			c = loadClass(name);
+			var prev = CLASS_CACHE.putIfAbsent(name, c);
+			return prev == null ? c : prev;
+		}
+
+		return c;
 	}
 
 	public record MappingContext(String mcVersion, MojangMappings mappings) {
@@ -62,42 +80,80 @@ public class RemappingHelper {
 		void generateMappings(MappingContext context) throws Exception;
 	}
 
-	private static MinecraftRemapper minecraftRemapper = null;
+	private static volatile MinecraftRemapper minecraftRemapper = null;
 
 	public static MinecraftRemapper getMinecraftRemapper(boolean debug) {
-		if (minecraftRemapper == null) {
-			LOGGER.info("Loading Rhino Minecraft remapper...");
-			long time = System.currentTimeMillis();
-			var configPath = RhinoProperties.getGameDir().resolve("config/mm.jsmappings");
-
-			if (Files.exists(configPath)) {
-				try (var in = new BufferedInputStream(new GZIPInputStream(Objects.requireNonNull(Files.newInputStream(configPath))))) {
-					minecraftRemapper = MinecraftRemapper.load(in, debug);
-				} catch (Exception ex) {
-					ex.printStackTrace();
-					LOGGER.error("Failed to load Rhino Minecraft remapper from config/mm.jsmappings!", ex);
-					minecraftRemapper = new MinecraftRemapper(Map.of(), Map.of());
-				}
-			} else {
-				try (var in = new BufferedInputStream(new GZIPInputStream(Objects.requireNonNull(RhinoProperties.openResource("mm.jsmappings"))))) {
-					minecraftRemapper = MinecraftRemapper.load(in, debug);
-				} catch (Exception ex) {
-					ex.printStackTrace();
-					LOGGER.error("Failed to load Rhino Minecraft remapper from mod jar!", ex);
-					minecraftRemapper = new MinecraftRemapper(Map.of(), Map.of());
+		var remapper = minecraftRemapper;
+
+		if (remapper == null) {
+			synchronized (RemappingHelper.class) {
+				remapper = minecraftRemapper;
+
+				if (remapper == null) {
+					remapper = loadMinecraftRemapper(debug);
+					minecraftRemapper = remapper;
 				}
 			}
+		}
+
+		return remapper;
+	}
+
+	private static MinecraftRemapper loadMinecraftRemapper(boolean debug) {
+		MinecraftRemapper remapper;
+		LOGGER.info("Loading Rhino Minecraft remapper...");
+		long time = System.currentTimeMillis();
+		var configPath = RhinoProperties.getGameDir().resolve("config/mm.jsmappings");
+
+		if (Files.exists(configPath)) {
+			try (var channel = FileChannel.open(configPath, StandardOpenOption.READ)) {
+				remapper = MinecraftRemapper.load(decompress(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size())), debug);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				LOGGER.error("Failed to load Rhino Minecraft remapper from config/mm.jsmappings!", ex);
+				remapper = MinecraftRemapper.empty();
+			}
+		} else {
+			try (var in = Objects.requireNonNull(RhinoProperties.openResource("mm.jsmappings"))) {
+				remapper = MinecraftRemapper.load(decompress(ByteBuffer.wrap(in.readAllBytes())), debug);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				LOGGER.error("Failed to load Rhino Minecraft remapper from mod jar!", ex);
+				remapper = MinecraftRemapper.empty();
+			}
+		}
+
+		LOGGER.info(String.format("Done in %.03f s", (System.currentTimeMillis() - time) / 1000F));
+		return remapper;
+	}
 
-			LOGGER.info(String.format("Done in %.03f s", (System.currentTimeMillis() - time) / 1000F));
+	/**
+	 * Mappings used to be written gzipped, those are inflated into memory. Uncompressed
+	 * mappings are used as they are, so a memory-mapped file stays mapped.
+	 */
+	private static ByteBuffer decompress(ByteBuffer buffer) throws Exception {
+		if (buffer.remaining() >= 2 && (buffer.get(0) & 0xFF) == 0x1F && (buffer.get(1) & 0xFF) == 0x8B) {
+			var bytes = new byte[buffer.remaining()];
+			buffer.duplicate().get(bytes);
+
+			try (var in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+				return ByteBuffer.wrap(in.readAllBytes());
+			}
 		}
 
-		return minecraftRemapper;
+		return buffer;
 	}
 
 	public static MinecraftRemapper getMinecraftRemapper() {
 		return getMinecraftRemapper(false);
 	}
 
+	public static void verbose(String format, Object... args) {
+		if (VERBOSE) {
+			LOGGER.info(format, args);
+		}
+	}
+
 	public static Reader createReader(String url) throws Exception {
 		LOGGER.info("Fetching " + url + "...");
 		var connection = new URL(url).openConnection();
@@ -126,6 +182,15 @@ public class RemappingHelper {
 			return;
 		}
 
+		var localMappings = System.getProperty("generaterhinomappings.file", "");
+
+		if (!localMappings.isEmpty()) {
+			try (var reader = Files.newBufferedReader(Path.of(localMappings))) {
+				generate(mcVersion, reader, callback);
+				return;
+			}
+		}
+
 		try (var metaInfoReader = createReader("https://piston-meta.mojang.com/mc/game/version_manifest_v2.json")) {
 			for (var metaInfo : GSON.fromJson(metaInfoReader, JsonObject.class).get("versions").getAsJsonArray()) {
 				if (metaInfo.getAsJsonObject().get("id").getAsString().equals(mcVersion)) {
@@ -136,15 +201,7 @@ public class RemappingHelper {
 
 						if (meta.get("downloads") instanceof JsonObject o && o.get("client_mappings") instanceof JsonObject cmap && cmap.has("url")) {
 							try (var cmapReader = createReader(cmap.get("url").getAsString())) {
-								var mojangMappings = MojangMappings.parse(mcVersion, IOUtils.readLines(cmapReader));
-								callback.generateMappings(new MappingContext(mcVersion, mojangMappings));
-								mojangMappings.cleanup();
-
-								try (var out = new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(Path.of("mm.jsmappings"))))) {
-									mojangMappings.write(out);
-								}
-
-								LOGGER.info("Finished generating mappings!");
+								generate(mcVersion, cmapReader, callback);
 								return;
 							}
 						} else {
@@ -158,6 +215,20 @@ public class RemappingHelper {
 		throw new RemapperException("Failed for unknown reason!");
 	}
 
+	private static void generate(String mcVersion, Reader mappingsReader, Callback callback) throws Exception {
+		long time = System.currentTimeMillis();
+		var mojangMappings = MojangMappings.parse(mcVersion, mappingsReader);
+		LOGGER.info(String.format("Parsed Mojang mappings in %.03f s", (System.currentTimeMillis() - time) / 1000F));
+		callback.generateMappings(new MappingContext(mcVersion, mojangMappings));
+		mojangMappings.cleanup();
+
+		try (var out = new BufferedOutputStream(Files.newOutputStream(Path.of("mm.jsmappings")))) {
+			mojangMappings.write(out);
+		}
+
+		LOGGER.info(String.format("Finished generating mappings in %.03f s!", (System.currentTimeMillis() - time) / 1000F));
+	}
+
 	public static void writeVarInt(OutputStream stream, int value) throws Exception {
 		while ((value & -128) != 0) {
 			stream.write(value & 127 | 128);
@@ -190,12 +261,43 @@ public class RemappingHelper {
 	}
 
 	public static String readUtf(InputStream stream) throws Exception {
-		byte[] bytes = new byte[readVarInt(stream)];
+		int length = readVarInt(stream);
+		byte[] bytes = stream.readNBytes(length);
+
+		if (bytes.length != length) {
+			throw new RemapperException("Unexpected end of stream");
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static int readVarInt(ByteBuffer buffer) throws Exception {
+		int i = 0;
+		int j = 0;
+
+		byte b;
+		do {
+			b = buffer.get();
+			i |= (b & 127) << j++ * 7;
+			if (j > 5) {
+				throw new RemapperException("VarInt too big");
+			}
+		} while ((b & 128) == 128);
+
+		return i;
+	}
+
+	public static String readUtf(ByteBuffer buffer) throws Exception {
+		int length = readVarInt(buffer);
 
-		for (int i = 0; i < bytes.length; i++) {
-			bytes[i] = (byte) stream.read();
+		if (buffer.hasArray()) {
+			int start = buffer.arrayOffset() + buffer.position();
+			buffer.position(buffer.position() + length);
+			return new String(buffer.array(), start, length, StandardCharsets.UTF_8);
 		}
 
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
 		return new String(bytes, StandardCharsets.UTF_8);
 	}
 }
@@ -7,6 +7,7 @@
 package dev.latvian.mods.rhino.regexp;
 
 import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.ContextMetrics;
 import dev.latvian.mods.rhino.Function;
 import dev.latvian.mods.rhino.IdFunctionObject;
 import dev.latvian.mods.rhino.IdScriptableObject;
@@ -2357,6 +2358,12 @@ public class NativeRegExp extends IdScriptableObject implements Function {
 	 * indexp is assumed to be an array of length 1
 	 */
 	Object executeRegExp(Context cx, Scriptable scope, RegExp res, String str, int[] indexp, int matchType) {
+		ContextMetrics metrics = cx.getMetrics();
+
+		if (metrics != null) {
+			metrics.regExpExecuted();
+		}
+
 		REGlobalData gData = new REGlobalData();
 
 		int start = indexp[0];
@@ -8,7 +8,15 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 public class EnumTypeWrapper<T> implements TypeWrapperFactory<T> {
-	private static final Map<Class<?>, EnumTypeWrapper<?>> WRAPPERS = new HashMap<>();
+	/**
+	 * One wrapper per enum class, created on first use. Reads don't lock and the wrapper goes away with its class.
+	 */
+	private static final ClassValue<EnumTypeWrapper<?>> WRAPPERS = new ClassValue<>() {
+		@Override
+		protected EnumTypeWrapper<?> computeValue(Class<?> type) {
+			return new EnumTypeWrapper<>(type);
+		}
+	};
 
 	@SuppressWarnings("unchecked")
 	public static <T> EnumTypeWrapper<T> get(Class<T> enumType) {
@@ -16,7 +24,7 @@ public class EnumTypeWrapper<T> implements TypeWrapperFactory<T> {
 			throw new IllegalArgumentException("Class " + enumType.getName() + " is not an enum!");
 		}
 
-		return (EnumTypeWrapper<T>) WRAPPERS.computeIfAbsent(enumType, EnumTypeWrapper::new);
+		return (EnumTypeWrapper<T>) WRAPPERS.get(enumType);
 	}
 
 	public static String getName(Class<?> enumType, Enum<?> e, boolean cache) {
@@ -60,6 +60,13 @@ public class TypeWrappers {
 		register(target, TypeWrapper.ALWAYS_VALID, factory);
 	}
 
+	/**
+	 * @return true if {@link #getWrapperFactory(Class, Object)} may return a factory for target, depending on the value
+	 */
+	public boolean hasWrapper(Class<?> target) {
+		return target != Object.class && (wrappers.containsKey(target) || target.isEnum());
+	}
+
 	@Nullable
 	public TypeWrapperFactory<?> getWrapperFactory(Class<?> target, @Nullable Object from) {
 		if (target == Object.class) {
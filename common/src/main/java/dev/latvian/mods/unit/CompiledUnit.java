@@ -0,0 +1,28 @@
+package dev.latvian.mods.unit;
+
+/**
+ * Base class of units generated by {@link UnitContext#compile(Unit)}, which evaluate
+ * a whole expression tree in one call.
+ */
+public abstract class CompiledUnit extends Unit {
+	public final Unit source;
+	protected final Unit[] units;
+
+	protected CompiledUnit(Unit source, Unit[] units) {
+		this.source = source;
+		this.units = units;
+	}
+
+	/**
+	 * Same as the default {@link Unit#getInt(UnitVariables)}, for generated code.
+	 */
+	public static int toInt(double d) {
+		int i = (int) d;
+		return d < (double) i ? i - 1 : i;
+	}
+
+	@Override
+	public void toString(StringBuilder builder) {
+		source.toString(builder);
+	}
+}
@@ -30,6 +30,17 @@ public class EmptyVariableSet extends VariableSet {
 		return null;
 	}
 
+	@Override
+	public VariableSet beginEvaluation(double time) {
+		// shared instance, evaluations are started in subsets instead
+		return this;
+	}
+
+	@Override
+	public VariableSet beginMemoization() {
+		return this;
+	}
+
 	@Override
 	public VariableSet createSubset() {
 		return new VariableSet();
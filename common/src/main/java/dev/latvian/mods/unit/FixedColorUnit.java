@@ -1,8 +1,6 @@
 package dev.latvian.mods.unit;
 
-import dev.latvian.mods.unit.token.UnitToken;
-
-public class FixedColorUnit extends Unit implements UnitToken {
+public class FixedColorUnit extends Unit {
 	public static final FixedColorUnit WHITE = new FixedColorUnit(0xFFFFFFFF, true);
 	public static final FixedColorUnit BLACK = new FixedColorUnit(0xFF000000, true);
 	public static final FixedColorUnit TRANSPARENT = new FixedColorUnit(0x00000000, true);
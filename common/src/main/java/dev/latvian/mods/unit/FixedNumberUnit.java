@@ -129,7 +129,7 @@ public final class FixedNumberUnit extends Unit {
 
 	@Override
 	public Unit pow(Unit other) {
-		return other instanceof FixedNumberUnit u ? of(Math.pow(value, u.value)) : super.add(other);
+		return other instanceof FixedNumberUnit u ? of(Math.pow(value, u.value)) : super.pow(other);
 	}
 
 	// Functions
@@ -0,0 +1,44 @@
+package dev.latvian.mods.unit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subexpression that is used more than once in a tree. While a {@link VariableSet} is
+ * between {@link VariableSet#beginMemoization()} and {@link VariableSet#endMemoization()},
+ * its value is computed once and reused, otherwise it's computed every time like any other unit.
+ * {@link UnitContext#parse(String)} only adds these to trees without assignments, random numbers
+ * or custom units, so a tree can't change its own variables while it's evaluated. Only units whose
+ * getInt and getBoolean follow from get are wrapped, as those are derived from the memoized value.
+ */
+public final class MemoUnit extends Unit {
+	private static final AtomicInteger NEXT_HASH = new AtomicInteger();
+
+	public final Unit unit;
+	final int hash;
+
+	public MemoUnit(Unit unit) {
+		this.unit = unit;
+		this.hash = NEXT_HASH.getAndAdd(0x61C88647);
+	}
+
+	@Override
+	public double get(UnitVariables variables) {
+		return variables.getVariables().getMemoized(this, variables);
+	}
+
+	@Override
+	public int getInt(UnitVariables variables) {
+		// derived from the memoized value, so that it agrees with get()
+		return variables.getVariables().isMemoizing() ? super.getInt(variables) : unit.getInt(variables);
+	}
+
+	@Override
+	public boolean getBoolean(UnitVariables variables) {
+		return variables.getVariables().isMemoizing() ? super.getBoolean(variables) : unit.getBoolean(variables);
+	}
+
+	@Override
+	public void toString(StringBuilder builder) {
+		unit.toString(builder);
+	}
+}
@@ -0,0 +1,38 @@
+package dev.latvian.mods.unit;
+
+/**
+ * Variable resolved to an index of a {@link VariableLayout}. Reads and writes it directly
+ * in a {@link VariableFrame} of the same layout, and by name in any other variable set.
+ */
+public final class SlotVariableUnit extends VariableUnit {
+	public final VariableLayout layout;
+	public final int index;
+
+	SlotVariableUnit(VariableLayout layout, String name, int index) {
+		super(name);
+		this.layout = layout;
+		this.index = index;
+	}
+
+	@Override
+	public double get(UnitVariables variables) {
+		VariableSet set = variables.getVariables();
+
+		if (set instanceof VariableFrame frame && frame.layout == layout) {
+			return frame.get(index);
+		}
+
+		return super.get(variables);
+	}
+
+	@Override
+	public void set(UnitVariables variables, double value) {
+		VariableSet set = variables.getVariables();
+
+		if (set instanceof VariableFrame frame && frame.layout == layout) {
+			frame.set(index, value);
+		} else {
+			super.set(variables, value);
+		}
+	}
+}
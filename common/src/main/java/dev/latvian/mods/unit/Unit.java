@@ -111,7 +111,7 @@ public abstract class Unit {
 	}
 
 	public Unit mul(double value) {
-		return add(FixedNumberUnit.of(value));
+		return mul(FixedNumberUnit.of(value));
 	}
 
 	public Unit div(Unit other) {
@@ -119,7 +119,7 @@ public abstract class Unit {
 	}
 
 	public Unit div(double value) {
-		return add(FixedNumberUnit.of(value));
+		return div(FixedNumberUnit.of(value));
 	}
 
 	public Unit mod(Unit other) {
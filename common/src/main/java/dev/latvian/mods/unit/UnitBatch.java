@@ -0,0 +1,535 @@
+package dev.latvian.mods.unit;
+
+import dev.latvian.mods.unit.function.AbsFuncUnit;
+import dev.latvian.mods.unit.function.Atan2FuncUnit;
+import dev.latvian.mods.unit.function.AtanFuncUnit;
+import dev.latvian.mods.unit.function.CeilFuncUnit;
+import dev.latvian.mods.unit.function.ClampFuncUnit;
+import dev.latvian.mods.unit.function.CosFuncUnit;
+import dev.latvian.mods.unit.function.DegFuncUnit;
+import dev.latvian.mods.unit.function.FloorFuncUnit;
+import dev.latvian.mods.unit.function.Func1Unit;
+import dev.latvian.mods.unit.function.Func2Unit;
+import dev.latvian.mods.unit.function.Func3Unit;
+import dev.latvian.mods.unit.function.LerpFuncUnit;
+import dev.latvian.mods.unit.function.Log10FuncUnit;
+import dev.latvian.mods.unit.function.Log1pFuncUnit;
+import dev.latvian.mods.unit.function.LogFuncUnit;
+import dev.latvian.mods.unit.function.MapFuncUnit;
+import dev.latvian.mods.unit.function.MaxFuncUnit;
+import dev.latvian.mods.unit.function.MinFuncUnit;
+import dev.latvian.mods.unit.function.RadFuncUnit;
+import dev.latvian.mods.unit.function.SinFuncUnit;
+import dev.latvian.mods.unit.function.SmoothstepFuncUnit;
+import dev.latvian.mods.unit.function.SqFuncUnit;
+import dev.latvian.mods.unit.function.SqrtFuncUnit;
+import dev.latvian.mods.unit.function.TanFuncUnit;
+import dev.latvian.mods.unit.operator.GroupUnit;
+import dev.latvian.mods.unit.operator.NegateOpUnit;
+import dev.latvian.mods.unit.operator.OpUnit;
+import dev.latvian.mods.unit.operator.SetUnit;
+import dev.latvian.mods.unit.operator.UnaryOpUnit;
+import dev.latvian.mods.unit.operator.op.AddOpUnit;
+import dev.latvian.mods.unit.operator.op.DivOpUnit;
+import dev.latvian.mods.unit.operator.op.ModOpUnit;
+import dev.latvian.mods.unit.operator.op.MulOpUnit;
+import dev.latvian.mods.unit.operator.op.PowOpUnit;
+import dev.latvian.mods.unit.operator.op.SubOpUnit;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates one unit for many elements, with the values of input variables given as one
+ * double array per variable. Built-in arithmetic and math functions are evaluated one
+ * operation at a time over blocks of elements, so each of them is a plain loop over arrays
+ * instead of a tree walk per element. Any other unit, like conditions or custom functions,
+ * is evaluated per element, with input variables set as {@link MutableNumberUnit}s in a subset
+ * of the given variable set. Trees with assignments are evaluated one element at a time,
+ * so that the order of assignments stays the same. Assigned variables are kept in that subset,
+ * which is separate for each parallel task.
+ * <p>
+ * Results are the same as setting the input variables and calling {@link Unit#get(UnitVariables)}
+ * for each element. Units are shared between threads when evaluating in parallel, so custom
+ * units have to be thread safe for that.
+ */
+public final class UnitBatch {
+	public static final int BLOCK_SIZE = 256;
+	public static final int PARALLEL_THRESHOLD = 8192;
+
+	private static final int INPUT = 0;
+	private static final int FIXED = 1;
+	private static final int UNIT = 2;
+	private static final int ADD = 3;
+	private static final int SUB = 4;
+	private static final int MUL = 5;
+	private static final int DIV = 6;
+	private static final int MOD = 7;
+	private static final int POW = 8;
+	private static final int NEGATE = 9;
+	private static final int ABS = 10;
+	private static final int SIN = 11;
+	private static final int COS = 12;
+	private static final int TAN = 13;
+	private static final int DEG = 14;
+	private static final int RAD = 15;
+	private static final int ATAN = 16;
+	private static final int LOG = 17;
+	private static final int LOG10 = 18;
+	private static final int LOG1P = 19;
+	private static final int SQRT = 20;
+	private static final int SQ = 21;
+	private static final int FLOOR = 22;
+	private static final int CEIL = 23;
+	private static final int SMOOTHSTEP = 24;
+	private static final int MIN = 25;
+	private static final int MAX = 26;
+	private static final int ATAN2 = 27;
+	private static final int CLAMP = 28;
+	private static final int LERP = 29;
+
+	private static final Map<Class<?>, Integer> OPS = Map.ofEntries(
+			Map.entry(AddOpUnit.class, ADD),
+			Map.entry(SubOpUnit.class, SUB),
+			Map.entry(MulOpUnit.class, MUL),
+			Map.entry(DivOpUnit.class, DIV),
+			Map.entry(ModOpUnit.class, MOD),
+			Map.entry(PowOpUnit.class, POW),
+			Map.entry(NegateOpUnit.class, NEGATE),
+			Map.entry(AbsFuncUnit.class, ABS),
+			Map.entry(SinFuncUnit.class, SIN),
+			Map.entry(CosFuncUnit.class, COS),
+			Map.entry(TanFuncUnit.class, TAN),
+			Map.entry(DegFuncUnit.class, DEG),
+			Map.entry(RadFuncUnit.class, RAD),
+			Map.entry(AtanFuncUnit.class, ATAN),
+			Map.entry(LogFuncUnit.class, LOG),
+			Map.entry(Log10FuncUnit.class, LOG10),
+			Map.entry(Log1pFuncUnit.class, LOG1P),
+			Map.entry(SqrtFuncUnit.class, SQRT),
+			Map.entry(SqFuncUnit.class, SQ),
+			Map.entry(FloorFuncUnit.class, FLOOR),
+			Map.entry(CeilFuncUnit.class, CEIL),
+			Map.entry(SmoothstepFuncUnit.class, SMOOTHSTEP),
+			Map.entry(MinFuncUnit.class, MIN),
+			Map.entry(MaxFuncUnit.class, MAX),
+			Map.entry(Atan2FuncUnit.class, ATAN2),
+			Map.entry(ClampFuncUnit.class, CLAMP),
+			Map.entry(LerpFuncUnit.class, LERP)
+	);
+
+	private static final class Node {
+		private final int op;
+		private final Unit unit;
+		private final Node[] args;
+		// index of the input for INPUT, or of the first temporary block used for the arguments after the first one
+		private int index;
+
+		private Node(int op, Unit unit, Node[] args) {
+			this.op = op;
+			this.unit = unit;
+			this.args = args;
+		}
+	}
+
+	private final Unit unit;
+	private final VariableSet variables;
+	private final Map<String, double[]> inputs;
+	private Node root;
+	private String[] inputNames;
+	private double[][] inputValues;
+	private int temporaries;
+
+	public UnitBatch(Unit unit, VariableSet variables) {
+		this.unit = unit;
+		this.variables = variables;
+		this.inputs = new LinkedHashMap<>();
+	}
+
+	public UnitBatch(Unit unit) {
+		this(unit, EmptyVariableSet.INSTANCE);
+	}
+
+	/**
+	 * Sets the values of a variable for each element. The array is read when evaluating, not copied.
+	 */
+	public UnitBatch input(String name, double[] values) {
+		if (inputs.put(name, values) == null) {
+			root = null;
+		}
+
+		return this;
+	}
+
+	public double[] evaluate(int count) {
+		double[] output = new double[count];
+		evaluate(output, count);
+		return output;
+	}
+
+	/**
+	 * Evaluates the first count elements on the current thread.
+	 */
+	public void evaluate(double[] output, int count) {
+		prepare(output, count);
+		new Worker().evaluate(output, 0, count);
+	}
+
+	/**
+	 * Evaluates the first count elements, split into tasks of the given pool if there are at least
+	 * {@link #PARALLEL_THRESHOLD} of them, or on the current thread otherwise.
+	 */
+	public void evaluate(double[] output, int count, ForkJoinPool pool) {
+		prepare(output, count);
+
+		if (count < PARALLEL_THRESHOLD) {
+			new Worker().evaluate(output, 0, count);
+		} else {
+			pool.invoke(new Task(output, 0, count));
+		}
+	}
+
+	private void prepare(double[] output, int count) {
+		if (count < 0 || count > output.length) {
+			throw new IllegalArgumentException("Invalid element count " + count + " for output of length " + output.length);
+		}
+
+		if (root == null) {
+			inputNames = inputs.keySet().toArray(new String[0]);
+			temporaries = 0;
+			root = containsSet(unit) ? new Node(UNIT, unit, null) : plan(unit);
+		}
+
+		inputValues = inputs.values().toArray(new double[0][]);
+
+		for (int i = 0; i < inputValues.length; i++) {
+			if (inputValues[i].length < count) {
+				throw new IllegalArgumentException("Input " + inputNames[i] + " has " + inputValues[i].length + " values, " + count + " needed");
+			}
+		}
+	}
+
+	private static boolean containsSet(Unit unit) {
+		if (unit instanceof SetUnit) {
+			return true;
+		} else if (unit instanceof GroupUnit group) {
+			for (Unit u : group.units) {
+				if (containsSet(u)) {
+					return true;
+				}
+			}
+		} else if (unit instanceof OpUnit op) {
+			return op.left != null && containsSet(op.left) || op.right != null && containsSet(op.right);
+		} else if (unit instanceof UnaryOpUnit op) {
+			return containsSet(op.unit);
+		} else if (unit instanceof TernaryUnit op) {
+			return containsSet(op.cond) || containsSet(op.left) || containsSet(op.right);
+		} else if (unit instanceof Func1Unit f) {
+			return containsSet(f.a);
+		} else if (unit instanceof Func2Unit f) {
+			return containsSet(f.a) || containsSet(f.b);
+		} else if (unit instanceof Func3Unit f) {
+			return containsSet(f.a) || containsSet(f.b) || containsSet(f.c);
+		} else if (unit instanceof MapFuncUnit f) {
+			return containsSet(f.value) || containsSet(f.min1) || containsSet(f.max1) || containsSet(f.min2) || containsSet(f.max2);
+		}
+
+		return false;
+	}
+
+	private Node plan(Unit u) {
+		if (u instanceof MemoUnit memo) {
+			// batch subsets aren't memoizing, so memoized units are computed every time anyway
+			return plan(memo.unit);
+		} else if (u instanceof FixedNumberUnit) {
+			return new Node(FIXED, u, null);
+		} else if (u instanceof VariableUnit v && (v.getClass() == VariableUnit.class || v.getClass() == SlotVariableUnit.class)) {
+			int index = Arrays.asList(inputNames).indexOf(v.name);
+
+			if (index != -1) {
+				Node node = new Node(INPUT, u, null);
+				node.index = index;
+				return node;
+			}
+		}
+
+		Integer op = OPS.get(u.getClass());
+
+		if (op == null) {
+			return new Node(UNIT, u, null);
+		}
+
+		List<Unit> args = new ArrayList<>(3);
+
+		if (u instanceof OpUnit o) {
+			args.add(o.left);
+			args.add(o.right);
+		} else if (u instanceof UnaryOpUnit o) {
+			args.add(o.unit);
+		} else if (u instanceof Func1Unit f) {
+			args.add(f.a);
+		} else if (u instanceof Func2Unit f) {
+			args.add(f.a);
+			args.add(f.b);
+		} else if (u instanceof Func3Unit f) {
+			args.add(f.a);
+			args.add(f.b);
+			args.add(f.c);
+		}
+
+		if (args.contains(null)) {
+			return new Node(UNIT, u, null);
+		}
+
+		Node[] nodes = new Node[args.size()];
+
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = plan(args.get(i));
+		}
+
+		Node node = new Node(op, u, nodes);
+		node.index = temporaries;
+		temporaries += nodes.length - 1;
+		return node;
+	}
+
+	private final class Task extends RecursiveAction {
+		@Serial
+		private static final long serialVersionUID = -1950374528248157305L;
+
+		private final double[] output;
+		private final int start;
+		private final int end;
+
+		private Task(double[] output, int start, int end) {
+			this.output = output;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start < PARALLEL_THRESHOLD) {
+				new Worker().evaluate(output, start, end);
+			} else {
+				// split at a block boundary
+				int mid = start + (end - start) / 2 / BLOCK_SIZE * BLOCK_SIZE;
+				invokeAll(new Task(output, start, mid), new Task(output, mid, end));
+			}
+		}
+	}
+
+	private final class Worker {
+		private final VariableSet set;
+		private final MutableNumberUnit[] mutables;
+		private final double[][] temps;
+		private final double[][] values;
+
+		private Worker() {
+			set = variables.createSubset();
+			mutables = new MutableNumberUnit[inputNames.length];
+
+			for (int i = 0; i < mutables.length; i++) {
+				mutables[i] = set.setMutable(inputNames[i], 0D);
+			}
+
+			temps = new double[temporaries][BLOCK_SIZE];
+			values = inputValues;
+		}
+
+		private void evaluate(double[] output, int start, int end) {
+			if (root.op == UNIT) {
+				eval(root, output, start, end - start, start);
+				return;
+			}
+
+			double[] block = new double[BLOCK_SIZE];
+
+			for (int from = start; from < end; from += BLOCK_SIZE) {
+				int len = Math.min(BLOCK_SIZE, end - from);
+				eval(root, block, from, len, 0);
+				System.arraycopy(block, 0, output, from, len);
+			}
+		}
+
+		/**
+		 * Writes results of elements from..from+len into dst, starting at offset.
+		 */
+		private void eval(Node node, double[] dst, int from, int len, int offset) {
+			switch (node.op) {
+				case INPUT -> System.arraycopy(values[node.index], from, dst, offset, len);
+				case FIXED -> Arrays.fill(dst, offset, offset + len, ((FixedNumberUnit) node.unit).value);
+				case UNIT -> {
+					for (int i = 0; i < len; i++) {
+						for (int j = 0; j < mutables.length; j++) {
+							mutables[j].value = values[j][from + i];
+						}
+
+						dst[offset + i] = node.unit.get(set);
+					}
+				}
+				default -> {
+					Node[] args = node.args;
+					eval(args[0], dst, from, len, offset);
+
+					for (int i = 1; i < args.length; i++) {
+						eval(args[i], temps[node.index + i - 1], from, len, 0);
+					}
+
+					apply(node, dst, len);
+				}
+			}
+		}
+
+		private void apply(Node node, double[] a, int len) {
+			double[] b = node.args.length > 1 ? temps[node.index] : null;
+			double[] c = node.args.length > 2 ? temps[node.index + 1] : null;
+
+			switch (node.op) {
+				case ADD -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = a[i] + b[i];
+					}
+				}
+				case SUB -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = a[i] - b[i];
+					}
+				}
+				case MUL -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = a[i] * b[i];
+					}
+				}
+				case DIV -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = a[i] / b[i];
+					}
+				}
+				case MOD -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = a[i] % b[i];
+					}
+				}
+				case POW -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.pow(a[i], b[i]);
+					}
+				}
+				case NEGATE -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = -a[i];
+					}
+				}
+				case ABS -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.abs(a[i]);
+					}
+				}
+				case SIN -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.sin(a[i]);
+					}
+				}
+				case COS -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.cos(a[i]);
+					}
+				}
+				case TAN -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.tan(a[i]);
+					}
+				}
+				case DEG -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.toDegrees(a[i]);
+					}
+				}
+				case RAD -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.toRadians(a[i]);
+					}
+				}
+				case ATAN -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.atan(a[i]);
+					}
+				}
+				case LOG -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.log(a[i]);
+					}
+				}
+				case LOG10 -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.log10(a[i]);
+					}
+				}
+				case LOG1P -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.log1p(a[i]);
+					}
+				}
+				case SQRT -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.sqrt(a[i]);
+					}
+				}
+				case SQ -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = a[i] * a[i];
+					}
+				}
+				case FLOOR -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.floor(a[i]);
+					}
+				}
+				case CEIL -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.ceil(a[i]);
+					}
+				}
+				case SMOOTHSTEP -> {
+					for (int i = 0; i < len; i++) {
+						double d = a[i];
+						a[i] = d * d * d * (d * (d * 6D - 15D) + 10D);
+					}
+				}
+				case MIN -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.min(a[i], b[i]);
+					}
+				}
+				case MAX -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.max(a[i], b[i]);
+					}
+				}
+				case ATAN2 -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = Math.atan2(a[i], b[i]);
+					}
+				}
+				case CLAMP -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = ClampFuncUnit.clamp(a[i], b[i], c[i]);
+					}
+				}
+				case LERP -> {
+					for (int i = 0; i < len; i++) {
+						a[i] = LerpFuncUnit.lerp(a[i], b[i], c[i]);
+					}
+				}
+				default -> throw new IllegalStateException("Unknown operation " + node.op);
+			}
+		}
+	}
+}
@@ -0,0 +1,438 @@
+package dev.latvian.mods.unit;
+
+import dev.latvian.mods.rhino.classfile.ByteCode;
+import dev.latvian.mods.rhino.classfile.ClassFileWriter;
+import dev.latvian.mods.unit.function.AbsFuncUnit;
+import dev.latvian.mods.unit.function.Atan2FuncUnit;
+import dev.latvian.mods.unit.function.AtanFuncUnit;
+import dev.latvian.mods.unit.function.BoolFuncUnit;
+import dev.latvian.mods.unit.function.CeilFuncUnit;
+import dev.latvian.mods.unit.function.ClampFuncUnit;
+import dev.latvian.mods.unit.function.CosFuncUnit;
+import dev.latvian.mods.unit.function.DegFuncUnit;
+import dev.latvian.mods.unit.function.FloorFuncUnit;
+import dev.latvian.mods.unit.function.Func1Unit;
+import dev.latvian.mods.unit.function.Func2Unit;
+import dev.latvian.mods.unit.function.Func3Unit;
+import dev.latvian.mods.unit.function.LerpFuncUnit;
+import dev.latvian.mods.unit.function.Log10FuncUnit;
+import dev.latvian.mods.unit.function.Log1pFuncUnit;
+import dev.latvian.mods.unit.function.LogFuncUnit;
+import dev.latvian.mods.unit.function.MaxFuncUnit;
+import dev.latvian.mods.unit.function.MinFuncUnit;
+import dev.latvian.mods.unit.function.RadFuncUnit;
+import dev.latvian.mods.unit.function.SinFuncUnit;
+import dev.latvian.mods.unit.function.SmoothstepFuncUnit;
+import dev.latvian.mods.unit.function.SqFuncUnit;
+import dev.latvian.mods.unit.function.SqrtFuncUnit;
+import dev.latvian.mods.unit.function.TanFuncUnit;
+import dev.latvian.mods.unit.operator.BitNotOpUnit;
+import dev.latvian.mods.unit.operator.BoolNotOpUnit;
+import dev.latvian.mods.unit.operator.NegateOpUnit;
+import dev.latvian.mods.unit.operator.OpUnit;
+import dev.latvian.mods.unit.operator.UnaryOpUnit;
+import dev.latvian.mods.unit.operator.cond.AndOpUnit;
+import dev.latvian.mods.unit.operator.cond.EqOpUnit;
+import dev.latvian.mods.unit.operator.cond.GtOpUnit;
+import dev.latvian.mods.unit.operator.cond.GteOpUnit;
+import dev.latvian.mods.unit.operator.cond.LtOpUnit;
+import dev.latvian.mods.unit.operator.cond.LteOpUnit;
+import dev.latvian.mods.unit.operator.cond.NeqOpUnit;
+import dev.latvian.mods.unit.operator.cond.OrOpUnit;
+import dev.latvian.mods.unit.operator.op.AddOpUnit;
+import dev.latvian.mods.unit.operator.op.BitAndOpUnit;
+import dev.latvian.mods.unit.operator.op.BitOrOpUnit;
+import dev.latvian.mods.unit.operator.op.DivOpUnit;
+import dev.latvian.mods.unit.operator.op.LshOpUnit;
+import dev.latvian.mods.unit.operator.op.ModOpUnit;
+import dev.latvian.mods.unit.operator.op.MulOpUnit;
+import dev.latvian.mods.unit.operator.op.PowOpUnit;
+import dev.latvian.mods.unit.operator.op.RshOpUnit;
+import dev.latvian.mods.unit.operator.op.SubOpUnit;
+import dev.latvian.mods.unit.operator.op.XorOpUnit;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates a {@link CompiledUnit} class for a unit tree. Built-in operators and math
+ * functions are turned into plain double, int and boolean bytecode with the same results
+ * as their get, getInt and getBoolean methods. Any other unit, like variables or custom
+ * functions, is called through the {@link CompiledUnit#units} array.
+ */
+final class UnitCompiler {
+	private static final String CLASS_NAME = "dev.latvian.mods.unit.CompiledUnit$Generated";
+	private static final String COMPILED_UNIT = "dev/latvian/mods/unit/CompiledUnit";
+	private static final String UNIT = "dev/latvian/mods/unit/Unit";
+	private static final String UNIT_ARRAY = "[Ldev/latvian/mods/unit/Unit;";
+	private static final String VARIABLES = "Ldev/latvian/mods/unit/UnitVariables;";
+
+	private static final int DOUBLE = 0;
+	private static final int INT = 1;
+	private static final int BOOLEAN = 2;
+
+	// Classes whose getInt and getBoolean are left as the defaults of Unit, computed from get
+	private static final Map<Class<?>, String> MATH_FUNCTIONS = Map.ofEntries(
+			Map.entry(AbsFuncUnit.class, "abs"),
+			Map.entry(SinFuncUnit.class, "sin"),
+			Map.entry(CosFuncUnit.class, "cos"),
+			Map.entry(TanFuncUnit.class, "tan"),
+			Map.entry(DegFuncUnit.class, "toDegrees"),
+			Map.entry(RadFuncUnit.class, "toRadians"),
+			Map.entry(AtanFuncUnit.class, "atan"),
+			Map.entry(LogFuncUnit.class, "log"),
+			Map.entry(Log10FuncUnit.class, "log10"),
+			Map.entry(Log1pFuncUnit.class, "log1p"),
+			Map.entry(SqrtFuncUnit.class, "sqrt"),
+			Map.entry(FloorFuncUnit.class, "floor"),
+			Map.entry(CeilFuncUnit.class, "ceil"),
+			Map.entry(MinFuncUnit.class, "min"),
+			Map.entry(MaxFuncUnit.class, "max"),
+			Map.entry(Atan2FuncUnit.class, "atan2"),
+			Map.entry(PowOpUnit.class, "pow")
+	);
+
+	private static final Map<Class<?>, Integer> DOUBLE_OPS = Map.of(
+			AddOpUnit.class, ByteCode.DADD,
+			SubOpUnit.class, ByteCode.DSUB,
+			MulOpUnit.class, ByteCode.DMUL,
+			DivOpUnit.class, ByteCode.DDIV,
+			ModOpUnit.class, ByteCode.DREM
+	);
+
+	private static final Map<Class<?>, Integer> INT_OPS = Map.of(
+			BitAndOpUnit.class, ByteCode.IAND,
+			BitOrOpUnit.class, ByteCode.IOR,
+			XorOpUnit.class, ByteCode.IXOR,
+			LshOpUnit.class, ByteCode.ISHL,
+			RshOpUnit.class, ByteCode.ISHR
+	);
+
+	// Comparison and the jump taken when it is false, matching how javac compiles them for NaN
+	private static final Map<Class<?>, int[]> COMPARISONS = Map.of(
+			LtOpUnit.class, new int[]{ByteCode.DCMPG, ByteCode.IFGE},
+			GtOpUnit.class, new int[]{ByteCode.DCMPL, ByteCode.IFLE},
+			LteOpUnit.class, new int[]{ByteCode.DCMPG, ByteCode.IFGT},
+			GteOpUnit.class, new int[]{ByteCode.DCMPL, ByteCode.IFLT}
+	);
+
+	/**
+	 * @return compiled unit, or null if the unit itself isn't one that can be compiled
+	 */
+	@Nullable
+	static CompiledUnit compile(Unit unit) throws ReflectiveOperationException {
+		if (!isCompiled(unit)) {
+			return null;
+		}
+
+		UnitCompiler compiler = new UnitCompiler();
+		byte[] bytes = compiler.generate(unit);
+		Class<?> c = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+		return (CompiledUnit) c.getConstructor(Unit.class, Unit[].class).newInstance(unit, compiler.units.toArray(Unit.EMPTY_ARRAY));
+	}
+
+	private static boolean isCompiled(Unit unit) {
+		Class<?> c = unit.getClass();
+
+		if (unit instanceof OpUnit op && (op.left == null || op.right == null)) {
+			return false;
+		}
+
+		return c == FixedNumberUnit.class
+				|| c == FixedBooleanUnit.class
+				|| c == TernaryUnit.class
+				|| c == NegateOpUnit.class
+				|| c == BitNotOpUnit.class
+				|| c == BoolNotOpUnit.class
+				|| c == BoolFuncUnit.class
+				|| c == SqFuncUnit.class
+				|| c == SmoothstepFuncUnit.class
+				|| c == LerpFuncUnit.class
+				|| c == ClampFuncUnit.class
+				|| c == EqOpUnit.class
+				|| c == NeqOpUnit.class
+				|| c == AndOpUnit.class
+				|| c == OrOpUnit.class
+				|| MATH_FUNCTIONS.containsKey(c)
+				|| DOUBLE_OPS.containsKey(c)
+				|| INT_OPS.containsKey(c)
+				|| COMPARISONS.containsKey(c);
+	}
+
+	private final List<Unit> units = new ArrayList<>();
+	private final Map<Unit, Integer> unitIndices = new IdentityHashMap<>();
+	private ClassFileWriter cfw;
+	private int nextLocal;
+	private int maxLocals;
+
+	private byte[] generate(Unit unit) {
+		cfw = new ClassFileWriter(CLASS_NAME, CompiledUnit.class.getName(), "<unit>");
+		cfw.setFlags((short) (ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SUPER));
+
+		String ctorDesc = "(L" + UNIT + ";" + UNIT_ARRAY + ")V";
+		cfw.startMethod("<init>", ctorDesc, ClassFileWriter.ACC_PUBLIC);
+		cfw.addALoad(0);
+		cfw.addALoad(1);
+		cfw.addALoad(2);
+		cfw.addInvoke(ByteCode.INVOKESPECIAL, COMPILED_UNIT, "<init>", ctorDesc);
+		cfw.add(ByteCode.RETURN);
+		cfw.stopMethod((short) 3);
+
+		generateMethod(unit, "get", "D", DOUBLE, ByteCode.DRETURN);
+		generateMethod(unit, "getInt", "I", INT, ByteCode.IRETURN);
+		generateMethod(unit, "getBoolean", "Z", BOOLEAN, ByteCode.IRETURN);
+		return cfw.toByteArray();
+	}
+
+	private void generateMethod(Unit unit, String name, String returnType, int type, int returnOp) {
+		nextLocal = 2;
+		maxLocals = 2;
+		cfw.startMethod(name, "(" + VARIABLES + ")" + returnType, ClassFileWriter.ACC_PUBLIC);
+		emit(unit, type);
+		cfw.add(returnOp);
+		cfw.stopMethod((short) maxLocals);
+	}
+
+	private void emit(Unit unit, int type) {
+		Class<?> c = unit.getClass();
+
+		if (!isCompiled(unit)) {
+			emitCall(unit, type);
+		} else if (c == FixedNumberUnit.class) {
+			double value = ((FixedNumberUnit) unit).value;
+
+			switch (type) {
+				case DOUBLE -> cfw.addPush(value);
+				case INT -> cfw.addPush(unit.getInt(null));
+				default -> cfw.addPush(unit.getBoolean(null));
+			}
+		} else if (c == FixedBooleanUnit.class) {
+			boolean value = ((FixedBooleanUnit) unit).value;
+
+			switch (type) {
+				case DOUBLE -> cfw.addPush(value ? 1D : 0D);
+				case INT -> cfw.addPush(value ? 1 : 0);
+				default -> cfw.addPush(value);
+			}
+		} else if (c == TernaryUnit.class) {
+			TernaryUnit u = (TernaryUnit) unit;
+			int elseLabel = cfw.acquireLabel();
+			int endLabel = cfw.acquireLabel();
+			emit(u.cond, BOOLEAN);
+			cfw.add(ByteCode.IFEQ, elseLabel);
+			short stackTop = cfw.getStackTop();
+			emit(u.left, type);
+			cfw.add(ByteCode.GOTO, endLabel);
+			cfw.markLabel(elseLabel, stackTop);
+			emit(u.right, type);
+			cfw.markLabel(endLabel);
+		} else if (c == NegateOpUnit.class && type == INT) {
+			emit(((UnaryOpUnit) unit).unit, INT);
+			cfw.add(ByteCode.INEG);
+		} else if (INT_OPS.containsKey(c) || c == BitNotOpUnit.class) {
+			if (type == BOOLEAN && c != LshOpUnit.class && c != RshOpUnit.class) {
+				emitBoolean(unit);
+			} else {
+				emitInt(unit);
+
+				if (type == DOUBLE) {
+					cfw.add(ByteCode.I2D);
+				} else if (type == BOOLEAN) {
+					emitTest(ByteCode.IFEQ);
+				}
+			}
+		} else if (c == BoolNotOpUnit.class || c == BoolFuncUnit.class || c == EqOpUnit.class || c == NeqOpUnit.class || c == AndOpUnit.class || c == OrOpUnit.class || COMPARISONS.containsKey(c)) {
+			emitBoolean(unit);
+
+			if (type == DOUBLE) {
+				cfw.add(ByteCode.I2D);
+			}
+		} else {
+			emitDouble(unit);
+
+			if (type == INT) {
+				cfw.addInvoke(ByteCode.INVOKESTATIC, COMPILED_UNIT, "toInt", "(D)I");
+			} else if (type == BOOLEAN) {
+				cfw.add(ByteCode.DCONST_0);
+				cfw.add(ByteCode.DCMPL);
+				emitTest(ByteCode.IFEQ);
+			}
+		}
+	}
+
+	/**
+	 * Units whose get is their own and getInt and getBoolean are derived from it.
+	 */
+	private void emitDouble(Unit unit) {
+		Class<?> c = unit.getClass();
+		Integer op = DOUBLE_OPS.get(c);
+
+		if (op != null) {
+			emit(((OpUnit) unit).left, DOUBLE);
+			emit(((OpUnit) unit).right, DOUBLE);
+			cfw.add(op);
+		} else if (c == NegateOpUnit.class) {
+			emit(((UnaryOpUnit) unit).unit, DOUBLE);
+			cfw.add(ByteCode.DNEG);
+		} else if (c == SqFuncUnit.class) {
+			emit(((Func1Unit) unit).a, DOUBLE);
+			cfw.add(ByteCode.DUP2);
+			cfw.add(ByteCode.DMUL);
+		} else if (c == SmoothstepFuncUnit.class) {
+			// d * d * d * (d * (d * 6D - 15D) + 10D)
+			emit(((Func1Unit) unit).a, DOUBLE);
+			int d = nextLocal;
+			nextLocal += 2;
+			maxLocals = Math.max(maxLocals, nextLocal);
+			cfw.addDStore(d);
+			cfw.addDLoad(d);
+			cfw.addDLoad(d);
+			cfw.add(ByteCode.DMUL);
+			cfw.addDLoad(d);
+			cfw.add(ByteCode.DMUL);
+			cfw.addDLoad(d);
+			cfw.addDLoad(d);
+			cfw.addPush(6D);
+			cfw.add(ByteCode.DMUL);
+			cfw.addPush(15D);
+			cfw.add(ByteCode.DSUB);
+			cfw.add(ByteCode.DMUL);
+			cfw.addPush(10D);
+			cfw.add(ByteCode.DADD);
+			cfw.add(ByteCode.DMUL);
+			nextLocal -= 2;
+		} else if (c == LerpFuncUnit.class || c == ClampFuncUnit.class) {
+			Func3Unit u = (Func3Unit) unit;
+			emit(u.a, DOUBLE);
+			emit(u.b, DOUBLE);
+			emit(u.c, DOUBLE);
+			String owner = c == LerpFuncUnit.class ? "dev/latvian/mods/unit/function/LerpFuncUnit" : "dev/latvian/mods/unit/function/ClampFuncUnit";
+			cfw.addInvoke(ByteCode.INVOKESTATIC, owner, c == LerpFuncUnit.class ? "lerp" : "clamp", "(DDD)D");
+		} else if (unit instanceof Func1Unit u) {
+			emit(u.a, DOUBLE);
+			cfw.addInvoke(ByteCode.INVOKESTATIC, "java/lang/Math", MATH_FUNCTIONS.get(c), "(D)D");
+		} else if (unit instanceof Func2Unit u) {
+			emit(u.a, DOUBLE);
+			emit(u.b, DOUBLE);
+			cfw.addInvoke(ByteCode.INVOKESTATIC, "java/lang/Math", MATH_FUNCTIONS.get(c), "(DD)D");
+		} else {
+			// PowOpUnit
+			emit(((OpUnit) unit).left, DOUBLE);
+			emit(((OpUnit) unit).right, DOUBLE);
+			cfw.addInvoke(ByteCode.INVOKESTATIC, "java/lang/Math", MATH_FUNCTIONS.get(c), "(DD)D");
+		}
+	}
+
+	/**
+	 * Units whose getInt is their own and get is derived from it.
+	 */
+	private void emitInt(Unit unit) {
+		if (unit.getClass() == BitNotOpUnit.class) {
+			emit(((UnaryOpUnit) unit).unit, INT);
+			cfw.add(ByteCode.ICONST_M1);
+			cfw.add(ByteCode.IXOR);
+		} else {
+			emit(((OpUnit) unit).left, INT);
+			emit(((OpUnit) unit).right, INT);
+			cfw.add(INT_OPS.get(unit.getClass()));
+		}
+	}
+
+	/**
+	 * Units whose getBoolean is their own.
+	 */
+	private void emitBoolean(Unit unit) {
+		Class<?> c = unit.getClass();
+
+		if (c == BoolNotOpUnit.class || c == BitNotOpUnit.class) {
+			emit(((UnaryOpUnit) unit).unit, BOOLEAN);
+			cfw.add(ByteCode.ICONST_1);
+			cfw.add(ByteCode.IXOR);
+		} else if (c == BoolFuncUnit.class) {
+			emit(((Func1Unit) unit).a, BOOLEAN);
+		} else if (c == XorOpUnit.class) {
+			emit(((OpUnit) unit).left, BOOLEAN);
+			emit(((OpUnit) unit).right, BOOLEAN);
+			cfw.add(ByteCode.IXOR);
+		} else if (c == AndOpUnit.class || c == BitAndOpUnit.class || c == OrOpUnit.class || c == BitOrOpUnit.class) {
+			boolean and = c == AndOpUnit.class || c == BitAndOpUnit.class;
+			int shortLabel = cfw.acquireLabel();
+			int endLabel = cfw.acquireLabel();
+			emit(((OpUnit) unit).left, BOOLEAN);
+			cfw.add(and ? ByteCode.IFEQ : ByteCode.IFNE, shortLabel);
+			short stackTop = cfw.getStackTop();
+			emit(((OpUnit) unit).right, BOOLEAN);
+			cfw.add(ByteCode.GOTO, endLabel);
+			cfw.markLabel(shortLabel, stackTop);
+			cfw.addPush(!and);
+			cfw.markLabel(endLabel);
+		} else if (c == EqOpUnit.class || c == NeqOpUnit.class) {
+			OpUnit u = (OpUnit) unit;
+
+			if (u.left == u.right) {
+				cfw.addPush(c == EqOpUnit.class);
+			} else {
+				emit(u.left, DOUBLE);
+				emit(u.right, DOUBLE);
+				cfw.add(ByteCode.DSUB);
+				cfw.addInvoke(ByteCode.INVOKESTATIC, "java/lang/Math", "abs", "(D)D");
+				cfw.addPush(0.00001D);
+
+				if (c == EqOpUnit.class) {
+					cfw.add(ByteCode.DCMPG);
+					emitTest(ByteCode.IFGE);
+				} else {
+					cfw.add(ByteCode.DCMPL);
+					emitTest(ByteCode.IFLT);
+				}
+			}
+		} else {
+			int[] comparison = COMPARISONS.get(c);
+			emit(((OpUnit) unit).left, DOUBLE);
+			emit(((OpUnit) unit).right, DOUBLE);
+			cfw.add(comparison[0]);
+			emitTest(comparison[1]);
+		}
+	}
+
+	/**
+	 * Turns an int on the stack into 0 if the given jump is taken, or 1 otherwise.
+	 */
+	private void emitTest(int falseJump) {
+		int falseLabel = cfw.acquireLabel();
+		int endLabel = cfw.acquireLabel();
+		cfw.add(falseJump, falseLabel);
+		short stackTop = cfw.getStackTop();
+		cfw.add(ByteCode.ICONST_1);
+		cfw.add(ByteCode.GOTO, endLabel);
+		cfw.markLabel(falseLabel, stackTop);
+		cfw.add(ByteCode.ICONST_0);
+		cfw.markLabel(endLabel);
+	}
+
+	private void emitCall(Unit unit, int type) {
+		Integer index = unitIndices.get(unit);
+
+		if (index == null) {
+			index = units.size();
+			units.add(unit);
+			unitIndices.put(unit, index);
+		}
+
+		cfw.addALoad(0);
+		cfw.add(ByteCode.GETFIELD, COMPILED_UNIT, "units", UNIT_ARRAY);
+		cfw.addPush(index);
+		cfw.add(ByteCode.AALOAD);
+		cfw.addALoad(1);
+
+		switch (type) {
+			case DOUBLE -> cfw.addInvoke(ByteCode.INVOKEVIRTUAL, UNIT, "get", "(" + VARIABLES + ")D");
+			case INT -> cfw.addInvoke(ByteCode.INVOKEVIRTUAL, UNIT, "getInt", "(" + VARIABLES + ")I");
+			default -> cfw.addInvoke(ByteCode.INVOKEVIRTUAL, UNIT, "getBoolean", "(" + VARIABLES + ")Z");
+		}
+	}
+}
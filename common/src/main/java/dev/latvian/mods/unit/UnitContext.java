@@ -32,9 +32,14 @@ import dev.latvian.mods.unit.function.WithAlphaFuncUnit;
 import dev.latvian.mods.unit.token.UnitTokenStream;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class UnitContext {
@@ -80,12 +85,60 @@ public class UnitContext {
 		DEFAULT.addConstant("E", FixedNumberUnit.E);
 	}
 
-	public final Map<String, Unit> constants = new HashMap<>();
-	private final Map<String, FunctionFactory> functions = new HashMap<>();
-	private final Map<String, Unit> cache = new HashMap<>();
+	public static final int DEFAULT_CACHE_SIZE = 4096;
+
+	private static final class CacheEntry {
+		private final Unit unit;
+		private volatile long lastUsed;
+
+		private CacheEntry(Unit unit, long lastUsed) {
+			this.unit = unit;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	public final Map<String, Unit> constants;
+	private final Map<String, FunctionFactory> functions;
+	private final boolean frozen;
+	private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+	private final AtomicLong cacheTicks = new AtomicLong();
+	private volatile int cacheSize = DEFAULT_CACHE_SIZE;
 	private int debug = -1;
+	private VariableLayout layout;
+
+	public UnitContext() {
+		this.constants = new HashMap<>();
+		this.functions = new HashMap<>();
+		this.frozen = false;
+	}
+
+	private UnitContext(UnitContext from) {
+		this.constants = Map.copyOf(from.constants);
+		this.functions = Map.copyOf(from.functions);
+		this.frozen = true;
+		this.cacheSize = from.cacheSize;
+		this.debug = from.debug;
+		this.layout = from.layout;
+	}
+
+	/**
+	 * Creates a copy of this context whose functions and constants can't be changed anymore,
+	 * so that it can be shared between threads that parse units at the same time.
+	 * Sub contexts of a frozen context can be changed again.
+	 */
+	public UnitContext freeze() {
+		return frozen ? this : new UnitContext(this);
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
 
 	public void addFunction(FunctionFactory factory) {
+		if (frozen) {
+			throw new IllegalStateException("Can't add function '" + factory.name() + "' to a frozen UnitContext");
+		}
+
 		functions.put(factory.name(), factory);
 	}
 
@@ -95,6 +148,10 @@ public class UnitContext {
 	}
 
 	public void addConstant(String s, Unit u) {
+		if (frozen) {
+			throw new IllegalStateException("Can't add constant '" + s + "' to a frozen UnitContext");
+		}
+
 		constants.put(s, u);
 	}
 
@@ -102,24 +159,131 @@ public class UnitContext {
 		UnitContext ctx = new UnitContext();
 		ctx.functions.putAll(functions);
 		ctx.debug = debug;
+		ctx.cacheSize = cacheSize;
+		return ctx;
+	}
+
+	/**
+	 * Creates a sub context that resolves variables to indices of the given layout
+	 * while parsing, see {@link VariableFrame}.
+	 */
+	public UnitContext sub(VariableLayout layout) {
+		UnitContext ctx = sub();
+		ctx.constants.putAll(constants);
+		ctx.layout = layout;
 		return ctx;
 	}
 
+	@Nullable
+	public VariableLayout getLayout() {
+		return layout;
+	}
+
 	public UnitTokenStream createStream(String input) {
 		return new UnitTokenStream(this, input);
 	}
 
+	/**
+	 * Parses and simplifies a unit, or returns the unit cached for the same input.
+	 * Can be called from multiple threads at the same time, as long as functions and
+	 * constants aren't added while parsing, see {@link #freeze()}.
+	 */
 	public Unit parse(String input) {
-		Unit u = cache.get(input);
+		CacheEntry entry = cache.get(input);
+
+		if (entry != null) {
+			entry.lastUsed = cacheTicks.incrementAndGet();
+			return entry.unit;
+		}
+
+		Unit u = UnitSimplifier.simplify(createStream(input).getUnit());
 
-		if (u == null) {
-			u = createStream(input).getUnit();
-			cache.put(input, u);
+		if (cacheSize > 0) {
+			entry = cache.putIfAbsent(input, new CacheEntry(u, cacheTicks.incrementAndGet()));
+
+			if (entry != null) {
+				return entry.unit;
+			} else if (cache.size() > cacheSize) {
+				trimCache();
+			}
 		}
 
 		return u;
 	}
 
+	/**
+	 * Sets how many parsed units are cached, least recently used ones are removed first. 0 disables the cache.
+	 */
+	public void setCacheSize(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Cache size can't be negative");
+		}
+
+		cacheSize = size;
+
+		if (size == 0) {
+			cache.clear();
+		} else if (cache.size() > size) {
+			trimCache();
+		}
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void clearCache() {
+		cache.clear();
+	}
+
+	// Removes the least recently used quarter of the entries, so that this doesn't run for every new unit
+	private synchronized void trimCache() {
+		int size = cache.size();
+		int max = cacheSize;
+
+		if (size <= max) {
+			return;
+		}
+
+		List<Map.Entry<String, CacheEntry>> entries = new ArrayList<>(cache.entrySet());
+		entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+		int remove = Math.min(entries.size(), size - max + max / 4);
+
+		for (int i = 0; i < remove; i++) {
+			Map.Entry<String, CacheEntry> e = entries.get(i);
+			cache.remove(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Folds constant subtrees, removes identities like <code>x * 1</code> and shares equal subtrees
+	 * of a unit built without {@link #parse(String)}, which already does this.
+	 * Built-in operators and functions are replaced with new units, the given tree isn't changed.
+	 */
+	public Unit simplify(Unit unit) {
+		return UnitSimplifier.simplify(unit);
+	}
+
+	/**
+	 * Compiles a unit into a generated class that evaluates the whole tree in a single call,
+	 * with built-in operators and functions turned into plain arithmetic and {@link Math} calls.
+	 * The result gives the same values as the unit, as long as the tree isn't changed afterwards.
+	 * Units that can't be compiled are returned as they are.
+	 */
+	public Unit compile(Unit unit) {
+		if (unit.isFixed() || unit instanceof CompiledUnit) {
+			return unit;
+		}
+
+		try {
+			Unit compiled = UnitCompiler.compile(unit);
+			return compiled == null ? unit : compiled;
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+			debugInfo("Failed to compile " + unit + ": " + ex);
+			return unit;
+		}
+	}
+
 	public boolean isDebug() {
 		return debug >= 0;
 	}
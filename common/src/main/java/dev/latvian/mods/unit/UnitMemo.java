@@ -0,0 +1,66 @@
+package dev.latvian.mods.unit;
+
+import java.util.Arrays;
+
+/**
+ * Values of {@link MemoUnit}s computed during one evaluation, in an open addressing table.
+ */
+final class UnitMemo {
+	private MemoUnit[] keys = new MemoUnit[16];
+	private double[] values = new double[16];
+	private int size;
+
+	double get(MemoUnit unit, UnitVariables variables) {
+		int mask = keys.length - 1;
+
+		for (int i = unit.hash & mask; keys[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == unit) {
+				return values[i];
+			}
+		}
+
+		double value = unit.unit.get(variables);
+		put(unit, value);
+		return value;
+	}
+
+	private void put(MemoUnit unit, double value) {
+		// the table may have grown while computing the value, so the slot is looked up again
+		if (size * 2 >= keys.length) {
+			MemoUnit[] oldKeys = keys;
+			double[] oldValues = values;
+			keys = new MemoUnit[oldKeys.length * 2];
+			values = new double[oldKeys.length * 2];
+			size = 0;
+
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		int mask = keys.length - 1;
+		int i = unit.hash & mask;
+
+		while (keys[i] != null) {
+			if (keys[i] == unit) {
+				values[i] = value;
+				return;
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = unit;
+		values[i] = value;
+		size++;
+	}
+
+	void clear() {
+		if (size > 0) {
+			Arrays.fill(keys, null);
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,411 @@
+package dev.latvian.mods.unit;
+
+import dev.latvian.mods.unit.function.AbsFuncUnit;
+import dev.latvian.mods.unit.function.Atan2FuncUnit;
+import dev.latvian.mods.unit.function.AtanFuncUnit;
+import dev.latvian.mods.unit.function.BoolFuncUnit;
+import dev.latvian.mods.unit.function.CeilFuncUnit;
+import dev.latvian.mods.unit.function.ClampFuncUnit;
+import dev.latvian.mods.unit.function.CosFuncUnit;
+import dev.latvian.mods.unit.function.DegFuncUnit;
+import dev.latvian.mods.unit.function.FloorFuncUnit;
+import dev.latvian.mods.unit.function.Func1Unit;
+import dev.latvian.mods.unit.function.Func2Unit;
+import dev.latvian.mods.unit.function.Func3Unit;
+import dev.latvian.mods.unit.function.LerpFuncUnit;
+import dev.latvian.mods.unit.function.Log10FuncUnit;
+import dev.latvian.mods.unit.function.Log1pFuncUnit;
+import dev.latvian.mods.unit.function.LogFuncUnit;
+import dev.latvian.mods.unit.function.MapFuncUnit;
+import dev.latvian.mods.unit.function.MaxFuncUnit;
+import dev.latvian.mods.unit.function.MinFuncUnit;
+import dev.latvian.mods.unit.function.RadFuncUnit;
+import dev.latvian.mods.unit.function.RoundedTimeUnit;
+import dev.latvian.mods.unit.function.SinFuncUnit;
+import dev.latvian.mods.unit.function.SmoothstepFuncUnit;
+import dev.latvian.mods.unit.function.SqFuncUnit;
+import dev.latvian.mods.unit.function.SqrtFuncUnit;
+import dev.latvian.mods.unit.function.TanFuncUnit;
+import dev.latvian.mods.unit.function.TimeUnit;
+import dev.latvian.mods.unit.operator.BitNotOpUnit;
+import dev.latvian.mods.unit.operator.BoolNotOpUnit;
+import dev.latvian.mods.unit.operator.GroupUnit;
+import dev.latvian.mods.unit.operator.NegateOpUnit;
+import dev.latvian.mods.unit.operator.OpUnit;
+import dev.latvian.mods.unit.operator.SetUnit;
+import dev.latvian.mods.unit.operator.UnaryOpUnit;
+import dev.latvian.mods.unit.operator.cond.AndOpUnit;
+import dev.latvian.mods.unit.operator.cond.CondOpUnit;
+import dev.latvian.mods.unit.operator.cond.EqOpUnit;
+import dev.latvian.mods.unit.operator.cond.GtOpUnit;
+import dev.latvian.mods.unit.operator.cond.GteOpUnit;
+import dev.latvian.mods.unit.operator.cond.LtOpUnit;
+import dev.latvian.mods.unit.operator.cond.LteOpUnit;
+import dev.latvian.mods.unit.operator.cond.NeqOpUnit;
+import dev.latvian.mods.unit.operator.cond.OrOpUnit;
+import dev.latvian.mods.unit.operator.op.AddOpUnit;
+import dev.latvian.mods.unit.operator.op.BitAndOpUnit;
+import dev.latvian.mods.unit.operator.op.BitOrOpUnit;
+import dev.latvian.mods.unit.operator.op.DivOpUnit;
+import dev.latvian.mods.unit.operator.op.LshOpUnit;
+import dev.latvian.mods.unit.operator.op.ModOpUnit;
+import dev.latvian.mods.unit.operator.op.MulOpUnit;
+import dev.latvian.mods.unit.operator.op.PowOpUnit;
+import dev.latvian.mods.unit.operator.op.RshOpUnit;
+import dev.latvian.mods.unit.operator.op.SubOpUnit;
+import dev.latvian.mods.unit.operator.op.XorOpUnit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Rebuilds a unit tree bottom-up with constant subtrees folded, identities like
+ * <code>x * 1</code> removed, <code>x ** 2</code> turned into <code>sq(x)</code> and
+ * structurally equal subtrees shared. Shared subtrees of trees that only use built-in units
+ * without side effects are wrapped in {@link MemoUnit}s.
+ * <p>
+ * Only built-in operators and functions without side effects are rebuilt, anything else,
+ * like variables, assignments, random() or custom functions, is kept as it is. A subtree is
+ * only folded if the constant gives the same get, getInt and getBoolean results as the subtree.
+ * Removing <code>+ 0</code> turns a -0 result into +0, otherwise results are the same.
+ */
+final class UnitSimplifier {
+	// Built-in units without side effects, by class, so that subclasses with other behavior aren't rebuilt
+	private static final Map<Class<?>, Function<Unit[], Unit>> FACTORIES = Map.ofEntries(
+			Map.entry(AddOpUnit.class, u -> new AddOpUnit(u[0], u[1])),
+			Map.entry(SubOpUnit.class, u -> new SubOpUnit(u[0], u[1])),
+			Map.entry(MulOpUnit.class, u -> new MulOpUnit(u[0], u[1])),
+			Map.entry(DivOpUnit.class, u -> new DivOpUnit(u[0], u[1])),
+			Map.entry(ModOpUnit.class, u -> new ModOpUnit(u[0], u[1])),
+			Map.entry(PowOpUnit.class, u -> new PowOpUnit(u[0], u[1])),
+			Map.entry(LshOpUnit.class, u -> new LshOpUnit(u[0], u[1])),
+			Map.entry(RshOpUnit.class, u -> new RshOpUnit(u[0], u[1])),
+			Map.entry(BitAndOpUnit.class, u -> new BitAndOpUnit(u[0], u[1])),
+			Map.entry(BitOrOpUnit.class, u -> new BitOrOpUnit(u[0], u[1])),
+			Map.entry(XorOpUnit.class, u -> new XorOpUnit(u[0], u[1])),
+			Map.entry(EqOpUnit.class, u -> new EqOpUnit(u[0], u[1])),
+			Map.entry(NeqOpUnit.class, u -> new NeqOpUnit(u[0], u[1])),
+			Map.entry(LtOpUnit.class, u -> new LtOpUnit(u[0], u[1])),
+			Map.entry(GtOpUnit.class, u -> new GtOpUnit(u[0], u[1])),
+			Map.entry(LteOpUnit.class, u -> new LteOpUnit(u[0], u[1])),
+			Map.entry(GteOpUnit.class, u -> new GteOpUnit(u[0], u[1])),
+			Map.entry(AndOpUnit.class, u -> new AndOpUnit(u[0], u[1])),
+			Map.entry(OrOpUnit.class, u -> new OrOpUnit(u[0], u[1])),
+			Map.entry(NegateOpUnit.class, u -> new NegateOpUnit(u[0])),
+			Map.entry(BitNotOpUnit.class, u -> new BitNotOpUnit(u[0])),
+			Map.entry(BoolNotOpUnit.class, u -> new BoolNotOpUnit(u[0])),
+			Map.entry(TernaryUnit.class, u -> new TernaryUnit(u[0], u[1], u[2])),
+			Map.entry(AbsFuncUnit.class, u -> new AbsFuncUnit(u[0])),
+			Map.entry(SinFuncUnit.class, u -> new SinFuncUnit(u[0])),
+			Map.entry(CosFuncUnit.class, u -> new CosFuncUnit(u[0])),
+			Map.entry(TanFuncUnit.class, u -> new TanFuncUnit(u[0])),
+			Map.entry(DegFuncUnit.class, u -> new DegFuncUnit(u[0])),
+			Map.entry(RadFuncUnit.class, u -> new RadFuncUnit(u[0])),
+			Map.entry(AtanFuncUnit.class, u -> new AtanFuncUnit(u[0])),
+			Map.entry(LogFuncUnit.class, u -> new LogFuncUnit(u[0])),
+			Map.entry(Log10FuncUnit.class, u -> new Log10FuncUnit(u[0])),
+			Map.entry(Log1pFuncUnit.class, u -> new Log1pFuncUnit(u[0])),
+			Map.entry(SqrtFuncUnit.class, u -> new SqrtFuncUnit(u[0])),
+			Map.entry(SqFuncUnit.class, u -> new SqFuncUnit(u[0])),
+			Map.entry(FloorFuncUnit.class, u -> new FloorFuncUnit(u[0])),
+			Map.entry(CeilFuncUnit.class, u -> new CeilFuncUnit(u[0])),
+			Map.entry(BoolFuncUnit.class, u -> new BoolFuncUnit(u[0])),
+			Map.entry(SmoothstepFuncUnit.class, u -> new SmoothstepFuncUnit(u[0])),
+			Map.entry(MinFuncUnit.class, u -> new MinFuncUnit(u[0], u[1])),
+			Map.entry(MaxFuncUnit.class, u -> new MaxFuncUnit(u[0], u[1])),
+			Map.entry(Atan2FuncUnit.class, u -> new Atan2FuncUnit(u[0], u[1])),
+			Map.entry(ClampFuncUnit.class, u -> new ClampFuncUnit(u[0], u[1], u[2])),
+			Map.entry(LerpFuncUnit.class, u -> new LerpFuncUnit(u[0], u[1], u[2])),
+			Map.entry(MapFuncUnit.class, MapFuncUnit::new)
+	);
+
+	/**
+	 * @return simplified copy of the tree, or the same unit if nothing could be simplified
+	 */
+	static Unit simplify(Unit unit) {
+		Unit result = new UnitSimplifier().visit(unit);
+		Map<Unit, Integer> uses = new IdentityHashMap<>();
+		return countUses(result, uses) && uses.values().stream().anyMatch(n -> n > 1) ? memoize(result, uses, new IdentityHashMap<>()) : result;
+	}
+
+	/**
+	 * Counts how many times each unit is used in the tree.
+	 *
+	 * @return false if the tree contains units that may not give the same value twice in one evaluation
+	 */
+	private static boolean countUses(Unit unit, Map<Unit, Integer> uses) {
+		if (uses.merge(unit, 1, Integer::sum) > 1) {
+			return true;
+		}
+
+		Class<?> c = unit.getClass();
+
+		if (c == FixedNumberUnit.class || c == FixedBooleanUnit.class || c == VariableUnit.class || c == SlotVariableUnit.class || c == TimeUnit.class || c == RoundedTimeUnit.class) {
+			return true;
+		}
+
+		Unit[] args = c == GroupUnit.class ? ((GroupUnit) unit).units : FACTORIES.containsKey(c) ? getArguments(unit) : null;
+
+		if (args == null) {
+			return false;
+		}
+
+		for (Unit arg : args) {
+			if (!countUses(arg, uses)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Wraps units that are used more than once in {@link MemoUnit}s, if their getInt and getBoolean
+	 * follow from get.
+	 */
+	private static Unit memoize(Unit unit, Map<Unit, Integer> uses, Map<Unit, Unit> memoized) {
+		Unit result = memoized.get(unit);
+
+		if (result != null) {
+			return result;
+		}
+
+		result = unit;
+
+		if (unit.getClass() == GroupUnit.class && unit instanceof GroupUnit group) {
+			Unit[] units = new Unit[group.units.length];
+			boolean changed = false;
+
+			for (int i = 0; i < units.length; i++) {
+				units[i] = memoize(group.units[i], uses, memoized);
+				changed |= units[i] != group.units[i];
+			}
+
+			if (changed) {
+				result = new GroupUnit(units);
+			}
+		} else {
+			Function<Unit[], Unit> factory = FACTORIES.get(unit.getClass());
+			Unit[] args = factory == null ? null : getArguments(unit);
+
+			if (args != null) {
+				Unit[] memoArgs = new Unit[args.length];
+				boolean changed = false;
+
+				for (int i = 0; i < args.length; i++) {
+					memoArgs[i] = memoize(args[i], uses, memoized);
+					changed |= memoArgs[i] != args[i];
+				}
+
+				if (changed) {
+					result = factory.apply(memoArgs);
+				}
+
+				// MemoUnit derives getInt and getBoolean from the memoized value, so units with their own can't be wrapped
+				if (uses.get(unit) > 1 && isPlain(result)) {
+					result = new MemoUnit(result);
+				}
+			}
+		}
+
+		memoized.put(unit, result);
+		return result;
+	}
+
+	private final Map<List<Object>, Unit> shared = new HashMap<>();
+	private final Map<Unit, Unit> visited = new IdentityHashMap<>();
+
+	private Unit visit(Unit unit) {
+		Unit result = visited.get(unit);
+
+		if (result == null) {
+			result = simplify0(unit);
+			visited.put(unit, result);
+		}
+
+		return result;
+	}
+
+	private Unit simplify0(Unit unit) {
+		if (unit.getClass() == SetUnit.class && unit instanceof SetUnit set && set.left != null && set.right != null) {
+			Unit right = visit(set.right);
+			return right == set.right ? set : new SetUnit(set.symbol, set.left, right);
+		} else if (unit.getClass() == GroupUnit.class && unit instanceof GroupUnit group) {
+			Unit[] units = new Unit[group.units.length];
+			boolean changed = false;
+
+			for (int i = 0; i < units.length; i++) {
+				units[i] = visit(group.units[i]);
+				changed |= units[i] != group.units[i];
+			}
+
+			return changed ? new GroupUnit(units) : group;
+		}
+
+		Function<Unit[], Unit> factory = FACTORIES.get(unit.getClass());
+		Unit[] args = factory == null ? null : getArguments(unit);
+
+		if (args == null) {
+			return unit;
+		}
+
+		Unit[] simplified = new Unit[args.length];
+		boolean fixed = true;
+
+		for (int i = 0; i < args.length; i++) {
+			simplified[i] = visit(args[i]);
+			fixed &= isConstant(simplified[i]);
+		}
+
+		// x == x is always true without evaluating x, so two different subtrees must not be turned into the same one
+		if ((unit instanceof EqOpUnit || unit instanceof NeqOpUnit) && simplified[0] == simplified[1] && args[0] != args[1]) {
+			return unit;
+		}
+
+		Unit result = factory.apply(simplified);
+
+		if (fixed) {
+			Unit folded = fold(result);
+
+			if (folded != null) {
+				return folded;
+			}
+		}
+
+		Unit reduced = reduce(result, simplified);
+
+		if (reduced != result) {
+			return reduced;
+		}
+
+		List<Object> key = Arrays.asList(new Object[simplified.length + 1]);
+		key.set(0, unit.getClass());
+
+		for (int i = 0; i < simplified.length; i++) {
+			key.set(i + 1, simplified[i]);
+		}
+
+		return shared.computeIfAbsent(key, k -> result);
+	}
+
+	private static Unit[] getArguments(Unit unit) {
+		Unit[] args;
+
+		if (unit instanceof OpUnit u) {
+			args = new Unit[]{u.left, u.right};
+		} else if (unit instanceof UnaryOpUnit u) {
+			args = new Unit[]{u.unit};
+		} else if (unit instanceof TernaryUnit u) {
+			args = new Unit[]{u.cond, u.left, u.right};
+		} else if (unit instanceof Func1Unit u) {
+			args = new Unit[]{u.a};
+		} else if (unit instanceof Func2Unit u) {
+			args = new Unit[]{u.a, u.b};
+		} else if (unit instanceof Func3Unit u) {
+			args = new Unit[]{u.a, u.b, u.c};
+		} else if (unit instanceof MapFuncUnit u) {
+			args = new Unit[]{u.value, u.min1, u.max1, u.min2, u.max2};
+		} else {
+			return null;
+		}
+
+		for (Unit arg : args) {
+			if (arg == null) {
+				return null;
+			}
+		}
+
+		return args;
+	}
+
+	private static boolean isConstant(Unit unit) {
+		return unit instanceof FixedNumberUnit || unit instanceof FixedBooleanUnit;
+	}
+
+	private static boolean isBoolean(Unit unit) {
+		return unit instanceof FixedBooleanUnit || unit instanceof CondOpUnit || unit instanceof BoolNotOpUnit || unit instanceof BoolFuncUnit;
+	}
+
+	/**
+	 * Units whose getInt and getBoolean give the same results as the defaults of Unit, computed from get,
+	 * so that another unit with the same get result can be used in their place.
+	 */
+	private static boolean isPlain(Unit unit) {
+		Class<?> c = unit.getClass();
+		return isBoolean(unit)
+				|| c == FixedNumberUnit.class
+				|| c == VariableUnit.class
+				|| c == SlotVariableUnit.class
+				|| c == MutableNumberUnit.class
+				|| c == SetUnit.class
+				|| FACTORIES.containsKey(c) && c != NegateOpUnit.class && c != BitNotOpUnit.class && c != BitAndOpUnit.class && c != BitOrOpUnit.class && c != XorOpUnit.class && c != TernaryUnit.class;
+	}
+
+	private static Unit fold(Unit unit) {
+		UnitVariables variables = EmptyVariableSet.INSTANCE;
+		double value = unit.get(variables);
+		Unit folded = isBoolean(unit) ? (unit.getBoolean(variables) ? FixedBooleanUnit.TRUE : FixedBooleanUnit.FALSE) : FixedNumberUnit.of(value);
+
+		if (Double.doubleToRawLongBits(folded.get(variables)) == Double.doubleToRawLongBits(value)
+				&& Float.floatToRawIntBits(folded.getFloat(variables)) == Float.floatToRawIntBits(unit.getFloat(variables))
+				&& folded.getInt(variables) == unit.getInt(variables)
+				&& folded.getBoolean(variables) == unit.getBoolean(variables)) {
+			return folded;
+		}
+
+		return null;
+	}
+
+	private static boolean is(Unit unit, double value) {
+		return unit instanceof FixedNumberUnit u && u.value == value;
+	}
+
+	private static Unit reduce(Unit unit, Unit[] args) {
+		if (unit instanceof TernaryUnit) {
+			return isConstant(args[0]) ? (args[0].getBoolean(EmptyVariableSet.INSTANCE) ? args[1] : args[2]) : unit;
+		} else if (unit instanceof BoolNotOpUnit) {
+			return args[0] instanceof BoolNotOpUnit u ? (isBoolean(u.unit) ? u.unit : new BoolFuncUnit(u.unit)) : unit;
+		} else if (unit instanceof BoolFuncUnit) {
+			return isBoolean(args[0]) ? args[0] : unit;
+		} else if (unit instanceof NegateOpUnit) {
+			return args[0] instanceof NegateOpUnit u && isPlain(u.unit) ? u.unit : unit;
+		}
+
+		Unit left = args[0];
+		Unit right = args.length > 1 ? args[1] : null;
+
+		if (unit instanceof AddOpUnit) {
+			if (is(right, 0D) && isPlain(left)) {
+				return left;
+			} else if (is(left, 0D) && isPlain(right)) {
+				return right;
+			}
+		} else if (unit instanceof SubOpUnit) {
+			if (is(right, 0D) && isPlain(left)) {
+				return left;
+			}
+		} else if (unit instanceof MulOpUnit) {
+			if (is(right, 1D) && isPlain(left)) {
+				return left;
+			} else if (is(left, 1D) && isPlain(right)) {
+				return right;
+			}
+		} else if (unit instanceof DivOpUnit) {
+			if (is(right, 1D) && isPlain(left)) {
+				return left;
+			}
+		} else if (unit instanceof PowOpUnit) {
+			if (is(right, 1D) && isPlain(left)) {
+				return left;
+			} else if (is(right, 2D)) {
+				return new SqFuncUnit(left);
+			}
+		}
+
+		return unit;
+	}
+}
@@ -0,0 +1,98 @@
+package dev.latvian.mods.unit;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Variable set that keeps the variables of a {@link VariableLayout} in a double array.
+ * Units parsed with the same layout read and set them by index without allocating.
+ * Names that aren't in the layout are kept by name like in any other variable set.
+ */
+public class VariableFrame extends VariableSet {
+	// marks slots that hold a plain value in values, instead of a unit
+	private static final Unit VALUE = FixedNumberUnit.NaN;
+
+	public final VariableLayout layout;
+	private double[] values;
+	private Unit[] units;
+
+	public VariableFrame(VariableLayout layout) {
+		this.layout = layout;
+		this.values = new double[layout.size()];
+		this.units = new Unit[layout.size()];
+	}
+
+	/**
+	 * @param index index in the layout of this frame
+	 * @return value of the variable
+	 * @throws IllegalStateException if the variable isn't set
+	 */
+	public double get(int index) {
+		Unit unit = index < units.length ? units[index] : null;
+
+		if (unit == VALUE) {
+			return values[index];
+		} else if (unit == null) {
+			throw new IllegalStateException("Variable " + layout.getName(index) + " is not defined!");
+		}
+
+		return unit.get(this);
+	}
+
+	/**
+	 * @param index index in the layout of this frame
+	 */
+	public void set(int index, double value) {
+		if (index >= values.length) {
+			int size = Math.max(index + 1, layout.size());
+			values = Arrays.copyOf(values, size);
+			units = Arrays.copyOf(units, size);
+		}
+
+		values[index] = value;
+		units[index] = VALUE;
+		variableChanged();
+	}
+
+	@Override
+	public VariableSet set(String name, Unit value) {
+		int index = layout.indexOf(name);
+
+		if (index == -1) {
+			return super.set(name, value);
+		} else if (value instanceof FixedNumberUnit n) {
+			set(index, n.value);
+		} else {
+			set(index, 0D);
+			units[index] = value;
+		}
+
+		return this;
+	}
+
+	@Override
+	public VariableSet set(String name, double value) {
+		int index = layout.indexOf(name);
+
+		if (index == -1) {
+			return super.set(name, value);
+		}
+
+		set(index, value);
+		return this;
+	}
+
+	@Override
+	@Nullable
+	public Unit get(String entry) {
+		int index = layout.indexOf(entry);
+
+		if (index == -1 || index >= units.length) {
+			return super.get(entry);
+		}
+
+		Unit unit = units[index];
+		return unit == VALUE ? FixedNumberUnit.of(values[index]) : unit;
+	}
+}
@@ -0,0 +1,61 @@
+package dev.latvian.mods.unit;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Assigns each variable name an index, so that units parsed with it read and write
+ * variables of a {@link VariableFrame} by index instead of looking them up by name.
+ * Variables can be added from multiple threads at the same time.
+ *
+ * @see UnitContext#sub(VariableLayout)
+ */
+public final class VariableLayout {
+	private final Map<String, SlotVariableUnit> variables = new ConcurrentHashMap<>();
+	private final List<SlotVariableUnit> slots = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @return variable unit bound to the index of the name, which is added to the layout if it isn't in it yet
+	 */
+	public SlotVariableUnit getVariable(String name) {
+		SlotVariableUnit unit = variables.get(name);
+		return unit != null ? unit : addVariable(name);
+	}
+
+	private synchronized SlotVariableUnit addVariable(String name) {
+		SlotVariableUnit unit = variables.get(name);
+
+		if (unit == null) {
+			unit = new SlotVariableUnit(this, name, slots.size());
+			slots.add(unit);
+			variables.put(name, unit);
+		}
+
+		return unit;
+	}
+
+	/**
+	 * @return index of the name, or -1 if it isn't in the layout
+	 */
+	public int indexOf(String name) {
+		SlotVariableUnit unit = variables.get(name);
+		return unit == null ? -1 : unit.index;
+	}
+
+	@Nullable
+	public String getName(int index) {
+		return index >= 0 && index < slots.size() ? slots.get(index).name : null;
+	}
+
+	public int size() {
+		return slots.size();
+	}
+
+	public VariableFrame createFrame() {
+		return new VariableFrame(this);
+	}
+}
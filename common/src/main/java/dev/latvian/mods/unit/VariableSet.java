@@ -1,5 +1,6 @@
 package dev.latvian.mods.unit;
 
+import dev.latvian.mods.unit.function.TimeUnit;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
@@ -8,9 +9,92 @@ import java.util.Map;
 public class VariableSet implements UnitVariables {
 
 	private final Map<String, Unit> variables = new HashMap<>();
+	private boolean evaluating;
+	private double time;
+	private boolean memoizing;
+	private UnitMemo memo;
+
+	/**
+	 * Starts one evaluation, like a frame, with the current time. See {@link #beginEvaluation(double)}.
+	 */
+	public VariableSet beginEvaluation() {
+		return beginEvaluation(TimeUnit.time());
+	}
+
+	/**
+	 * Starts one evaluation, like a frame. Until {@link #endEvaluation()}, time() and roundedTime()
+	 * return the given time instead of reading the clock, so all units evaluated with this set see
+	 * the same time. Calling it again starts a new evaluation.
+	 *
+	 * @param time time in seconds
+	 */
+	public VariableSet beginEvaluation(double time) {
+		this.evaluating = true;
+		this.time = time;
+		return this;
+	}
+
+	public void endEvaluation() {
+		evaluating = false;
+	}
+
+	public boolean isEvaluating() {
+		return evaluating;
+	}
+
+	/**
+	 * Starts memoizing. Until {@link #endMemoization()}, each {@link MemoUnit} evaluated with this set
+	 * is only computed once. {@link #set(String, Unit)} forgets the computed values, but changes this set
+	 * can't see, like a new {@link MutableNumberUnit} value or a variable set in a parent, need this to
+	 * be called again before the next unit is evaluated.
+	 */
+	public VariableSet beginMemoization() {
+		memoizing = true;
+
+		if (memo == null) {
+			memo = new UnitMemo();
+		} else {
+			memo.clear();
+		}
+
+		return this;
+	}
+
+	public void endMemoization() {
+		memoizing = false;
+
+		if (memo != null) {
+			memo.clear();
+		}
+	}
+
+	public boolean isMemoizing() {
+		return memoizing;
+	}
+
+	/**
+	 * @return time of the current evaluation, or the current time if there isn't one, in seconds
+	 */
+	public double getTime() {
+		return evaluating ? time : TimeUnit.time();
+	}
+
+	double getMemoized(MemoUnit unit, UnitVariables variables) {
+		return memoizing ? memo.get(unit, variables) : unit.unit.get(variables);
+	}
+
+	/**
+	 * Forgets memoized values after a variable of this set changed.
+	 */
+	protected final void variableChanged() {
+		if (memoizing) {
+			memo.clear();
+		}
+	}
 
 	public VariableSet set(String name, Unit value) {
 		variables.put(name, value);
+		variableChanged();
 		return this;
 	}
 
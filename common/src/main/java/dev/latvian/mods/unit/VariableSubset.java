@@ -13,4 +13,9 @@ public class VariableSubset extends VariableSet {
 		Unit v = super.get(entry);
 		return v == null ? parent.get(entry) : v;
 	}
+
+	@Override
+	public double getTime() {
+		return isEvaluating() ? super.getTime() : parent.getTime();
+	}
 }
@@ -1,21 +1,19 @@
 package dev.latvian.mods.unit;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class VariableUnit extends Unit {
-	private static final Object CACHE_LOCK = new Object();
-	private static final Map<String, VariableUnit> CACHE = new HashMap<>();
+	private static final Map<String, VariableUnit> CACHE = new ConcurrentHashMap<>();
 
 	public static VariableUnit of(String name) {
-		synchronized (CACHE_LOCK) {
-			return CACHE.computeIfAbsent(name, VariableUnit::new);
-		}
+		VariableUnit unit = CACHE.get(name);
+		return unit != null ? unit : CACHE.computeIfAbsent(name, VariableUnit::new);
 	}
 
 	public final String name;
 
-	private VariableUnit(String n) {
+	VariableUnit(String n) {
 		name = n;
 	}
 
@@ -30,6 +28,10 @@ public class VariableUnit extends Unit {
 		return var.get(variables);
 	}
 
+	public void set(UnitVariables variables, double value) {
+		variables.getVariables().set(name, value);
+	}
+
 	@Override
 	public void toString(StringBuilder builder) {
 		builder.append(name);
@@ -3,8 +3,13 @@ package dev.latvian.mods.unit.function;
 import dev.latvian.mods.unit.UnitVariables;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RandomUnit extends FuncUnit {
+	/**
+	 * @deprecated random() uses {@link ThreadLocalRandom} so that threads don't contend on one generator
+	 */
+	@Deprecated
 	public static final Random RANDOM = new Random();
 
 	private RandomUnit() {
@@ -15,7 +20,7 @@ public class RandomUnit extends FuncUnit {
 
 	@Override
 	public double get(UnitVariables variables) {
-		return RANDOM.nextDouble();
+		return ThreadLocalRandom.current().nextDouble();
 	}
 
 
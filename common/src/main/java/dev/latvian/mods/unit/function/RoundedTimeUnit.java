@@ -15,7 +15,7 @@ public class RoundedTimeUnit extends FuncUnit {
 
 	@Override
 	public double get(UnitVariables variables) {
-		return time();
+		return Math.round(variables.getVariables().getTime());
 	}
 
 
@@ -15,7 +15,7 @@ public class TimeUnit extends FuncUnit {
 
 	@Override
 	public double get(UnitVariables variables) {
-		return time();
+		return variables.getVariables().getTime();
 	}
 
 
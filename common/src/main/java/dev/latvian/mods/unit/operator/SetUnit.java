@@ -12,28 +12,12 @@ public class SetUnit extends OpUnit {
 
 	@Override
 	public double get(UnitVariables variables) {
-		if (left instanceof VariableUnit var) {
-			variables.getVariables().set(var.name, right.get(variables));
-		}
-
-		return right.get(variables);
-	}
+		double value = right.get(variables);
 
-	@Override
-	public int getInt(UnitVariables variables) {
-		if (left instanceof VariableUnit var) {
-			variables.getVariables().set(var.name, right.get(variables));
-		}
-
-		return right.getInt(variables);
-	}
-
-	@Override
-	public boolean getBoolean(UnitVariables variables) {
 		if (left instanceof VariableUnit var) {
-			variables.getVariables().set(var.name, right.get(variables));
+			var.set(variables, value);
 		}
 
-		return right.getBoolean(variables);
+		return value;
 	}
 }
@@ -5,9 +5,8 @@ import dev.latvian.mods.unit.operator.OperatorFactory;
 import dev.latvian.mods.unit.operator.UnaryOperatorFactory;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Stack;
 
-public enum UnitSymbol implements UnitToken {
+public enum UnitSymbol {
 	// Misc
 	COMMA(","),
 	LP("("),
@@ -52,33 +51,6 @@ public enum UnitSymbol implements UnitToken {
 
 	;
 
-	@Nullable
-	public static UnitSymbol read(char first, CharStream stream) {
-		return switch (first) {
-			case ',' -> COMMA;
-			case '(' -> LP;
-			case ')' -> RP;
-			case '#' -> HASH;
-			case '?' -> HOOK;
-			case ':' -> COLON;
-			case ';' -> SEMICOLON;
-			case '+' -> stream.nextIf('=') ? ADD_SET : ADD;
-			case '-' -> stream.nextIf('=') ? SUB_SET : SUB;
-			case '*' -> stream.nextIf('*') ? POW : stream.nextIf('=') ? MUL_SET : MUL;
-			case '/' -> stream.nextIf('=') ? DIV_SET : DIV;
-			case '%' -> stream.nextIf('=') ? MOD_SET : MOD;
-			case '^' -> XOR;
-			case '~' -> BIT_NOT;
-			case '&' -> stream.nextIf('&') ? AND : BIT_AND;
-			case '|' -> stream.nextIf('|') ? OR : BIT_OR;
-			case '!' -> stream.nextIf('=') ? NEQ : BOOL_NOT;
-			case '<' -> stream.nextIf('=') ? LTE : stream.nextIf('<') ? LSH : LT;
-			case '>' -> stream.nextIf('=') ? GTE : stream.nextIf('>') ? RSH : GT;
-			case '=' -> stream.nextIf('=') ? EQ : SET;
-			default -> null;
-		};
-	}
-
 	public final String symbol;
 	public final int precedence;
 	public final OperatorFactory op;
@@ -110,11 +82,6 @@ public enum UnitSymbol implements UnitToken {
 		return symbol;
 	}
 
-	@Override
-	public boolean nextUnaryOperator() {
-		return this != RP;
-	}
-
 	@Nullable
 	public UnitSymbol getUnarySymbol() {
 		return switch (this) {
@@ -124,25 +91,6 @@ public enum UnitSymbol implements UnitToken {
 		};
 	}
 
-	public boolean is(UnitToken next) {
-		return next == this;
-	}
-
-	@Override
-	public void unstack(Stack<UnitToken> stack) {
-		if (op != null) {
-			if (stack.size() < 2) {
-				throw new UnitInterpretException("Not enough elements in stack!");
-			}
-
-			var right = stack.pop();
-			var left = stack.pop();
-			stack.push(new OpResultUnitToken(this, left, right));
-		} else {
-			throw new UnitInterpretException("Unexpected symbol '" + this + "'!");
-		}
-	}
-
 	public final boolean hasHigherPrecedenceThan(UnitSymbol operator) {
 		return operator.precedence <= precedence;
 	}
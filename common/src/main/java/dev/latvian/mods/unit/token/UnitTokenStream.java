@@ -1,212 +1,395 @@
 package dev.latvian.mods.unit.token;
 
 import dev.latvian.mods.unit.FixedColorUnit;
+import dev.latvian.mods.unit.FixedNumberUnit;
+import dev.latvian.mods.unit.TernaryUnit;
 import dev.latvian.mods.unit.Unit;
 import dev.latvian.mods.unit.UnitContext;
+import dev.latvian.mods.unit.VariableLayout;
+import dev.latvian.mods.unit.VariableUnit;
+import dev.latvian.mods.unit.function.FunctionFactory;
 import dev.latvian.mods.unit.operator.GroupUnit;
 
 import java.util.ArrayList;
-
+import java.util.Arrays;
+
+/**
+ * Tokenizes the input in one pass into arrays of token types and input index ranges,
+ * then parses the tokens straight into units, with operator precedence climbing.
+ * <p>
+ * Whitespace is ignored everywhere, also inside names and numbers. All binary operators are
+ * left associative. An operand that starts with '(' right after an operator, or after a unary
+ * operator, extends to the end of the expression, so <code>2 * (3) + 4</code> is <code>2 * (3 + 4)</code>.
+ */
 public final class UnitTokenStream {
+	private static final UnitSymbol[] SYMBOLS = UnitSymbol.values();
+
+	// token types that aren't symbols, symbols use their ordinal
+	private static final int NAME = -1;
+	private static final int NAME_WITH_WHITESPACE = -2;
+	private static final int COLOR = -3;
+	private static final int COLOR_ALPHA = -4;
+
 	private static boolean isHex(char c) {
 		return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
 	}
 
-	public final UnitContext context;
+	private static boolean isSymbol(char c) {
+		return switch (c) {
+			case ',', '(', ')', '#', '?', ':', ';', '+', '-', '*', '/', '%', '^', '~', '&', '|', '!', '<', '>', '=' -> true;
+			default -> false;
+		};
+	}
 
+	public final UnitContext context;
 	public final String input;
-	public final CharStream charStream;
-	public final ArrayList<UnitToken> infix;
-	public final ArrayList<Integer> inputStringPos;
 	public final Unit unit;
-	private int infixPos;
+	private int[] types;
+	private int[] starts;
+	private int[] ends;
+	private int size;
+	private int pos;
 
 	public UnitTokenStream(UnitContext context, String input) {
 		this.context = context;
 		this.input = input;
-		this.charStream = new CharStream(input.toCharArray());
-		this.infix = new ArrayList<>();
-		this.inputStringPos = new ArrayList<>();
-		this.infixPos = -1;
+		int capacity = Math.max(4, input.length() / 2);
+		this.types = new int[capacity];
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
 
-		var current = new StringBuilder();
+		tokenize();
 
-		while (true) {
-			var c = charStream.next();
+		if (context.isDebug()) {
+			context.debugInfo("Tokens: " + this);
+		}
 
-			if (c == 0) {
-				break;
+		var units = new ArrayList<Unit>(1);
+
+		try {
+			do {
+				units.add(readFully());
 			}
+			while (ifNext(UnitSymbol.SEMICOLON));
+		} catch (UnitInterpretException ex) {
+			throw new RuntimeException("Error parsing '" + input + "' @ " + (pos < size ? starts[pos] : pos == 0 ? -1 : ends[size - 1]), ex);
+		}
 
-			int cpos = charStream.position;
-			var symbol = UnitSymbol.read(c, charStream);
+		this.unit = units.size() == 1 ? units.get(0) : new GroupUnit(units.toArray(Unit.EMPTY_ARRAY));
+	}
 
-			if (symbol == UnitSymbol.HASH) {
-				if (isHex(charStream.peek(1)) && isHex(charStream.peek(2)) && isHex(charStream.peek(3)) && isHex(charStream.peek(4)) && isHex(charStream.peek(5)) && isHex(charStream.peek(6))) {
-					var alpha = isHex(charStream.peek(7)) && isHex(charStream.peek(8));
+	public Unit getUnit() {
+		return unit;
+	}
 
-					current.append('#');
+	@Override
+	public String toString() {
+		var sb = new StringBuilder("[");
 
-					for (var i = 0; i < (alpha ? 8 : 6); i++) {
-						current.append(charStream.next());
-					}
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
 
-					var color = Long.decode(current.toString()).intValue();
-					current.setLength(0);
+			sb.append(tokenString(i));
+		}
 
-					inputStringPos.add(cpos);
-					infix.add(FixedColorUnit.of(color, alpha));
-				} else {
-					throw new UnitParseException("Invalid color code @ " + charStream.position);
-				}
-			} else {
-				if (symbol != null && current.length() > 0) {
-					inputStringPos.add(cpos);
-					infix.add(new StringUnitToken(current.toString()));
-					current.setLength(0);
-				}
+		return sb.append(']').toString();
+	}
 
-				UnitSymbol unary = symbol == null ? null : symbol.getUnarySymbol();
+	// Tokenizer
 
-				if (unary != null && (infix.isEmpty() || infix.get(infix.size() - 1).nextUnaryOperator())) {
-					inputStringPos.add(cpos);
-					infix.add(unary);
-				} else if (symbol != null) {
-					inputStringPos.add(cpos);
-					infix.add(symbol);
-				} else {
-					current.append(c);
-				}
+	private void tokenize() {
+		int len = input.length();
+		int i = 0;
+
+		while (i < len) {
+			char c = input.charAt(i);
+
+			if (c <= ' ') {
+				i++;
+			} else if (c == '#') {
+				i = readColor(i);
+			} else if (isSymbol(c)) {
+				i = readSymbol(c, i);
+			} else {
+				i = readName(i);
 			}
 		}
+	}
 
-		if (current.length() > 0) {
-			inputStringPos.add(charStream.position - current.length());
-			infix.add(new StringUnitToken(current.toString()));
-			current.setLength(0);
+	private void add(int type, int start, int end) {
+		if (size == types.length) {
+			int capacity = size * 2;
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
 		}
 
-		var interpretedUnits = new ArrayList<Unit>();
+		types[size] = type;
+		starts[size] = start;
+		ends[size] = end;
+		size++;
+	}
 
-		if (context.isDebug()) {
-			context.debugInfo("Infix", infix);
+	/**
+	 * @return index of the next character that isn't whitespace
+	 */
+	private int skipWhitespace(int i) {
+		while (i < input.length() && input.charAt(i) <= ' ') {
+			i++;
 		}
 
-		try {
-			do {
-				var unitToken = readFully();
-				interpretedUnits.add(unitToken.interpret(this));
+		return i;
+	}
+
+	private int readName(int start) {
+		int len = input.length();
+		int end = start + 1;
+		boolean whitespace = false;
+		boolean innerWhitespace = false;
+
+		for (int i = end; i < len; i++) {
+			char c = input.charAt(i);
+
+			if (c <= ' ') {
+				whitespace = true;
+			} else if (isSymbol(c)) {
+				break;
+			} else {
+				innerWhitespace |= whitespace;
+				end = i + 1;
 			}
-			while (ifNextToken(UnitSymbol.SEMICOLON));
-		} catch (UnitInterpretException ex) {
-			throw new RuntimeException("Error parsing '" + input + "' @ " + (infixPos < 0 || infixPos >= inputStringPos.size() ? -1 : inputStringPos.get(infixPos)), ex);
 		}
 
-		this.unit = interpretedUnits.size() == 1 ? interpretedUnits.get(0) : new GroupUnit(interpretedUnits.toArray(Unit.EMPTY_ARRAY));
+		add(innerWhitespace ? NAME_WITH_WHITESPACE : NAME, start, end);
+		return end;
 	}
 
-	public Unit getUnit() {
-		return unit;
-	}
+	private int readColor(int start) {
+		int len = input.length();
+		// a name right before the color would have been part of it
+		boolean valid = start + 7 <= len && (size == 0 || types[size - 1] != NAME && types[size - 1] != NAME_WITH_WHITESPACE);
 
-	@Override
-	public String toString() {
-		return infix.toString();
+		for (int i = 1; valid && i <= 6; i++) {
+			valid = isHex(input.charAt(start + i));
+		}
+
+		if (!valid) {
+			throw new UnitParseException("Invalid color code @ " + start);
+		}
+
+		boolean alpha = start + 9 <= len && isHex(input.charAt(start + 7)) && isHex(input.charAt(start + 8));
+		int end = start + (alpha ? 9 : 7);
+		add(alpha ? COLOR_ALPHA : COLOR, start, end);
+		return end;
 	}
 
-	public UnitToken nextToken() {
-		if (++infixPos >= infix.size()) {
-			throw new UnitInterpretException("EOL!");
+	private int readSymbol(char c, int start) {
+		int next = skipWhitespace(start + 1);
+		char n = next < input.length() ? input.charAt(next) : 0;
+		int end = start + 1;
+
+		UnitSymbol symbol = switch (c) {
+			case ',' -> UnitSymbol.COMMA;
+			case '(' -> UnitSymbol.LP;
+			case ')' -> UnitSymbol.RP;
+			case '?' -> UnitSymbol.HOOK;
+			case ':' -> UnitSymbol.COLON;
+			case ';' -> UnitSymbol.SEMICOLON;
+			case '+' -> n == '=' ? UnitSymbol.ADD_SET : UnitSymbol.ADD;
+			case '-' -> n == '=' ? UnitSymbol.SUB_SET : UnitSymbol.SUB;
+			case '*' -> n == '*' ? UnitSymbol.POW : n == '=' ? UnitSymbol.MUL_SET : UnitSymbol.MUL;
+			case '/' -> n == '=' ? UnitSymbol.DIV_SET : UnitSymbol.DIV;
+			case '%' -> n == '=' ? UnitSymbol.MOD_SET : UnitSymbol.MOD;
+			case '^' -> UnitSymbol.XOR;
+			case '~' -> UnitSymbol.BIT_NOT;
+			case '&' -> n == '&' ? UnitSymbol.AND : UnitSymbol.BIT_AND;
+			case '|' -> n == '|' ? UnitSymbol.OR : UnitSymbol.BIT_OR;
+			case '!' -> n == '=' ? UnitSymbol.NEQ : UnitSymbol.BOOL_NOT;
+			case '<' -> n == '=' ? UnitSymbol.LTE : n == '<' ? UnitSymbol.LSH : UnitSymbol.LT;
+			case '>' -> n == '=' ? UnitSymbol.GTE : n == '>' ? UnitSymbol.RSH : UnitSymbol.GT;
+			case '=' -> n == '=' ? UnitSymbol.EQ : UnitSymbol.SET;
+			default -> throw new UnitParseException("Unexpected character '" + c + "' @ " + start);
+		};
+
+		if (symbol.symbol.length() == 2) {
+			end = next + 1;
+		}
+
+		// + and - are unary at the start and after any symbol except ')'
+		UnitSymbol unary = symbol.getUnarySymbol();
+
+		if (unary != null && (size == 0 || types[size - 1] >= 0 && types[size - 1] != UnitSymbol.RP.ordinal())) {
+			symbol = unary;
 		}
 
-		return infix.get(infixPos);
+		add(symbol.ordinal(), start, end);
+		return end;
 	}
 
-	public UnitToken peekToken() {
-		if (infixPos + 1 >= infix.size()) {
-			return null;
+	// Parser
+
+	private String tokenString(int i) {
+		int type = types[i];
+
+		if (type >= 0) {
+			return SYMBOLS[type].symbol;
+		} else if (type == NAME_WITH_WHITESPACE) {
+			var sb = new StringBuilder(ends[i] - starts[i]);
+
+			for (int j = starts[i]; j < ends[i]; j++) {
+				char c = input.charAt(j);
+
+				if (c > ' ') {
+					sb.append(c);
+				}
+			}
+
+			return sb.toString();
 		}
 
-		return infix.get(infixPos + 1);
+		return input.substring(starts[i], ends[i]);
+	}
+
+	private String peekString() {
+		return pos < size ? tokenString(pos) : "null";
 	}
 
-	public boolean ifNextToken(UnitToken token) {
-		if (token.equals(peekToken())) {
-			nextToken();
+	private boolean peekSymbol(UnitSymbol symbol) {
+		return pos < size && types[pos] == symbol.ordinal();
+	}
+
+	private boolean ifNext(UnitSymbol symbol) {
+		if (peekSymbol(symbol)) {
+			pos++;
 			return true;
 		}
 
 		return false;
 	}
 
-	public UnitToken readFully() {
-		PostfixUnitToken postfix = new PostfixUnitToken(new ArrayList<>());
+	/**
+	 * Reads an expression: operands joined by binary operators, optionally followed by a ternary.
+	 */
+	private Unit readFully() {
+		Unit unit;
 
-		if (ifNextToken(UnitSymbol.LP)) {
-			postfix.infix().add(readFully());
+		if (ifNext(UnitSymbol.LP)) {
+			unit = readFully();
 
-			if (!ifNextToken(UnitSymbol.RP)) {
-				throw new UnitInterpretException("Expected ')', got '" + peekToken() + "'!");
+			if (!ifNext(UnitSymbol.RP)) {
+				throw new UnitInterpretException("Expected ')', got '" + peekString() + "'!");
 			}
 		} else {
-			postfix.infix().add(readSingleToken());
+			unit = readSingle();
 		}
 
-		while (peekToken() instanceof UnitSymbol symbol && symbol.op != null) {
-			postfix.infix().add(nextToken());
+		unit = readBinary(unit, 0);
 
-			if (peekToken() == UnitSymbol.LP) {
-				postfix.infix().add(readFully());
-			} else {
-				postfix.infix().add(readSingleToken());
+		if (ifNext(UnitSymbol.HOOK)) {
+			var ifTrue = readFully();
+
+			if (!ifNext(UnitSymbol.COLON)) {
+				throw new UnitInterpretException("Expected ':', got '" + peekString() + "'!");
 			}
+
+			return new TernaryUnit(unit, ifTrue, readFully());
 		}
 
-		if (ifNextToken(UnitSymbol.HOOK)) {
-			var left = readFully();
+		return unit;
+	}
+
+	/**
+	 * Applies binary operators with at least the given precedence to the left operand.
+	 */
+	private Unit readBinary(Unit left, int minPrecedence) {
+		while (pos < size && types[pos] >= 0) {
+			UnitSymbol symbol = SYMBOLS[types[pos]];
+
+			if (symbol.op == null || symbol.precedence < minPrecedence) {
+				break;
+			}
+
+			pos++;
+			Unit right;
 
-			if (!ifNextToken(UnitSymbol.COLON)) {
-				throw new UnitInterpretException("Expected ':', got '" + peekToken() + "'!");
+			if (peekSymbol(UnitSymbol.LP)) {
+				right = readFully();
+			} else {
+				right = readBinary(readSingle(), symbol.precedence + 1);
 			}
 
-			var right = readFully();
-			return new TernaryUnitToken(postfix.normalize(), left, right);
+			left = symbol.op.create(left, right);
 		}
 
-		return postfix.normalize();
+		return left;
 	}
 
-	public UnitToken readSingleToken() {
-		UnitToken token = nextToken();
+	/**
+	 * Reads a single operand: a name, number, function call, color or unary operator.
+	 */
+	private Unit readSingle() {
+		if (pos >= size) {
+			throw new UnitInterpretException("EOL!");
+		}
+
+		int i = pos++;
+		int type = types[i];
 
-		if (token instanceof UnitSymbol symbol && symbol.unaryOp != null) {
-			if (peekToken() == UnitSymbol.LP) {
-				return new UnaryOpUnitToken(symbol, readFully());
-			} else {
-				return new UnaryOpUnitToken(symbol, readSingleToken());
+		if (type >= 0) {
+			UnitSymbol symbol = SYMBOLS[type];
+
+			if (symbol.unaryOp != null) {
+				return symbol.unaryOp.create(peekSymbol(UnitSymbol.LP) ? readFully() : readSingle());
 			}
+
+			throw new UnitInterpretException("Unexpected token: " + symbol);
+		} else if (type == COLOR || type == COLOR_ALPHA) {
+			return FixedColorUnit.of(Integer.parseUnsignedInt(input, starts[i] + 1, ends[i], 16), type == COLOR_ALPHA);
 		}
 
-		if (token instanceof StringUnitToken str) {
-			if (ifNextToken(UnitSymbol.LP)) {
-				FunctionUnitToken func = new FunctionUnitToken(str.name(), new ArrayList<>());
+		String name = tokenString(i);
 
-				while (true) {
-					if (ifNextToken(UnitSymbol.RP)) {
-						break;
-					} else if (!ifNextToken(UnitSymbol.COMMA)) {
-						func.args().add(readFully());
-					}
-				}
+		if (ifNext(UnitSymbol.LP)) {
+			FunctionFactory factory = context.getFunctionFactory(name);
+
+			if (factory == null) {
+				throw new IllegalStateException("Unknown function '" + name + "'!");
+			}
+
+			var args = new ArrayList<Unit>(3);
 
-				return func;
+			while (!ifNext(UnitSymbol.RP)) {
+				if (!ifNext(UnitSymbol.COMMA)) {
+					args.add(readFully());
+				}
 			}
 
-			return str;
-		} else if (token instanceof FixedColorUnit) {
-			return token;
+			return factory.create(args.isEmpty() ? Unit.EMPTY_ARRAY : args.toArray(Unit.EMPTY_ARRAY));
+		}
+
+		return readName(name);
+	}
+
+	private Unit readName(String name) {
+		var constant = context.constants.get(name);
+
+		if (constant != null) {
+			return constant;
+		}
+
+		char c = name.charAt(0);
+
+		// only names that can be numbers are parsed, so that variables don't throw exceptions
+		if (c >= '0' && c <= '9' || c == '.' || name.equals("NaN") || name.equals("Infinity")) {
+			try {
+				return FixedNumberUnit.of(Double.parseDouble(name));
+			} catch (NumberFormatException ignored) {
+			}
 		}
 
-		throw new UnitInterpretException("Unexpected token: " + token);
+		VariableLayout layout = context.getLayout();
+		return layout == null ? VariableUnit.of(name) : layout.getVariable(name);
 	}
 }
@@ -1,10 +1,25 @@
 package dev.latvian.mods.rhino.test;
 
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.ContextMetrics;
+import dev.latvian.mods.rhino.EvaluatorException;
+import dev.latvian.mods.rhino.JavaScriptException;
+import dev.latvian.mods.rhino.NativeJSON;
+import dev.latvian.mods.rhino.RhinoException;
+import dev.latvian.mods.rhino.ScriptProfiler;
+import dev.latvian.mods.rhino.ScriptStackElement;
+import dev.latvian.mods.rhino.json.JsonParser;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
 @SuppressWarnings("unused")
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class MiscTests {
@@ -149,4 +164,299 @@ public class MiscTests {
 				console.info(JSON.stringify(thing));
 				""", "{\"nested\":[1.0,2.0,3.0]}");
 	}
+
+	@Test
+	public void interruptFinally() {
+		RhinoTest test = new RhinoTest("interrupt");
+		test.context.addToScope(test.rootScope, "cx", test.context);
+		test.context.interrupt();
+		test.test("ignored", "let j = 0; while (j < 1000) j++; console.info(j)", "1000.0");
+		test.context.setInterruptible(true);
+
+		try {
+			test.test("finally", """
+					try {
+						cx.interrupt()
+						while (true) {
+						}
+					} finally {
+						console.info('finally')
+						while (true) {
+						}
+					}
+					""", """
+					finally
+					Error: Script was interrupted (interrupt/finally#7)
+					""");
+			test.test("after", "let k = 0; while (k < 1000) k++; console.info(k)", "1000.0");
+		} finally {
+			test.context.setInterruptible(false);
+		}
+	}
+
+	@Test
+	public void executionTimeDuringCall() {
+		RhinoTest test = new RhinoTest("executionTime");
+		test.context.addToScope(test.rootScope, "cx", test.context);
+
+		try {
+			test.test("enable", "cx.setMaximumExecutionTime(10000); let k = 0; while (k < 100000) k++; console.info(k)", "100000.0");
+		} finally {
+			test.context.setMaximumExecutionTime(0L);
+		}
+	}
+
+	@Test
+	public void errorStack() {
+		TEST.test("errorStack", """
+				function stackDepth(n) {
+					return n > 0 ? stackDepth(n - 1) : 0
+				}
+				function stackInner(o) {
+					stackDepth(3)
+					return o.x.y
+				}
+				function stackOuter(o) {
+					stackDepth(2)
+					let r = stackInner(o)
+					return r
+				}
+				try {
+					stackOuter({})
+				} catch (e) {
+					console.info(e.stack)
+				}
+				""", """
+				at misc/errorStack:6 (stackInner)
+					at misc/errorStack:10 (stackOuter)
+					at misc/errorStack:14
+				""");
+	}
+
+	@Test
+	public void javaStackForScriptErrors() {
+		RhinoTest test = new RhinoTest("javaStack");
+		String script = """
+				function depth(n) {
+					return n > 0 ? depth(n - 1) : 0
+				}
+				function inner() {
+					depth(3)
+					throw 'inner'
+				}
+				function outer() {
+					depth(2)
+					inner()
+				}
+				outer()
+				""";
+
+		RhinoException withStack = Assertions.assertThrows(JavaScriptException.class, () -> test.context.evaluateString(test.rootScope, script, "javaStack", 1, null));
+		Assertions.assertNotEquals(0, withStack.getStackTrace().length);
+
+		test.context.setJavaStackForScriptErrors(false);
+
+		try {
+			RhinoException thrown = Assertions.assertThrows(JavaScriptException.class, () -> test.context.evaluateString(test.rootScope, script, "javaStack", 1, null));
+			Assertions.assertEquals(0, thrown.getStackTrace().length);
+
+			ScriptStackElement[] stack = thrown.getScriptStack();
+			Assertions.assertEquals(3, stack.length);
+			Assertions.assertEquals("inner", stack[0].functionName);
+			Assertions.assertEquals(6, stack[0].lineNumber);
+			Assertions.assertEquals("outer", stack[1].functionName);
+			Assertions.assertEquals(10, stack[1].lineNumber);
+			Assertions.assertEquals(12, stack[2].lineNumber);
+
+			RhinoException syntax = Assertions.assertThrows(EvaluatorException.class, () -> test.context.evaluateString(test.rootScope, "let (", "javaStack", 1, null));
+			Assertions.assertEquals(0, syntax.getStackTrace().length);
+		} finally {
+			test.context.setJavaStackForScriptErrors(true);
+		}
+	}
+
+	@Test
+	public void metrics() {
+		RhinoTest test = new RhinoTest("metrics");
+		ContextMetrics metrics = new ContextMetrics();
+		test.context.setMetrics(metrics);
+
+		try {
+			test.test("count", """
+					function add(a, b) {
+						return a + b
+					}
+					let s = 0
+					for (let i = 0; i < 10; i++) s = add(s, i)
+					console.info(s + ' ' + /b+/.test('abbc') + ' ' + 'a1b2'.replace(/\\d/g, '') + ' ' + /x/.exec('y'))
+					""", "45 true ab null");
+		} finally {
+			test.context.setMetrics(null);
+		}
+
+		ContextMetrics.Snapshot snapshot = metrics.snapshot();
+		// the script itself and 10 calls of add
+		Assertions.assertEquals(11L, snapshot.functionCalls());
+		// replace with a global pattern tries again after each match
+		Assertions.assertEquals(5L, snapshot.regExpExecutions());
+		Assertions.assertTrue(snapshot.instructions() > 0L);
+		Assertions.assertEquals(1L, snapshot.javaCalls());
+	}
+
+	@Test
+	public void profiler() {
+		RhinoTest test = new RhinoTest("profiler");
+		ScriptProfiler profiler = new ScriptProfiler(100L);
+		test.context.addToScope(test.rootScope, "profiler", profiler);
+		profiler.attach(test.context);
+		profiler.start();
+
+		try {
+			test.test("spin", """
+					function spin() {
+						let x = 0
+						for (let i = 0; i < 1000; i++) x += i
+						return x
+					}
+					let end = Date.now() + 10000
+					while (profiler.getSampleCount() < 20 && Date.now() < end) {
+						spin()
+					}
+					""", "");
+		} finally {
+			profiler.stop();
+			profiler.detach(test.context);
+		}
+
+		Map<String, Long> stacks = profiler.getStacks();
+		Assertions.assertTrue(profiler.getSampleCount() >= 20);
+		Assertions.assertTrue(stacks.keySet().stream().allMatch(s -> s.startsWith("<script> (profiler/spin:")), stacks::toString);
+		Assertions.assertTrue(stacks.keySet().stream().anyMatch(s -> s.endsWith(";spin (profiler/spin:3)")), stacks::toString);
+	}
+
+	@Test
+	public void jsonParserInputs() throws JsonParser.ParseException {
+		RhinoTest test = new RhinoTest("jsonParser");
+		Context cx = test.context;
+		JsonParser parser = new JsonParser(test.rootScope);
+		String json = "{\"a\": [1, 2.5, \"\u00e9\u20ac\ud83d\ude00\"], \"b\": {\"c\": null, \"d\": true}}";
+		String expected = NativeJSON.stringify(parser.parseValue(cx, json), null, null, cx);
+
+		Assertions.assertEquals(expected, NativeJSON.stringify(parser.parseValue(cx, new StringReader(json)), null, null, cx));
+		Assertions.assertEquals(expected, NativeJSON.stringify(parser.parseValue(cx, ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))), null, null, cx));
+
+		// a byte order mark is only skipped in streams
+		Assertions.assertEquals(expected, NativeJSON.stringify(parser.parseValue(cx, new StringReader("\ufeff" + json)), null, null, cx));
+		Assertions.assertEquals(expected, NativeJSON.stringify(parser.parseValue(cx, ByteBuffer.wrap(("\ufeff" + json).getBytes(StandardCharsets.UTF_8))), null, null, cx));
+		Assertions.assertThrows(JsonParser.ParseException.class, () -> parser.parseValue(cx, "\ufeff" + json));
+
+		// longer than the buffer, so tokens and multibyte characters are split across refills
+		StringBuilder sb = new StringBuilder("[");
+
+		for (int i = 0; i < 5000; i++) {
+			sb.append(i == 0 ? "\"" : ", \"").append("\u00e9\u20ac\ud83d\ude00").append(i).append('"');
+		}
+
+		String large = sb.append(']').toString();
+		String expectedLarge = NativeJSON.stringify(parser.parseValue(cx, large), null, null, cx);
+		Assertions.assertEquals(expectedLarge, NativeJSON.stringify(parser.parseValue(cx, new StringReader(large)), null, null, cx));
+		Assertions.assertEquals(expectedLarge, NativeJSON.stringify(parser.parseValue(cx, ByteBuffer.wrap(large.getBytes(StandardCharsets.UTF_8))), null, null, cx));
+
+		Assertions.assertThrows(JsonParser.ParseException.class, () -> parser.parseValue(cx, new StringReader("[1, 2")));
+		Assertions.assertThrows(JsonParser.ParseException.class, () -> parser.parseValue(cx, ByteBuffer.wrap("{\"a\" 1}".getBytes(StandardCharsets.UTF_8))));
+		// invalid continuation byte, then a sequence cut off at the end of input
+		Assertions.assertThrows(JsonParser.ParseException.class, () -> parser.parseValue(cx, ByteBuffer.wrap(new byte[]{'"', (byte) 0xC3, '(', '"'})));
+		Assertions.assertThrows(JsonParser.ParseException.class, () -> parser.parseValue(cx, ByteBuffer.wrap(new byte[]{'"', (byte) 0xE2, (byte) 0x82})));
+	}
+
+	@Test
+	public void longConcatenation() {
+		TEST.test("longConcatenation", """
+				let s = '', p = '', w = ''
+				for (let i = 0; i < 200000; i++) {
+					s += 'ab' + (i % 10)
+					p = (i % 10) + 'ab' + p
+					w = '(' + w + ')'
+				}
+				console.info(s.length + ' ' + s.substring(5, 12) + ' ' + p.length + ' ' + p.substring(5, 12) + ' ' + w.length + ' ' + w.charAt(199999) + w.charAt(200000))
+				""", """
+				600000 1ab2ab3 600000 b7ab6ab 400000 ()
+				""");
+	}
+
+	@Test
+	public void longDecimals() {
+		TEST.test("longDecimals", """
+				console.info(999999999999999999 + ' ' + 9999999999999999999 + ' ' + 99999999999999999999)
+				console.info(parseFloat('949.0812362032295681') + ' ' + Number('9999999999999999999'))
+				console.info(JSON.stringify(JSON.parse('[9999999999999999999, 949.0812362032295681]')))
+				""", """
+				1000000000000000000 10000000000000000000 100000000000000000000
+				949.0812362032295 10000000000000000000
+				[1.0E19,949.0812362032295]
+				""");
+	}
+
+	@Test
+	public void numberArrays() {
+		TEST.test("numberArrays", """
+				let a = [3, 10, 1]
+				a.push(2.5)
+				console.info(a.slice().sort().join(',') + ' ' + a.indexOf(2.5))
+				a.push('x')
+				a[7] = -0
+				console.info(a.join(',') + ' ' + a.length + ' ' + a.pop())
+				let b = [1, 2, 3], c = [1.5, 2.5], d = []
+				d.push(1)
+				console.info(b.pop() + ' ' + b.length + ' ' + c.pop() + ' ' + c.length + ' ' + d.pop() + ' ' + d.pop())
+				""", """
+				1,10,2.5,3 3
+				3,10,1,2.5,x,,,0 8 0
+				3 2 2.5 1 1 undefined
+				""");
+	}
+
+	@Test
+	public void numberArrayView() {
+		TEST.test("numberArrayView", """
+				let a = [100000, 2, 3]
+				console.info(console.isListElementCached(a) + ' ' + console.isListElementCached(a.map(x => x / 2)))
+				""", "true true");
+	}
+
+	@Test
+	public void arrayCallbacks() {
+		TEST.test("arrayCallbacks", """
+				let a = [1, 2, 3]
+				console.info(a.map(x => x * 2).join(',') + ' ' + a.map(function (x, i, arr) { return i + arr.length }).join(',') + ' ' + a.map(function () { return arguments.length }).join(','))
+				console.info(a.reduce((s, x) => s + x) + ' ' + a.reduceRight(function (s, x, i) { return s + x * i }, 0) + ' ' + a.filter(function (x) { const y = x % 2; return y }).join(','))
+				""", """
+				2,4,6 3,4,5 3,3,3
+				6 8 1,3
+				""");
+	}
+
+	@Test
+	public void sortStable() {
+		TEST.test("sortStable", """
+				let a = [{k: 2, i: 0}, {k: 1, i: 1}, {k: 2, i: 2}, {k: 1, i: 3}]
+				console.info(a.sort((x, y) => x.k - y.k).map(x => x.i).join(',') + ' ' + [3, 1, 2].sort(() => NaN).join(','))
+				console.info(['b', undefined, 10, , 'a', 9].sort().join(',') + ' ' + [0.5, 10, 2].sort((x, y) => y - x).join(','))
+				""", """
+				1,3,0,2 3,1,2
+				10,9,a,b,, 10,2,0.5
+				""");
+	}
+
+	@Test
+	public void sortSubtraction() {
+		TEST.test("sortSubtraction", """
+				let a = [5, 3, 9, -1, 3], b = [0.5, -2, 10, 2.25], c = [0, -0, 1]
+				console.info(a.sort((x, y) => x - y).join(',') + ' ' + a.sort((x, y) => y - x).join(','))
+				console.info(b.sort((x, y) => x - y).join(',') + ' ' + b.sort(function (x, y) { return y - x }).join(',') + ' ' + c.sort((x, y) => x - y).map(x => 1 / x).join(','))
+				""", """
+				-1,3,3,5,9 9,5,3,3,-1
+				-2,0.5,2.25,10 10,2.25,0.5,-2 Infinity,-Infinity,1
+				""");
+	}
 }
@@ -66,6 +66,10 @@ public class TestConsole {
 		return new ArrayList<>(Arrays.asList(getTestArray()));
 	}
 
+	public boolean isListElementCached(List<Integer> list) {
+		return list.get(0) == list.get(0);
+	}
+
 	public void test1$setTheme(TestConsoleTheme t) {
 		info("Set theme to " + t);
 		theme = t;
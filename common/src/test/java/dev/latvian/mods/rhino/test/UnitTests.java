@@ -1,9 +1,15 @@
 package dev.latvian.mods.rhino.test;
 
+import dev.latvian.mods.unit.CompiledUnit;
+import dev.latvian.mods.unit.MutableNumberUnit;
 import dev.latvian.mods.unit.Unit;
+import dev.latvian.mods.unit.UnitBatch;
 import dev.latvian.mods.unit.UnitContext;
+import dev.latvian.mods.unit.VariableFrame;
+import dev.latvian.mods.unit.VariableLayout;
 import dev.latvian.mods.unit.VariableSet;
 import dev.latvian.mods.unit.function.RoundedTimeUnit;
+import dev.latvian.mods.unit.token.UnitParseException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -105,6 +111,19 @@ public class UnitTests {
 		assertEval("rgb(#99FF007F, 0.5)", 0x7FFF007F);
 	}
 
+	@Test
+	public void tokenizer() {
+		assertEval("#FF0044 + 1", 0xFFFF0044 + 1);
+		assertEval("$te st * 2", $test * 2D);
+		// color codes don't continue across whitespace or after names
+		Assertions.assertThrows(UnitParseException.class, () -> CONTEXT.parse("#FF 0044"));
+		Assertions.assertThrows(UnitParseException.class, () -> CONTEXT.parse("$test#FF0044"));
+		Assertions.assertThrows(UnitParseException.class, () -> CONTEXT.parse("#FF00"));
+		// unknown functions are reported before their arguments are parsed
+		Assertions.assertEquals("Unknown function 'foo'!", Assertions.assertThrows(IllegalStateException.class, () -> CONTEXT.parse("foo(1 +)")).getMessage());
+		Assertions.assertEquals("Error parsing '(2 + 3' @ 6", Assertions.assertThrows(RuntimeException.class, () -> CONTEXT.parse("(2 + 3")).getMessage());
+	}
+
 	@Test
 	public void simpleOrderOfOperations1() {
 		assertEval("2 + 3 * 4", 14);
@@ -184,4 +203,148 @@ public class UnitTests {
 	public void semicolon3() {
 		assertEval("$setTest = 8; $setTest *= 0.5; $setTest * 3", 12);
 	}
+
+	@Test
+	public void constantFolding() {
+		assertEval("rad(90) * 2 + $test * 1 + 0", Math.PI + $test);
+		Assertions.assertTrue(CONTEXT.parse("rad(90) * 2 - sq(3) ** 2").isFixed());
+	}
+
+	@Test
+	public void batch() {
+		Unit unit = CONTEXT.parse("sin($x * 0.5) * 3 + clamp($x, 0, 1) + ($x > 2 ? $test : 1)");
+		double[] x = new double[1000];
+
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i * 0.01D - 3D;
+		}
+
+		double[] result = new UnitBatch(unit, VARIABLE_SET).input("$x", x).evaluate(x.length);
+		VariableSet set = VARIABLE_SET.createSubset();
+
+		for (int i = 0; i < x.length; i++) {
+			set.set("$x", x[i]);
+			Assertions.assertEquals(unit.get(set), result[i]);
+		}
+	}
+
+	@Test
+	public void compiled() {
+		String[] inputs = {
+				"$x * 2 + 1",
+				"-$x / 3 - $x % 2",
+				"$x ** 2 - sq($x) + sqrt(abs($x))",
+				"sin($x) * cos($x * 2) + tan($x / 4) + atan($x) + atan2($x, 2)",
+				"floor($x) + ceil($x) + min($x, 1) + max($x, -1) + clamp($x, 0, 1)",
+				"log(abs($x)) + log10(abs($x)) + log1p($x)",
+				"deg($x) + rad($x) + lerp($x, 2, 4) + smoothstep($x) + map($x, 0, 1, 4, 8)",
+				"$x > 1 ? $x : $x < -1 ? -$x : 0",
+				"$x >= 0 && $x != 1 || !($x <= -2) == ($x == 0.5)",
+				"($x * 4) & 7 | ($x * 2) ^ 3 << 1 >> 1",
+				"~$x + bool($x) + if($x > 0, 1, 2)",
+				"$test * $x - $test2 / ($x + 10)",
+		};
+
+		VariableSet set = VARIABLE_SET.createSubset();
+
+		for (String input : inputs) {
+			Unit unit = CONTEXT.parse(input);
+			Unit compiled = CONTEXT.compile(unit);
+			Assertions.assertInstanceOf(CompiledUnit.class, compiled, input);
+
+			for (double x = -3D; x <= 3D; x += 0.125D) {
+				set.set("$x", x);
+				Assertions.assertEquals(unit.get(set), compiled.get(set), input + " @ " + x);
+				Assertions.assertEquals(unit.getInt(set), compiled.getInt(set), input + " @ " + x);
+				Assertions.assertEquals(unit.getBoolean(set), compiled.getBoolean(set), input + " @ " + x);
+			}
+		}
+	}
+
+	@Test
+	public void slotVariables() {
+		VariableLayout layout = new VariableLayout();
+		UnitContext context = CONTEXT.sub(layout);
+		Unit a = context.parse("$a * 2");
+		VariableFrame frame = layout.createFrame();
+		frame.set("$a", 3D);
+		Assertions.assertEquals(6D, a.get(frame));
+
+		// the layout grows after the frame was created
+		Unit b = context.parse("$b + $a");
+		Assertions.assertEquals(2, layout.size());
+		Assertions.assertThrows(IllegalStateException.class, () -> b.get(frame));
+		frame.set("$b", 1D);
+		Assertions.assertEquals(4D, b.get(frame));
+		Assertions.assertEquals(12D, context.parse("$c = $a * 4; $c").get(frame));
+		Assertions.assertEquals(12D, frame.get(layout.indexOf("$c")));
+		Assertions.assertEquals(12D, frame.get("$c").get(frame));
+
+		// other variable sets are read by name
+		VariableSet set = new VariableSet().set("$a", 5D).set("$b", 0.5D);
+		Assertions.assertEquals(5.5D, b.get(set));
+	}
+
+	@Test
+	public void evaluationTime() {
+		VariableSet set = VARIABLE_SET.createSubset().beginEvaluation(100.4D);
+		Assertions.assertEquals(100.4D, CONTEXT.parse("time()").get(set));
+		Assertions.assertEquals(100D, CONTEXT.parse("roundedTime()").get(set));
+		Assertions.assertEquals(2D * Math.sin($test * 2D) + 100.4D, CONTEXT.parse("sin($test * 2) + sin($test * 2) + time()").get(set));
+		set.endEvaluation();
+	}
+
+	@Test
+	public void memoization() {
+		VariableSet set = VARIABLE_SET.createSubset().beginEvaluation(0D).beginMemoization();
+		Unit unit = CONTEXT.parse("($memo + 1) * ($memo + 1)");
+		set.set("$memo", 1D);
+		Assertions.assertEquals(4D, unit.get(set));
+		set.set("$memo", 2D);
+		Assertions.assertEquals(9D, unit.get(set));
+
+		MutableNumberUnit x = set.setMutable("$memo", 0D);
+		Unit sin = CONTEXT.parse("sin($memo * 2) + sin($memo * 2)");
+		x.set(1D);
+		set.beginMemoization();
+		Assertions.assertEquals(2D * Math.sin(2D), sin.get(set));
+		Assertions.assertEquals(4, CONTEXT.parse("floor($memo + 1) + floor($memo + 1)").getInt(set));
+		set.endMemoization();
+		x.set(2D);
+		Assertions.assertEquals(2D * Math.sin(4D), sin.get(set));
+		set.endEvaluation();
+
+		VariableLayout layout = new VariableLayout();
+		Unit slots = CONTEXT.sub(layout).parse("($memo + 1) * ($memo + 1)");
+		VariableFrame frame = layout.createFrame();
+		frame.beginMemoization().set("$memo", 1D);
+		Assertions.assertEquals(4D, slots.get(frame));
+		frame.set(layout.indexOf("$memo"), 2D);
+		Assertions.assertEquals(9D, slots.get(frame));
+		frame.endMemoization();
+	}
+
+	@Test
+	public void memoizedIntegers() {
+		String[] inputs = {"($x * -1 & 3) + ($x * -1 & 1)", "(-$x & 3) + (-$x & 1)", "(-$x | 1) * (-$x | 2)", "~(-$x) + ~(-$x)", "-$x & 3 | -$x & 5", "($x > 1 ? -$x : $x) + ($x > 1 ? -$x : $x)"};
+		VariableSet plain = VARIABLE_SET.createSubset();
+		VariableSet memoizing = VARIABLE_SET.createSubset();
+
+		for (String input : inputs) {
+			Unit unit = CONTEXT.parse(input);
+
+			for (double x = -2.5D; x <= 2.5D; x += 0.25D) {
+				plain.set("$x", x);
+				memoizing.set("$x", x);
+				memoizing.beginMemoization();
+				Assertions.assertEquals(unit.get(plain), unit.get(memoizing), input + " @ " + x);
+				memoizing.beginMemoization();
+				Assertions.assertEquals(unit.getInt(plain), unit.getInt(memoizing), input + " @ " + x);
+				memoizing.beginMemoization();
+				Assertions.assertEquals(unit.getBoolean(plain), unit.getBoolean(memoizing), input + " @ " + x);
+			}
+		}
+
+		memoizing.endMemoization();
+	}
 }
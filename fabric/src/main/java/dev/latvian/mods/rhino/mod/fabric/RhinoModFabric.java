@@ -24,7 +24,7 @@ public class RhinoModFabric implements ModInitializer {
 			var unmappedClassName = classDef.getName(runtimeNamespace).replace('/', '.');
 			var rawClassName = classDef.getName(rawNamespace);
 
-			RemappingHelper.LOGGER.info("- Checking class " + rawClassName);
+			RemappingHelper.verbose("- Checking class {}", rawClassName);
 
 			var mmClass = context.mappings().getClass(rawClassName.replace('/', '.'));
 
@@ -33,7 +33,7 @@ public class RhinoModFabric implements ModInitializer {
 					mmClass.unmappedName().setValue(unmappedClassName);
 				}
 
-				RemappingHelper.LOGGER.info("Remapped class " + unmappedClassName + " to " + mmClass.displayName);
+				RemappingHelper.verbose("Remapped class {} to {}", unmappedClassName, mmClass.displayName);
 
 				for (var fieldDef : classDef.getFields()) {
 					var rawFieldName = fieldDef.getName(rawNamespace);
@@ -45,10 +45,10 @@ public class RhinoModFabric implements ModInitializer {
 
 						if (!unmappedFieldName.equals(mmField.mmName())) {
 							mmField.unmappedName().setValue(unmappedFieldName);
-							RemappingHelper.LOGGER.info("Remapped field " + unmappedFieldName + " [" + mmField.rawName() + "] to " + mmField.mmName());
+							RemappingHelper.verbose("Remapped field {} [{}] to {}", unmappedFieldName, mmField.rawName(), mmField.mmName());
 						}
 					} else if (!mmClass.ignoredMembers.contains(sig)) {
-						RemappingHelper.LOGGER.info("Field " + sig + " not found!");
+						RemappingHelper.verbose("Field {} not found!", sig);
 					}
 				}
 
@@ -63,10 +63,10 @@ public class RhinoModFabric implements ModInitializer {
 
 						if (!unmappedMethodName.equals(mmMethod.mmName())) {
 							mmMethod.unmappedName().setValue(unmappedMethodName);
-							RemappingHelper.LOGGER.info("Remapped method " + unmappedMethodName + rawMethodDesc + " to " + mmMethod.mmName());
+							RemappingHelper.verbose("Remapped method {}{} to {}", unmappedMethodName, rawMethodDesc, mmMethod.mmName());
 						}
 					} else if (!mmClass.ignoredMembers.contains(sig)) {
-						RemappingHelper.LOGGER.info("Method " + sig + " not found!");
+						RemappingHelper.verbose("Method {} not found!", sig);
 					}
 				}
 			}
@@ -9,7 +9,6 @@ import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.fml.loading.FMLLoader;
 
 import java.io.BufferedReader;
-import java.util.ArrayList;
 import java.util.regex.Pattern;
 
 @Mod("rhino")
@@ -28,61 +27,56 @@ public class RhinoModForge {
 	private static void generateMappings(RemappingHelper.MappingContext context) throws Exception {
 		MojangMappings.ClassDef current = null;
 
-		var srg = new ArrayList<String>();
+		var pattern = Pattern.compile("[\t ]");
 
 		try (var reader = new BufferedReader(RemappingHelper.createReader("https://raw.githubusercontent.com/MinecraftForge/MCPConfig/master/versions/release/" + context.mcVersion() + "/joined.tsrg"))) {
-			String line;
+			// first line is the header
+			var line = reader.readLine();
 
 			while ((line = reader.readLine()) != null) {
-				srg.add(line);
-			}
-		}
+				var s = pattern.split(line);
 
-		var pattern = Pattern.compile("[\t ]");
-
-		for (int i = 1; i < srg.size(); i++) {
-			var s = pattern.split(srg.get(i));
-
-			if (s.length < 3 || s[1].isEmpty()) {
-				continue;
-			}
-
-			if (!s[0].isEmpty()) {
-				s[0] = s[0].replace('/', '.');
-				current = context.mappings().getClass(s[0]);
-
-				if (current != null) {
-					RemappingHelper.LOGGER.info("- Checking class " + s[0] + " ; " + current.displayName);
-				} else {
-					RemappingHelper.LOGGER.info("- Skipping class " + s[0]);
+				if (s.length < 3 || s[1].isEmpty()) {
+					continue;
 				}
-			} else if (current != null) {
-				if (s.length == 5) {
-					if (s[1].equals("<init>") || s[1].equals("<clinit>")) {
-						continue;
-					}
 
-					var sigs = s[2].substring(0, s[2].lastIndexOf(')') + 1).replace('/', '.');
-					var sig = new MojangMappings.NamedSignature(s[1], context.mappings().readSignatureFromDescriptor(sigs));
-					var m = current.members.get(sig);
+				if (!s[0].isEmpty()) {
+					s[0] = s[0].replace('/', '.');
+					current = context.mappings().getClass(s[0]);
 
-					if (m != null && !m.mmName().equals(s[3])) {
-						m.unmappedName().setValue(s[3]);
-						RemappingHelper.LOGGER.info("Remapped method " + s[3] + sigs + " to " + m.mmName());
-					} else if (m == null && !current.ignoredMembers.contains(sig)) {
-						RemappingHelper.LOGGER.info("Method " + s[3] + " [" + sig + "] not found!");
+					if (current != null) {
+						RemappingHelper.verbose("- Checking class {} ; {}", s[0], current.displayName);
+					} else {
+						RemappingHelper.verbose("- Skipping class {}", s[0]);
 					}
-				} else if (s.length == 4) {
-					var sig = new MojangMappings.NamedSignature(s[1], null);
-					var m = current.members.get(sig);
+				} else if (current != null) {
+					if (s.length == 5) {
+						if (s[1].equals("<init>") || s[1].equals("<clinit>")) {
+							continue;
+						}
+
+						var sigs = s[2].substring(0, s[2].lastIndexOf(')') + 1).replace('/', '.');
+						var sig = new MojangMappings.NamedSignature(s[1], context.mappings().readSignatureFromDescriptor(sigs));
+						var m = current.members.get(sig);
 
-					if (m != null) {
-						if (!m.mmName().equals(s[2])) {
-							m.unmappedName().setValue(s[2]);
-							RemappingHelper.LOGGER.info("Remapped field " + s[2] + " [" + m.rawName() + "] to " + m.mmName());
+						if (m != null && !m.mmName().equals(s[3])) {
+							m.unmappedName().setValue(s[3]);
+							RemappingHelper.verbose("Remapped method {}{} to {}", s[3], sigs, m.mmName());
+						} else if (m == null && !current.ignoredMembers.contains(sig)) {
+							RemappingHelper.verbose("Method {} [{}] not found!", s[3], sig);
+						}
+					} else if (s.length == 4) {
+						var sig = new MojangMappings.NamedSignature(s[1], null);
+						var m = current.members.get(sig);
+
+						if (m != null) {
+							if (!m.mmName().equals(s[2])) {
+								m.unmappedName().setValue(s[2]);
+								RemappingHelper.verbose("Remapped field {} [{}] to {}", s[2], m.rawName(), m.mmName());
+							}
+						} else if (!current.ignoredMembers.contains(sig)) {
+							RemappingHelper.verbose("Field {} [{}] not found!", s[2], s[1]);
 						}
-					} else if (!current.ignoredMembers.contains(sig)) {
-						RemappingHelper.LOGGER.info("Field " + s[2] + " [" + s[1] + "] not found!");
 					}
 				}
 			}